@@ -1,5 +1,6 @@
 plugins {
     java
+    `java-test-fixtures`
     id("maven-publish")
 }
 
@@ -14,6 +15,7 @@ val jUnitJupiterVersion = "5.5.1"
 val guavaVersion = "33.2.1-jre"
 val jacksonCoreVersion = "2.9.10"
 val jacksonDatabindVersion = "2.9.10.8"
+val jmhVersion = "1.37"
 val lombokVersion = "1.18.32"
 val slf4jVersion = "1.7.25"
 val smartsheetSdkVersion = "3.2.0"
@@ -23,11 +25,29 @@ java {
     targetCompatibility = JavaVersion.VERSION_17
 }
 
+// the fake API (used by the tests and the load test) lives in src/testFixtures/java
+configurations["testFixturesImplementation"].extendsFrom(configurations["implementation"])
+
+// JMH benchmarks live in src/jmh/java; run with `./gradlew jmh` (optionally -PjmhInclude=<regex>)
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets["main"].output + sourceSets["testFixtures"].output
+        runtimeClasspath += sourceSets["main"].output + sourceSets["testFixtures"].output
+    }
+}
+configurations["jmhImplementation"].extendsFrom(configurations["implementation"])
+configurations["jmhRuntimeOnly"].extendsFrom(configurations["runtimeOnly"])
+
 repositories {
     mavenLocal()
     mavenCentral()
 }
 
+// the test fixtures aren't part of the published library
+val javaComponent = components["java"] as AdhocComponentWithVariants
+javaComponent.withVariantsFromConfiguration(configurations["testFixturesApiElements"]) { skip() }
+javaComponent.withVariantsFromConfiguration(configurations["testFixturesRuntimeElements"]) { skip() }
+
 publishing {
     publications {
         create<MavenPublication>("maven") {
@@ -40,6 +60,7 @@ dependencies {
     // code dependencies
     implementation("com.fasterxml.jackson.core:jackson-core:$jacksonCoreVersion")
     implementation("com.fasterxml.jackson.core:jackson-databind:$jacksonDatabindVersion")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile:$jacksonCoreVersion")
     implementation("com.google.guava:guava:$guavaVersion")
     implementation("com.smartsheet:smartsheet-sdk-java:$smartsheetSdkVersion")
     implementation("org.apache.commons:commons-lang3:$commonsLangVersion")
@@ -54,8 +75,47 @@ dependencies {
     testImplementation("org.assertj:assertj-core:$assertJVersion")
     testCompileOnly("org.projectlombok:lombok:$lombokVersion")
     testAnnotationProcessor("org.projectlombok:lombok:$lombokVersion")
+
+    // test-fixture dependencies
+    testFixturesCompileOnly("org.projectlombok:lombok:$lombokVersion")
+    testFixturesAnnotationProcessor("org.projectlombok:lombok:$lombokVersion")
+
+    // benchmark dependencies
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+    "jmhCompileOnly"("org.projectlombok:lombok:$lombokVersion")
+    "jmhAnnotationProcessor"("org.projectlombok:lombok:$lombokVersion")
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// writes build/reports/jmh/results.json (throughput plus gc-profiler allocation rates) for diffing between versions
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks"
+    dependsOn(tasks.named("jmhClasses"))
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    args("-rf", "json", "-rff", resultsFile.absolutePath, "-prof", "gc")
+    if (project.hasProperty("jmhInclude")) {
+        args(project.property("jmhInclude").toString())
+    }
+    doFirst {
+        resultsFile.parentFile.mkdirs()
+    }
+}
+
+// bulk-operation throughput & tail latency against the in-process fake API; -PloadTestArgs="rows=50000 throttle=0.02"
+tasks.register<JavaExec>("loadTest") {
+    group = "benchmark"
+    description = "Runs the load test of bulk operations against the fake Smartsheet API"
+    dependsOn(tasks.named("jmhClasses"))
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.ronreynolds.smartsheet.LoadTest")
+    if (project.hasProperty("loadTestArgs")) {
+        args(project.property("loadTestArgs").toString().split(" ").filter { it.isNotBlank() })
+    }
+}
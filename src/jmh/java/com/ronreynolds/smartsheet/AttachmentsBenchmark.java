@@ -0,0 +1,46 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Attachment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AttachmentsBenchmark {
+    @Param({"100", "2000"})
+    public int attachments;
+
+    private List<Attachment> attachmentList;
+
+    @Setup
+    public void setup() {
+        attachmentList = SyntheticSheets.attachments(attachments, 1234L);
+    }
+
+    @Benchmark
+    public Map<String, Attachment> buildMapByName() {
+        return Attachments.buildMap(attachmentList, Attachment::getName);
+    }
+
+    @Benchmark
+    public Map<Long, Attachment> buildMapById() {
+        return Attachments.buildMap(attachmentList, Attachment::getId);
+    }
+}
@@ -0,0 +1,93 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * per-row cell access: the Cells helpers vs ColumnIndex and SheetSnapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CellsBenchmark {
+    @Param({"1000", "20000"})
+    public int rows;
+
+    @Param({"10", "50"})
+    public int columns;
+
+    @Param({"TEXT", "NUMBER", "MIXED"})
+    public SyntheticSheets.CellType cellType;
+
+    private Sheet sheet;
+    private ColumnIndex columnIndex;
+    private SheetSnapshot snapshot;
+    private long lastColumnId;
+
+    @Setup
+    public void setup() {
+        sheet = SyntheticSheets.sheet(rows, columns, cellType, 1234L);
+        columnIndex = ColumnIndex.of(sheet);
+        snapshot = SheetSnapshot.of(sheet);
+        lastColumnId = sheet.getColumns().get(columns - 1).getId();
+    }
+
+    @Benchmark
+    public void getCellValuesByNameStream(Blackhole bh) {
+        Cells.getCellValuesByNameStream(sheet).forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void cellsByColumnId(Blackhole bh) {
+        for (Row row : sheet.getRows()) {
+            bh.consume(Cells.cellsByColumnId(row));
+        }
+    }
+
+    @Benchmark
+    public void getCellForColumn(Blackhole bh) {
+        for (Row row : sheet.getRows()) {
+            bh.consume(Cells.getCellForColumn(row, lastColumnId));
+        }
+    }
+
+    @Benchmark
+    public void getCellForColumnIndexed(Blackhole bh) {
+        for (Row row : sheet.getRows()) {
+            bh.consume(Cells.getCellForColumn(row, lastColumnId, columnIndex));
+        }
+    }
+
+    @Benchmark
+    public void filterRows(Blackhole bh) {
+        bh.consume(Cells.filterRows(sheet, lastColumnId, cell -> cell.getValue() != null, columnIndex));
+    }
+
+    @Benchmark
+    public SheetSnapshot snapshotBuild() {
+        return SheetSnapshot.of(sheet);
+    }
+
+    @Benchmark
+    public void snapshotScan(Blackhole bh) {
+        int lastColumn = columns - 1;
+        snapshot.forEachRow(row -> bh.consume(row.getValue(lastColumn)));
+    }
+}
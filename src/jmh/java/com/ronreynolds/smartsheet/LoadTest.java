@@ -0,0 +1,167 @@
+package com.ronreynolds.smartsheet;
+
+import com.ronreynolds.smartsheet.fake.FakeSmartsheetServer;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.models.Attachment;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * drives bulk operations ({@link Sheets#addRows}, {@link Sheets#clearRows}, {@link Attachments#downloadToDir}) against
+ * a {@link FakeSmartsheetServer} and reports their throughput and (via {@link InMemoryApiMetrics}) latency percentiles.
+ * <p>
+ * args are key=value: rows (10000), columns (10), chunk (500), parallelism (1; more writes chunks of the sheet
+ * concurrently, which the server rejects with error 4004 like the real API), attachments (50), attachmentKb (256),
+ * latencyMs (20-60), throttle (0.0 probability of a 429), throttled (false; pace the client with a RateScheduler).
+ * e.g. {@code ./gradlew loadTest -PloadTestArgs="rows=50000 latencyMs=50-150 throttle=0.02 throttled=true"}
+ */
+public class LoadTest {
+    private final Map<String, String> args;
+
+    private LoadTest(Map<String, String> args) {
+        this.args = args;
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("expected key=value but got " + arg);
+            }
+            args.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        new LoadTest(args).run();
+    }
+
+    private void run() throws Exception {
+        int rows = intArg("rows", 10_000);
+        int columns = intArg("columns", 10);
+        int chunkSize = intArg("chunk", BatchRunner.DEFAULT_CHUNK_SIZE);
+        int parallelism = intArg("parallelism", BatchRunner.DEFAULT_PARALLELISM);
+        int attachmentCount = intArg("attachments", 50);
+        int attachmentKb = intArg("attachmentKb", 256);
+        String[] latency = args.getOrDefault("latencyMs", "20-60").split("-");
+        double throttle = Double.parseDouble(args.getOrDefault("throttle", "0"));
+        boolean throttled = Boolean.parseBoolean(args.getOrDefault("throttled", "false"));
+
+        InMemoryApiMetrics metrics = new InMemoryApiMetrics();
+        Metrics.install(metrics);
+        try (FakeSmartsheetServer server = new FakeSmartsheetServer().start()) {
+            server.setLatency(Long.parseLong(latency[0]), Long.parseLong(latency[latency.length - 1]))
+                    .setThrottleProbability(throttle)
+                    .setRetryAfterSeconds(1);
+            String[] titles = new String[columns];
+            for (int c = 0; c < columns; ++c) {
+                titles[c] = "column-" + c;
+            }
+            long sheetId = server.addSheet(null, "load-test", titles);
+            Smartsheet client = throttled
+                    ? SmartsheetBuilders.getClientWithAuthAndUri("load-test", server.getBaseUri(), new RateScheduler())
+                    : SmartsheetBuilders.getClientWithAuthAndUri("load-test", server.getBaseUri());
+
+            System.out.printf("load test: rows=%d columns=%d chunk=%d parallelism=%d latency=%s-%sms throttle=%.3f "
+                            + "throttled=%s%n%n", rows, columns, chunkSize, parallelism, latency[0],
+                    latency[latency.length - 1], throttle, throttled);
+
+            // addRows
+            List<Row> newRows = syntheticRows(Sheets.getSheetNoRows(client, sheetId).getColumns(), rows);
+            long start = System.nanoTime();
+            Sheets.addRows(client, sheetId, newRows, null, BatchRunner.of(chunkSize, parallelism));
+            report("Sheets.addRows", rows, "rows", start);
+
+            // clearRows (fetches only the row ids)
+            start = System.nanoTime();
+            Sheets.clearRows(client, sheetId, BatchRunner.of(chunkSize, parallelism));
+            report("Sheets.clearRows", rows, "rows", start);
+            if (server.getRowCount(sheetId) != 0) {
+                throw new IllegalStateException(server.getRowCount(sheetId) + " rows left after clearRows");
+            }
+
+            // downloadToDir
+            byte[] content = new byte[attachmentKb * 1024];
+            new Random(1234).nextBytes(content);
+            for (int i = 0; i < attachmentCount; ++i) {
+                server.addAttachment(sheetId, null, "file-" + i + ".bin", content);
+            }
+            Collection<Attachment> attachments = Attachments.getAttachmentMap(client, sheetId, Attachment::getId).values();
+            File dir = Files.createTempDirectory("load-test").toFile();
+            start = System.nanoTime();
+            long bytes = downloadAll(client, sheetId, attachments, dir, parallelism);
+            report("Attachments.downloadToDir", bytes, "bytes", start);
+
+            System.out.printf("%nserver: %d requests, %d throttled (429), %d concurrent writes rejected (4004)%n%n",
+                    server.getRequestCount(), server.getThrottledCount(), server.getConflictCount());
+            System.out.print(metrics);
+        } finally {
+            Metrics.install(null);
+        }
+    }
+
+    private static long downloadAll(Smartsheet client, long sheetId, Collection<Attachment> attachments, File dir,
+                                    int parallelism) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Long>> downloads = new ArrayList<>();
+            for (Attachment listed : attachments) {
+                downloads.add(executor.submit(() -> {
+                    // listed attachments have no url; fetch it like a real caller must
+                    Attachment attachment = Metrics.timed("LoadTest.getAttachment", () -> client.sheetResources()
+                            .attachmentResources().getAttachment(sheetId, listed.getId()));
+                    File[] file = new File[1];
+                    long bytes = Attachments.downloadToDir(dir, attachment, (f) -> file[0] = f);
+                    Files.deleteIfExists(file[0].toPath());
+                    return bytes;
+                }));
+            }
+            long bytes = 0;
+            for (Future<Long> download : downloads) {
+                bytes += download.get();
+            }
+            return bytes;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            Files.deleteIfExists(dir.toPath());
+        }
+    }
+
+    private static List<Row> syntheticRows(List<Column> columns, int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int r = 0; r < count; ++r) {
+            List<Cell> cells = new ArrayList<>(columns.size());
+            for (Column column : columns) {
+                cells.add(new Cell(column.getId()).setValue(column.getIndex() % 2 == 0 ? "row " + r : r * 1.5));
+            }
+            Row row = new Row();
+            row.setToBottom(true);
+            row.setCells(cells);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void report(String operation, long count, String unit, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%-28s %,14d %-5s in %8.3fs = %,14.1f %s/sec%n", operation, count, unit, seconds,
+                count / seconds, unit);
+    }
+
+    private int intArg(String name, int defaultValue) {
+        return args.containsKey(name) ? Integer.parseInt(args.get(name)) : defaultValue;
+    }
+}
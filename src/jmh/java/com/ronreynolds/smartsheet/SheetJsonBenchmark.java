@@ -0,0 +1,68 @@
+package com.ronreynolds.smartsheet;
+
+import com.ronreynolds.jackson.ObjectMappers;
+import com.smartsheet.api.models.Sheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * parsing a getSheet payload: the whole Sheet via databind vs a row at a time with {@link SheetJsonReader}
+ * (compare the gc profiler's alloc rate as well as throughput); plus pretty-printing with a new vs the cached writer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SheetJsonBenchmark {
+    @Param({"100", "5000"})
+    public int rows;
+
+    @Param({"10", "50"})
+    public int columns;
+
+    private Sheet sheet;
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        sheet = SyntheticSheets.sheet(rows, columns, SyntheticSheets.CellType.MIXED, 1234L);
+        json = ObjectMappers.toCompactJson(sheet).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Sheet databindWholeSheet() throws IOException {
+        return ObjectMappers.relaxedReaderFor(Sheet.class).readValue(json);
+    }
+
+    @Benchmark
+    public Sheet streamRows(Blackhole blackhole) throws IOException {
+        return SheetJsonReader.read(new ByteArrayInputStream(json), blackhole::consume);
+    }
+
+    @Benchmark
+    public String prettyJsonNewWriter() throws IOException {
+        return ObjectMappers.defaultMapper().writerWithDefaultPrettyPrinter().writeValueAsString(sheet.getColumns());
+    }
+
+    @Benchmark
+    public String prettyJsonCachedWriter() {
+        return ObjectMappers.toPrettyJson(sheet.getColumns());
+    }
+}
@@ -0,0 +1,67 @@
+package com.ronreynolds.smartsheet;
+
+import com.ronreynolds.jackson.ObjectMappers;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Sheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * whole-sheet helpers: rendering, serializing and the column-name map
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SheetsBenchmark {
+    @Param({"100", "5000"})
+    public int rows;
+
+    @Param({"10", "50"})
+    public int columns;
+
+    @Param({"TEXT", "MIXED"})
+    public SyntheticSheets.CellType cellType;
+
+    private Sheet sheet;
+
+    @Setup
+    public void setup() {
+        sheet = SyntheticSheets.sheet(rows, columns, cellType, 1234L);
+    }
+
+    @Benchmark
+    public CharSequence sheetToString() {
+        return Sheets.toString(sheet);
+    }
+
+    @Benchmark
+    public CharSequence sheetToStringWithContent() throws SmartsheetException {
+        // columns are loaded so no client is needed
+        return Sheets.toString(sheet, null, Sheets.ToStringOptions.ALL);
+    }
+
+    @Benchmark
+    public Map<String, ?> buildColumnByNameMap() {
+        return Columns.buildColumnByNameMap(sheet);
+    }
+
+    @Benchmark
+    public String toCompactJson() {
+        return ObjectMappers.toCompactJson(sheet);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Attachment;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import com.smartsheet.api.models.enums.AttachmentType;
+import com.smartsheet.api.models.enums.ColumnType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * generates Sheets (and Attachments) shaped like the API's responses for the benchmarks
+ */
+public class SyntheticSheets {
+    public enum CellType {
+        /** free text */
+        TEXT,
+        /** doubles */
+        NUMBER,
+        /** a handful of distinct strings (like a status column) */
+        PICKLIST,
+        /** a mix of the above plus empty cells */
+        MIXED
+    }
+
+    private static final String[] PICKLIST_VALUES = {"Open", "In Progress", "Blocked", "Done", "Cancelled"};
+
+    public static Sheet sheet(int numRows, int numColumns, CellType cellType, long seed) {
+        Random random = new Random(seed);
+        List<Column> columns = new ArrayList<>(numColumns);
+        for (int c = 0; c < numColumns; ++c) {
+            Column column = new Column();
+            column.setId(1_000_000L + c);
+            column.setTitle("column-" + c);
+            column.setIndex(c);
+            column.setPrimary(c == 0);
+            column.setType(cellType == CellType.PICKLIST ? ColumnType.PICKLIST : ColumnType.TEXT_NUMBER);
+            columns.add(column);
+        }
+
+        List<Row> rows = new ArrayList<>(numRows);
+        for (int r = 0; r < numRows; ++r) {
+            List<Cell> cells = new ArrayList<>(numColumns);
+            for (int c = 0; c < numColumns; ++c) {
+                Cell cell = new Cell(columns.get(c).getId());
+                Object value = value(cellType, random, r, c);
+                cell.setValue(value);
+                cell.setDisplayValue(value != null ? value.toString() : null);
+                cells.add(cell);
+            }
+            Row row = new Row(5_000_000_000L + r);
+            row.setRowNumber(r + 1);
+            row.setCells(cells);
+            rows.add(row);
+        }
+
+        Sheet sheet = new Sheet();
+        sheet.setId(42L);
+        sheet.setName("synthetic-" + numRows + "x" + numColumns);
+        sheet.setVersion(1);
+        sheet.setTotalRowCount(numRows);
+        sheet.setColumns(columns);
+        sheet.setRows(rows);
+        return sheet;
+    }
+
+    public static List<Attachment> attachments(int count, long seed) {
+        Random random = new Random(seed);
+        List<Attachment> attachments = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            Attachment attachment = new Attachment();
+            attachment.setId(7_000_000L + i);
+            attachment.setName("attachment-" + i + ".pdf");
+            attachment.setAttachmentType(AttachmentType.FILE);
+            attachment.setMimeType("application/pdf");
+            attachment.setSizeInKb((long) random.nextInt(10_000));
+            attachment.setCreatedAt(new Date(1_700_000_000_000L + i * 60_000L));
+            attachments.add(attachment);
+        }
+        return attachments;
+    }
+
+    private static Object value(CellType cellType, Random random, int row, int column) {
+        switch (cellType) {
+            case TEXT:
+                return "text " + row + "/" + column + " " + Long.toHexString(random.nextLong());
+            case NUMBER:
+                return random.nextDouble() * 1000;
+            case PICKLIST:
+                return PICKLIST_VALUES[random.nextInt(PICKLIST_VALUES.length)];
+            default:
+                switch (random.nextInt(4)) {
+                    case 0:
+                        return null;
+                    case 1:
+                        return random.nextDouble() * 1000;
+                    case 2:
+                        return PICKLIST_VALUES[random.nextInt(PICKLIST_VALUES.length)];
+                    default:
+                        return "text " + row + "/" + column;
+                }
+        }
+    }
+}
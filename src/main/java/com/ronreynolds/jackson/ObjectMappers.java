@@ -4,6 +4,8 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser.Feature;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
@@ -11,6 +13,8 @@ import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class ObjectMappers {
     public static class TypeSerDeTuple<T> {
@@ -45,6 +49,13 @@ public class ObjectMappers {
             .enable(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL)
             .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
 
+    // readers & writers are immutable and thread-safe but not cheap to create so they're made once per type;
+    // cleared by addSerDe() as they don't see modules registered after they were made
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectReader> RELAXED_READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+    private static volatile ObjectWriter prettyWriter;
+
     public static ObjectMapper defaultMapper() {
         return DEFAULT;
     }
@@ -53,29 +64,65 @@ public class ObjectMappers {
         return RELAXED;
     }
 
-    public static void addSerDe(TypeSerDeTuple<?>... tuples) {
+    /**
+     * @return a (cached) reader of type from the default mapper
+     */
+    public static ObjectReader readerFor(Class<?> type) {
+        return READERS.computeIfAbsent(type, DEFAULT::readerFor);
+    }
+
+    /**
+     * @return a (cached) reader of type from the relaxed mapper (e.g. for API payloads with unknown properties)
+     */
+    public static ObjectReader relaxedReaderFor(Class<?> type) {
+        return RELAXED_READERS.computeIfAbsent(type, RELAXED::readerFor);
+    }
+
+    /**
+     * @return a (cached) writer of type from the default mapper
+     */
+    public static ObjectWriter writerFor(Class<?> type) {
+        return WRITERS.computeIfAbsent(type, DEFAULT::writerFor);
+    }
+
+    /**
+     * @return a (cached) pretty-printing writer from the default mapper
+     */
+    public static ObjectWriter prettyWriter() {
+        ObjectWriter writer = prettyWriter;
+        if (writer == null) {
+            prettyWriter = writer = DEFAULT.writerWithDefaultPrettyPrinter();
+        }
+        return writer;
+    }
+
+    public static synchronized void addSerDe(TypeSerDeTuple<?>... tuples) {
         SimpleModule module = new SimpleModule();
         for (TypeSerDeTuple<?> tuple : tuples) {
             tuple.addToModule(module);
         }
         DEFAULT.registerModule(module);
         RELAXED.registerModule(module);
+        READERS.clear();
+        RELAXED_READERS.clear();
+        WRITERS.clear();
+        prettyWriter = null;
     }
 
     public static String toPrettyJson(Object o) {
         try {
-            return defaultMapper().writerWithDefaultPrettyPrinter().writeValueAsString(o);
+            return prettyWriter().writeValueAsString(o);
         } catch (IOException jpx) {
             throw new IllegalStateException("failed to generate JSON", jpx);
         }
     }
 
     public static void toPrettyJson(Object o, Writer writer) throws IOException {
-        defaultMapper().writerWithDefaultPrettyPrinter().writeValue(writer, o);
+        prettyWriter().writeValue(writer, o);
     }
 
     public static void toPrettyJson(Object o, OutputStream outputStream) throws IOException {
-        defaultMapper().writerWithDefaultPrettyPrinter().writeValue(outputStream, o);
+        prettyWriter().writeValue(outputStream, o);
     }
 
     public static String toCompactJson(Object o) {
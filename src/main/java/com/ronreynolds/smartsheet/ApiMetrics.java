@@ -0,0 +1,57 @@
+package com.ronreynolds.smartsheet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * receives measurements of the API calls made by the helpers in this package; install one with
+ * {@link Metrics#install}. implementations must be thread-safe and cheap as they're called inline with every call.
+ * operations are named "Class.method" after the helper making the call (e.g. "Sheets.addRows").
+ */
+public interface ApiMetrics {
+    /**
+     * what's being counted by {@link #recordTransfer}
+     */
+    enum Unit {
+        ROWS, CELLS, BYTES
+    }
+
+    /**
+     * records nothing; the default
+     */
+    ApiMetrics NOOP = new ApiMetrics() {
+        @Override
+        public void recordCall(@Nonnull String operation, long durationNanos, @Nullable Throwable error) {
+        }
+
+        @Override
+        public void recordTransfer(@Nonnull String operation, @Nonnull Unit unit, long amount) {
+        }
+
+        @Override
+        public void recordRetry(@Nonnull String operation) {
+        }
+
+        @Override
+        public String toString() {
+            return "ApiMetrics.NOOP";
+        }
+    };
+
+    /**
+     * one completed call (including any retries the http-client made)
+     *
+     * @param error - what the call threw or null if it succeeded
+     */
+    void recordCall(@Nonnull String operation, long durationNanos, @Nullable Throwable error);
+
+    /**
+     * rows, cells or bytes sent or received by a call
+     */
+    void recordTransfer(@Nonnull String operation, @Nonnull Unit unit, long amount);
+
+    /**
+     * the http-client is retrying a request made by the operation (only reported by {@link ThrottledHttpClient})
+     */
+    void recordRetry(@Nonnull String operation);
+}
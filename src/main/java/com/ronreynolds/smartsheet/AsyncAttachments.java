@@ -0,0 +1,75 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.models.Attachment;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link Attachments} methods as CompletableFutures run by an {@link AsyncRunner}; a download counts as one call
+ * against the runner's concurrency limit for as long as it runs
+ */
+public class AsyncAttachments {
+    private final Smartsheet client;
+    private final AsyncRunner runner;
+
+    public AsyncAttachments(@Nonnull Smartsheet client) {
+        this(client, AsyncRunner.defaults());
+    }
+
+    public AsyncAttachments(@Nonnull Smartsheet client, @Nonnull AsyncRunner runner) {
+        this.client = Preconditions.checkNotNull(client, "client");
+        this.runner = Preconditions.checkNotNull(runner, "runner");
+    }
+
+    public AsyncRunner getRunner() {
+        return runner;
+    }
+
+    public <K> CompletableFuture<Map<K, Attachment>> getAttachmentMap(long sheetId,
+                                                                     @Nonnull Function<Attachment, K> keyMapper) {
+        return runner.submit(() -> Attachments.getAttachmentMap(client, sheetId, keyMapper));
+    }
+
+    public CompletableFuture<Attachment> addSheetAttachment(long sheetId, @Nonnull String name, @Nonnull File source) {
+        return runner.submit(() -> Attachments.addSheetAttachment(client, sheetId, name, source));
+    }
+
+    public CompletableFuture<Attachment> addSheetRowAttachment(long sheetId, long rowId, @Nonnull String name,
+                                                               @Nonnull File source) {
+        return runner.submit(() -> Attachments.addSheetRowAttachment(client, sheetId, rowId, name, source));
+    }
+
+    /**
+     * @return the number of bytes downloaded (the attachment must have its url; see {@link #getAttachment})
+     */
+    public CompletableFuture<Long> downloadToDir(@Nonnull File dir, @Nonnull Attachment attachment,
+                                                 Consumer<File> fileCb) {
+        return runner.submit(() -> Attachments.downloadToDir(dir, attachment, fileCb));
+    }
+
+    /**
+     * @return the attachment with its (short-lived) download url
+     */
+    public CompletableFuture<Attachment> getAttachment(long sheetId, long attachmentId) {
+        return runner.submit(() -> Metrics.timed("AsyncAttachments.getAttachment",
+                () -> client.sheetResources().attachmentResources().getAttachment(sheetId, attachmentId)));
+    }
+
+    /**
+     * fetch the attachment's url then download it; cancelling the future cancels whichever step is in flight
+     *
+     * @return the number of bytes downloaded
+     */
+    public CompletableFuture<Long> fetchAndDownload(long sheetId, long attachmentId, @Nonnull File dir,
+                                                    Consumer<File> fileCb) {
+        return AsyncRunner.then(getAttachment(sheetId, attachmentId),
+                (attachment) -> downloadToDir(dir, attachment, fileCb));
+    }
+}
@@ -0,0 +1,47 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.models.Row;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link Cells} update methods as CompletableFutures run by an {@link AsyncRunner}
+ */
+public class AsyncCells {
+    private final Smartsheet client;
+    private final AsyncRunner runner;
+
+    public AsyncCells(@Nonnull Smartsheet client) {
+        this(client, AsyncRunner.defaults());
+    }
+
+    public AsyncCells(@Nonnull Smartsheet client, @Nonnull AsyncRunner runner) {
+        this.client = Preconditions.checkNotNull(client, "client");
+        this.runner = Preconditions.checkNotNull(runner, "runner");
+    }
+
+    public AsyncRunner getRunner() {
+        return runner;
+    }
+
+    public CompletableFuture<List<Row>> setCellValue(long sheetId, long rowId, long columnId, Object value) {
+        return runner.submit(() -> Cells.setCellValue(client, sheetId, rowId, columnId, value));
+    }
+
+    public CompletableFuture<List<Row>> setCellValues(long sheetId, long rowId, @Nonnull Map<Long, Object> columnValueMap) {
+        return runner.submit(() -> Cells.setCellValues(client, sheetId, rowId, columnValueMap));
+    }
+
+    /**
+     * @return the updated row or an empty list if nothing changed (see {@link RowDiff})
+     */
+    public CompletableFuture<List<Row>> setCellValues(long sheetId, @Nonnull Row originalRow,
+                                                      @Nonnull Map<Long, Object> columnValueMap, @Nonnull RowDiff diff) {
+        return runner.submit(() -> Cells.setCellValues(client, sheetId, originalRow, columnValueMap, diff));
+    }
+}
@@ -0,0 +1,245 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * runs blocking API calls on an executor and returns CompletableFutures; used by {@link AsyncSheets},
+ * {@link AsyncCells} and {@link AsyncAttachments}. at most maxConcurrentCalls calls run at once (across every facade
+ * sharing the runner); the rest wait in a queue without holding a thread.
+ * <p>
+ * cancelling a future drops its call if it hasn't started and interrupts it if it has (which stops it waiting on the
+ * rate-limiter or a retry back-off).
+ */
+@Slf4j
+public class AsyncRunner {
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
+    private static final ExecutorService DEFAULT_EXECUTOR = newDefaultExecutor();
+    private static final AsyncRunner DEFAULT = new AsyncRunner(DEFAULT_EXECUTOR, DEFAULT_MAX_CONCURRENT_CALLS);
+
+    /**
+     * a blocking call; any exception it throws completes the future exceptionally
+     */
+    @FunctionalInterface
+    public interface AsyncCall<T> {
+        T call() throws Exception;
+    }
+
+    private final ExecutorService executor;
+    private final int maxConcurrentCalls;
+    private final Queue<Task<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * @param executor           - runs the calls (one thread per running call)
+     * @param maxConcurrentCalls - max number of calls running at once
+     */
+    public AsyncRunner(@Nonnull ExecutorService executor, int maxConcurrentCalls) {
+        Preconditions.checkArgument(maxConcurrentCalls > 0, "maxConcurrentCalls must be positive: %s",
+                maxConcurrentCalls);
+        this.executor = Preconditions.checkNotNull(executor, "executor");
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    /**
+     * @return the runner shared by facades that aren't given one; {@link #DEFAULT_MAX_CONCURRENT_CALLS} on the
+     * default executor
+     */
+    public static AsyncRunner defaults() {
+        return DEFAULT;
+    }
+
+    public static AsyncRunner of(int maxConcurrentCalls) {
+        return new AsyncRunner(DEFAULT_EXECUTOR, maxConcurrentCalls);
+    }
+
+    /**
+     * @return virtual threads if the JVM has them (21+), otherwise a daemon cached thread-pool
+     */
+    public static ExecutorService defaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * @return number of calls running now
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * @return number of calls waiting for one of the running calls to finish
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * queue the call
+     *
+     * @return completes with the call's result (or exception); cancel it to cancel the call
+     */
+    @Nonnull
+    public <T> CompletableFuture<T> submit(@Nonnull AsyncCall<T> call) {
+        Task<T> task = new Task<>(call);
+        pending.add(task);
+        dispatch();
+        return task.result;
+    }
+
+    /**
+     * chain an async step onto a stage; cancelling the returned future cancels whichever step is in flight
+     * (CompletableFuture.thenCompose doesn't)
+     *
+     * @param next - given the stage's result, starts the next step
+     */
+    @Nonnull
+    public static <T, U> CompletableFuture<U> then(@Nonnull CompletableFuture<T> stage,
+                                                   @Nonnull Function<? super T, ? extends CompletableFuture<U>> next) {
+        CompletableFuture<U> result = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<?>> current = new AtomicReference<>(stage);
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                current.get().cancel(true);
+            }
+        });
+        stage.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<U> nextStage;
+            try {
+                nextStage = next.apply(value);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            current.set(nextStage);
+            if (result.isCancelled()) {
+                nextStage.cancel(true);
+            }
+            nextStage.whenComplete((nextValue, nextError) -> {
+                if (nextError != null) {
+                    result.completeExceptionally(unwrap(nextError));
+                } else {
+                    result.complete(nextValue);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * @return the exception a failed future's call threw (rather than the CompletionException/ExecutionException
+     * wrapping it)
+     */
+    public static Throwable unwrap(@Nonnull Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // start pending calls while there's room; called after every submit and every finished call
+    private void dispatch() {
+        while (!pending.isEmpty()) {
+            int now = running.get();
+            if (now >= maxConcurrentCalls) {
+                return;
+            }
+            if (!running.compareAndSet(now, now + 1)) {
+                continue;
+            }
+            Task<?> task = pending.poll();
+            if (task == null) {
+                running.decrementAndGet();  // another thread took it; loop re-checks the queue
+                continue;
+            }
+            if (task.result.isDone()) {
+                running.decrementAndGet();  // cancelled while queued
+                continue;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                running.decrementAndGet();
+                task.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private class Task<T> implements Runnable {
+        private final AsyncCall<T> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private Thread thread;  // while running; guarded by this
+
+        Task(AsyncCall<T> call) {
+            this.call = call;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    synchronized (this) {
+                        if (thread != null) {
+                            thread.interrupt();
+                        }
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                thread = Thread.currentThread();
+            }
+            try {
+                if (!result.isDone()) {
+                    result.complete(call.call());
+                }
+            } catch (Throwable e) {
+                if (!result.isDone()) {
+                    log.debug("async call failed - {}", e.toString());
+                }
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                    Thread.interrupted();   // don't leak a cancel's interrupt to the thread's next task
+                }
+                running.decrementAndGet();
+                dispatch();
+            }
+        }
+    }
+
+    private static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("smartsheet-async-%d").build());
+        }
+    }
+}
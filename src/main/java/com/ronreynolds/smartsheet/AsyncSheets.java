@@ -0,0 +1,119 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Folder;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * {@link Sheets} methods as CompletableFutures run by an {@link AsyncRunner}; futures fail with the exception the
+ * blocking method would have thrown.
+ * <p>
+ * bulk methods send their chunks one at a time (unless given a BatchRunner) so each future is one call against the
+ * runner's concurrency limit.
+ */
+public class AsyncSheets {
+    private static final BatchRunner SEQUENTIAL = BatchRunner.of(BatchRunner.DEFAULT_CHUNK_SIZE, 1);
+
+    private final Smartsheet client;
+    private final AsyncRunner runner;
+
+    public AsyncSheets(@Nonnull Smartsheet client) {
+        this(client, AsyncRunner.defaults());
+    }
+
+    /**
+     * @param runner - share one between facades to share its concurrency limit
+     */
+    public AsyncSheets(@Nonnull Smartsheet client, @Nonnull AsyncRunner runner) {
+        this.client = Preconditions.checkNotNull(client, "client");
+        this.runner = Preconditions.checkNotNull(runner, "runner");
+    }
+
+    public AsyncRunner getRunner() {
+        return runner;
+    }
+
+    public CompletableFuture<Sheet> getWholeSheet(long sheetId) {
+        return runner.submit(() -> Sheets.getWholeSheet(client, sheetId));
+    }
+
+    public CompletableFuture<Sheet> getSheetNoRows(long sheetId) {
+        return runner.submit(() -> Sheets.getSheetNoRows(client, sheetId));
+    }
+
+    public CompletableFuture<List<Sheet>> findByName(@Nonnull String sheetName) {
+        return runner.submit(() -> Sheets.findByName(client, sheetName));
+    }
+
+    public CompletableFuture<List<Row>> addRows(long sheetId, @Nonnull List<Row> rowData) {
+        return addRows(sheetId, rowData, SEQUENTIAL);
+    }
+
+    public CompletableFuture<List<Row>> addRows(long sheetId, @Nonnull List<Row> rowData, @Nonnull BatchRunner batcher) {
+        return runner.submit(() -> Sheets.addRows(client, sheetId, rowData, null, batcher));
+    }
+
+    public CompletableFuture<List<Row>> updateRows(long sheetId, @Nonnull List<Row> rowData) {
+        return updateRows(sheetId, rowData, SEQUENTIAL);
+    }
+
+    public CompletableFuture<List<Row>> updateRows(long sheetId, @Nonnull List<Row> rowData,
+                                                   @Nonnull BatchRunner batcher) {
+        return runner.submit(() -> Sheets.updateRows(client, sheetId, rowData, null, batcher));
+    }
+
+    /**
+     * like the other bulk methods the chunks are sent one at a time unless options has a concurrent BatchRunner
+     * (see {@link RowUpsert.Options#setBatchRunner})
+     */
+    public CompletableFuture<RowUpsert.Result> upsertRows(long sheetId, @Nonnull String keyColumnTitle,
+                                                          @Nonnull List<Row> records,
+                                                          @Nonnull RowUpsert.Options options) {
+        return runner.submit(() -> Sheets.upsertRows(client, sheetId, keyColumnTitle, records, options));
+    }
+
+    /**
+     * @return the ids of the deleted rows
+     */
+    public CompletableFuture<List<Long>> clearRows(long sheetId) {
+        return runner.submit(() -> Sheets.clearRows(client, sheetId, SEQUENTIAL));
+    }
+
+    public CompletableFuture<List<Long>> deleteRows(long sheetId, @Nonnull Collection<Long> rowIds) {
+        return runner.submit(() -> Sheets.deleteRows(client, sheetId, rowIds, SEQUENTIAL));
+    }
+
+    public CompletableFuture<List<Long>> deleteRowsWhere(long sheetId, long columnId,
+                                                         @Nonnull Predicate<Cell> condition) {
+        return runner.submit(() -> Sheets.deleteRowsWhere(client, sheetId, columnId, condition, SEQUENTIAL));
+    }
+
+    /**
+     * @return the copy (without rows)
+     */
+    public CompletableFuture<Sheet> copyAndRefresh(@Nonnull Sheet original, Folder folder, @Nonnull String newSheetName) {
+        return runner.submit(() -> Sheets.copyAndRefresh(client, original, folder, newSheetName));
+    }
+
+    /**
+     * copy a sheet, add rows to the copy, then fetch it; cancelling the future cancels whichever step is in flight
+     *
+     * @return the copy with all its rows
+     */
+    public CompletableFuture<Sheet> copyAndAddRows(@Nonnull Sheet original, Folder folder, @Nonnull String newSheetName,
+                                                   @Nonnull List<Row> rowData) {
+        CompletableFuture<Sheet> copy = copyAndRefresh(original, folder, newSheetName);
+        CompletableFuture<Sheet> populated = AsyncRunner.then(copy, (sheet) -> AsyncRunner.then(
+                addRows(sheet.getId(), rowData), (rows) -> CompletableFuture.completedFuture(sheet)));
+        return AsyncRunner.then(populated, (sheet) -> getWholeSheet(sheet.getId()));
+    }
+}
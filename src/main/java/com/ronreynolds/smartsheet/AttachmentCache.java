@@ -0,0 +1,341 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Attachment;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * attachment contents kept on local disk keyed by attachment id, size and creation date (so a replaced attachment is
+ * a different entry) so an attachment is downloaded once however many times (or from however many threads) it's
+ * asked for; concurrent requests for the same attachment share one download.
+ * <p>
+ * downloads go to a temp file renamed into place once complete. once the files exceed maxBytes the least-recently-used
+ * are deleted; the order survives restarts as a hit touches the file's modified time.
+ */
+@Slf4j
+public class AttachmentCache {
+    static final String SUFFIX = ".bin";
+    static final String TMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+    private final long maxBytes;
+    // guarded by this; in access order so the first entry is the least-recently-used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, CompletableFuture<Path>> downloading = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+
+    /**
+     * @param dir      - where the files are kept (created if need be)
+     * @param maxBytes - max total size of the files
+     */
+    public AttachmentCache(@Nonnull Path dir, long maxBytes) throws IOException {
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive: %s", maxBytes);
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        scan();
+    }
+
+    /**
+     * @param sheetId    - the sheet the attachment belongs to (to fetch its download url if it has none or it expired)
+     * @param attachment - must have its id (and should have its size and creation date)
+     * @return the cached file; may be evicted by later calls so copy it (see {@link #copyToDir}) to keep it
+     * @throws SmartsheetException if fetching the download url fails
+     * @throws IOException         if the download fails
+     */
+    @Nonnull
+    public Path get(@Nonnull Smartsheet client, long sheetId, @Nonnull Attachment attachment)
+            throws SmartsheetException, IOException {
+        String key = keyOf(attachment);
+        Path cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> inFlight = downloading.putIfAbsent(key, download);
+        if (inFlight != null) {
+            shared.increment();
+            return await(inFlight);
+        }
+        try {
+            cached = lookup(key);   // another thread may have finished between the first lookup and putIfAbsent
+            if (cached != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                cached = download(client, sheetId, attachment, key);
+            }
+            download.complete(cached);
+            return cached;
+        } catch (SmartsheetException | IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloading.remove(key, download);
+        }
+    }
+
+    /**
+     * copy an attachment into a directory (named by attachment name) from the cache, downloading it first if need be.
+     * only the last component of the name is used so the file can't land outside dir.
+     *
+     * @return the copied file
+     * @throws IllegalArgumentException if the attachment's name isn't usable as a file name in dir
+     */
+    @Nonnull
+    public Path copyToDir(@Nonnull Smartsheet client, long sheetId, @Nonnull Attachment attachment, @Nonnull Path dir)
+            throws SmartsheetException, IOException {
+        Path target = targetIn(Files.createDirectories(dir), attachment);
+        try {
+            return Files.copy(get(client, sheetId, attachment), target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            // evicted between get & copy; once more is enough (it's now the most-recently-used)
+            return Files.copy(get(client, sheetId, attachment), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // the name comes from the server (or whoever uploaded the file) so is never trusted as a path
+    private static Path targetIn(Path dir, Attachment attachment) {
+        String name = attachment.getName();
+        Path fileName = name != null ? Paths.get(name).getFileName() : null;
+        Path directory = dir.toAbsolutePath().normalize();
+        Path target = fileName != null ? directory.resolve(fileName.toString()).normalize() : null;
+        Preconditions.checkArgument(target != null && directory.equals(target.getParent()),
+                "attachment %s has an unusable name: %s", attachment.getId(), name);
+        return target;
+    }
+
+    /**
+     * @return true if the attachment's contents are cached (doesn't count as a use)
+     */
+    public synchronized boolean contains(@Nonnull Attachment attachment) {
+        return entries.containsKey(keyOf(attachment));
+    }
+
+    public synchronized void clear() throws IOException {
+        for (Entry entry : entries.values()) {
+            Files.deleteIfExists(entry.file);
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return requests that downloaded the attachment
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return requests that waited on another thread's download of the same attachment rather than downloading it
+     */
+    public long getShared() {
+        return shared.sum();
+    }
+
+    /**
+     * @return fraction of requests served without a download of their own (hits and shared downloads)
+     */
+    public double getHitRate() {
+        long served = getHits() + getShared();
+        long total = served + getMisses();
+        return total > 0 ? (double) served / total : 0;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{dir:%s, entries:%d, bytes:%d, hits:%d, misses:%d, shared:%d, hitRate:%.3f, " +
+                        "evictions:%d, bytesDownloaded:%d}", dir, getEntryCount(), getTotalBytes(), getHits(),
+                getMisses(), getShared(), getHitRate(), getEvictions(), getBytesDownloaded());
+    }
+
+    static String keyOf(Attachment attachment) {
+        Preconditions.checkArgument(attachment.getId() != null, "attachment has no id");
+        long sizeInKb = attachment.getSizeInKb() != null ? attachment.getSizeInKb() : 0;
+        long createdAt = attachment.getCreatedAt() != null ? attachment.getCreatedAt().getTime() : 0;
+        return attachment.getId() + "-" + sizeInKb + "-" + createdAt;
+    }
+
+    private synchronized Path lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            Files.setLastModifiedTime(entry.file, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry.file;
+        } catch (IOException e) {
+            log.warn("dropping missing cache file {} - {}", entry.file, e.toString());
+            entries.remove(key);
+            totalBytes -= entry.size;
+            return null;
+        }
+    }
+
+    /**
+     * download from the attachment's url; urls expire after a few minutes so if a url the caller supplied fails a
+     * fresh one is fetched and the download tried once more
+     */
+    private Path download(Smartsheet client, long sheetId, Attachment attachment, String key)
+            throws SmartsheetException, IOException {
+        if (attachment.getUrl() != null) {
+            try {
+                return download(attachment.getUrl(), key);
+            } catch (IOException e) {
+                log.debug("download of attachment {} failed; fetching a fresh url - {}", attachment.getId(),
+                        e.toString());
+                Metrics.retried();
+            }
+        }
+        String url = Metrics.timed("AttachmentCache.getAttachment", () -> client.sheetResources()
+                .attachmentResources().getAttachment(sheetId, attachment.getId())).getUrl();
+        return download(Preconditions.checkNotNull(url, "no url for attachment %s", attachment.getId()), key);
+    }
+
+    private Path download(String source, String key) throws SmartsheetException, IOException {
+        Path tmp = Files.createTempFile(dir, key + "-", TMP_SUFFIX);
+        try {
+            long bytes = Metrics.timed("AttachmentCache.download", () -> {
+                try (InputStream in = new URL(source).openStream()) {
+                    return Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            });
+            Metrics.transferred("AttachmentCache.download", ApiMetrics.Unit.BYTES, bytes);
+            bytesDownloaded.add(bytes);
+            Path file = dir.resolve(key + SUFFIX);
+            synchronized (this) {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                Entry previous = entries.put(key, new Entry(file, bytes));
+                totalBytes += bytes - (previous != null ? previous.size : 0);
+                evict(key);
+            }
+            return file;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // delete least-recently-used files (but never the one just downloaded) until under maxBytes
+    private void evict(String keepKey) throws IOException {
+        Iterator<Map.Entry<String, Entry>> lru = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && lru.hasNext()) {
+            Map.Entry<String, Entry> next = lru.next();
+            if (next.getKey().equals(keepKey)) {
+                continue;
+            }
+            lru.remove();
+            totalBytes -= next.getValue().size;
+            Files.deleteIfExists(next.getValue().file);
+            evictions.increment();
+            log.debug("evicted {} ({} bytes)", next.getValue().file, next.getValue().size);
+        }
+    }
+
+    // index the existing files oldest first; removes temp files left by a crash
+    private synchronized void scan() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SUFFIX)) {
+                    files.add(file);
+                }
+            }
+        }
+        Map<Path, Long> modified = new LinkedHashMap<>();
+        for (Path file : files) {
+            modified.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        files.sort(Comparator.comparingLong(modified::get));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(name.substring(0, name.length() - SUFFIX.length()), new Entry(file, size));
+            totalBytes += size;
+        }
+        evict(null);
+    }
+
+    private static Path await(CompletableFuture<Path> download) throws SmartsheetException, IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for download");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SmartsheetException) {
+                throw (SmartsheetException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("download failed", cause);
+        }
+    }
+
+    private static class Entry {
+        private final Path file;
+        private final long size;
+
+        Entry(Path file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Attachment;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * downloads many attachments into a directory with bounded parallelism. files are written through a FileChannel from
+ * a pooled direct buffer; a partial file left by an earlier run is resumed with an http range request and a file that
+ * is already complete (same size as on the server) is skipped.
+ */
+@Slf4j
+public class AttachmentDownloader {
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final int PARTIAL_CONTENT = 206;
+    private static final int RANGE_NOT_SATISFIABLE = 416;
+
+    private final Smartsheet client;
+    private final int parallelism;
+    private final int bufferSize;
+    private final ExecutorService executor;
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    /**
+     * @param client      - used to look up the download URL of attachments that don't have one (may be null if all do)
+     * @param parallelism - max number of concurrent downloads
+     * @param bufferSize  - size of each (direct) transfer buffer
+     * @param executor    - runs the downloads; null for the shared batch pool
+     */
+    public AttachmentDownloader(Smartsheet client, int parallelism, int bufferSize, ExecutorService executor) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+        Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive: %s", bufferSize);
+        this.client = client;
+        this.parallelism = parallelism;
+        this.bufferSize = bufferSize;
+        this.executor = executor != null ? executor : BatchRunner.sharedExecutor();
+        this.buffers = new ArrayBlockingQueue<>(parallelism);
+    }
+
+    public AttachmentDownloader(Smartsheet client) {
+        this(client, DEFAULT_PARALLELISM, DEFAULT_BUFFER_SIZE, null);
+    }
+
+    /**
+     * download attachments into a directory (named by attachment name; a duplicate name is prefixed by the id)
+     *
+     * @param sheetId     - sheet the attachments belong to (to look up missing download URLs)
+     * @param attachments - the attachments to download (e.g. the values of {@link Attachments#getAttachmentMap})
+     * @param dir         - directory into which the files are written
+     * @param progress    - optional callback given each file's outcome as it finishes (on a download thread)
+     * @return the outcome of every download (in input order) and the aggregate throughput
+     */
+    @Nonnull
+    public Report download(long sheetId, @Nonnull Collection<Attachment> attachments, @Nonnull Path dir,
+                           Consumer<Download> progress) throws IOException, InterruptedException {
+        Files.createDirectories(dir);
+        List<Attachment> todo = new ArrayList<>(attachments);
+        List<Path> files = new ArrayList<>(todo.size());
+        Set<String> names = new HashSet<>();
+        for (Attachment attachment : todo) {
+            String name = names.add(attachment.getName()) ? attachment.getName()
+                    : attachment.getId() + "-" + attachment.getName();
+            files.add(dir.resolve(name));
+        }
+
+        long start = System.nanoTime();
+        Download[] results = new Download[todo.size()];
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, todo.size())];
+        for (int w = 0; w < workers.length; ++w) {
+            workers[w] = CompletableFuture.runAsync(() -> {
+                for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement()) {
+                    results[i] = recorded(downloadOne(sheetId, todo.get(i), files.get(i)));
+                    if (progress != null) {
+                        try {
+                            progress.accept(results[i]);
+                        } catch (RuntimeException e) {
+                            // the caller's bug mustn't stop the downloads or lose the report
+                            log.warn("progress callback failed for {} - {}", results[i].getFile(), e.toString());
+                        }
+                    }
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(workers).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("download worker failed", e.getCause());
+        } catch (InterruptedException e) {
+            next.set(results.length);   // stop the workers picking up more files
+            throw e;
+        }
+        return new Report(Arrays.asList(results), System.nanoTime() - start);
+    }
+
+    private Download downloadOne(long sheetId, Attachment attachment, Path file) {
+        long start = System.nanoTime();
+        long existing = 0;
+        try {
+            existing = Files.exists(file) ? Files.size(file) : 0;
+            String url = attachment.getUrl();
+            if (url == null) {
+                Preconditions.checkState(client != null, "no url for attachment %s and no client to fetch it",
+                        attachment.getId());
+                url = Metrics.timed("AttachmentDownloader.getAttachment", () -> client.sheetResources()
+                        .attachmentResources().getAttachment(sheetId, attachment.getId())).getUrl();
+            }
+
+            HttpURLConnection conn = (HttpURLConnection) new URL(Preconditions.checkNotNull(url)).openConnection();
+            if (existing > 0) {
+                conn.setRequestProperty("Range", "bytes=" + existing + "-");
+            }
+            int status = conn.getResponseCode();
+            long offset = 0;
+            long expectedSize;
+            if (status == RANGE_NOT_SATISFIABLE) {
+                long total = totalFromContentRange(conn.getHeaderField("Content-Range"));
+                conn.disconnect();
+                if (total == existing) {
+                    return new Download(attachment, file, Status.SKIPPED, 0, existing, System.nanoTime() - start, null);
+                }
+                // local file is bigger than (or doesn't match) the server's; start over
+                conn = (HttpURLConnection) new URL(url).openConnection();
+                status = conn.getResponseCode();
+            }
+            if (status == PARTIAL_CONTENT) {
+                offset = existing;
+                long length = conn.getContentLengthLong();
+                long total = totalFromContentRange(conn.getHeaderField("Content-Range"));
+                expectedSize = total >= 0 ? total : length >= 0 ? offset + length : -1;
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                expectedSize = conn.getContentLengthLong();
+                if (existing > 0 && expectedSize == existing) {
+                    conn.disconnect();
+                    return new Download(attachment, file, Status.SKIPPED, 0, existing, System.nanoTime() - start, null);
+                }
+            } else {
+                conn.disconnect();
+                throw new IOException("http " + status + " downloading " + attachment.getName());
+            }
+
+            long bytes = transfer(conn, file, offset > 0);
+            long size = offset + bytes;
+            if (expectedSize >= 0 && size != expectedSize) {
+                throw new IOException(String.format("%s is %d bytes; expected %d", file, size, expectedSize));
+            }
+            return new Download(attachment, file, offset > 0 ? Status.RESUMED : Status.DOWNLOADED, bytes, size,
+                    System.nanoTime() - start, null);
+        } catch (IOException | SmartsheetException | RuntimeException e) {
+            log.warn("failed to download {} to {} - {}", attachment.getName(), file, e.toString());
+            return new Download(attachment, file, Status.FAILED, 0, existing, System.nanoTime() - start, e);
+        }
+    }
+
+    private static Download recorded(Download download) {
+        if (Metrics.isEnabled()) {
+            Metrics.get().recordCall("AttachmentDownloader.download", download.getNanos(), download.getError());
+            Metrics.transferred("AttachmentDownloader.download", ApiMetrics.Unit.BYTES, download.getBytesTransferred());
+        }
+        return download;
+    }
+
+    private long transfer(HttpURLConnection conn, Path file, boolean append) throws IOException {
+        ByteBuffer buffer = borrowBuffer();
+        try (InputStream is = conn.getInputStream();
+             ReadableByteChannel in = Channels.newChannel(is);
+             FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            long total = 0;
+            buffer.clear();
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    total += out.write(buffer);
+                }
+                buffer.clear();
+            }
+            return total;
+        } finally {
+            buffers.offer(buffer);
+        }
+    }
+
+    private ByteBuffer borrowBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * @return the total size from a "Content-Range: bytes * /total" header or -1 if missing/unparseable
+     */
+    private static long totalFromContentRange(String contentRange) {
+        if (contentRange == null || contentRange.indexOf('/') < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public enum Status {
+        DOWNLOADED, RESUMED, SKIPPED, FAILED
+    }
+
+    /**
+     * the outcome of downloading one attachment
+     */
+    public static class Download {
+        private final Attachment attachment;
+        private final Path file;
+        private final Status status;
+        private final long bytesTransferred;
+        private final long fileSize;
+        private final long nanos;
+        private final Exception error;
+
+        Download(Attachment attachment, Path file, Status status, long bytesTransferred, long fileSize, long nanos,
+                 Exception error) {
+            this.attachment = attachment;
+            this.file = file;
+            this.status = status;
+            this.bytesTransferred = bytesTransferred;
+            this.fileSize = fileSize;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public Attachment getAttachment() {
+            return attachment;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getBytesTransferred() {
+            return bytesTransferred;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public double getBytesPerSecond() {
+            return nanos > 0 ? bytesTransferred * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{name:'%s', status:%s, bytes:%d, size:%d, ms:%d, bytesPerSec:%.0f%s}",
+                    attachment.getName(), status, bytesTransferred, fileSize, nanos / 1_000_000, getBytesPerSecond(),
+                    error != null ? ", error:" + error : "");
+        }
+    }
+
+    /**
+     * the outcome of a whole download run
+     */
+    public static class Report {
+        private final List<Download> downloads;
+        private final long nanos;
+
+        Report(List<Download> downloads, long nanos) {
+            this.downloads = downloads;
+            this.nanos = nanos;
+        }
+
+        public List<Download> getDownloads() {
+            return downloads;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytesTransferred() {
+            return downloads.stream().mapToLong(Download::getBytesTransferred).sum();
+        }
+
+        public long count(Status status) {
+            return downloads.stream().filter(d -> d.getStatus() == status).count();
+        }
+
+        /**
+         * @return aggregate throughput (total bytes over wall-clock time of the whole run)
+         */
+        public double getBytesPerSecond() {
+            return nanos > 0 ? getBytesTransferred() * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{files:%d, downloaded:%d, resumed:%d, skipped:%d, failed:%d, bytes:%d, ms:%d, " +
+                            "bytesPerSec:%.0f}", downloads.size(), count(Status.DOWNLOADED), count(Status.RESUMED),
+                    count(Status.SKIPPED), count(Status.FAILED), getBytesTransferred(), nanos / 1_000_000,
+                    getBytesPerSecond());
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.ServiceUnavailableException;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.SmartsheetRestException;
+import com.smartsheet.api.models.Attachment;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * uploads many files (or streams) as sheet or row attachments with bounded parallelism. the SDK reads an upload's whole
+ * content into memory before sending it (so it can retry) so the total length of the uploads in flight is bounded too;
+ * a source longer than that bound is uploaded on its own.
+ * <p>
+ * an attach isn't idempotent so an upload is only retried (re-opening the source) if it failed before the API accepted
+ * it: the source couldn't be opened or the API was still unavailable or rate-limiting after the client's own retries.
+ * retries aren't delayed here; the client's scheduler paces them.
+ * <p>
+ * uploads are ordinary API calls so they're held to the rate limit of the client's {@link RateScheduler} (see
+ * {@link SmartsheetBuilders#getClientWithAuth(String, RateScheduler)}) shared with every other call on the same token.
+ */
+@Slf4j
+public class AttachmentUploader {
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_ATTEMPTS = 3;
+    public static final long DEFAULT_MAX_BYTES_IN_FLIGHT = 256L << 20;
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    // the in-flight bound is counted in KiB so it fits a Semaphore's int permits
+    private static final int KIB = 1024;
+
+    /**
+     * opens the content to upload; called again for each retry
+     */
+    @FunctionalInterface
+    public interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+
+    private final Smartsheet client;
+    private final int parallelism;
+    private final int attempts;
+    private final int maxKibInFlight;
+    private final Semaphore kibInFlight;
+    private final ExecutorService executor;
+
+    /**
+     * @param parallelism      - max number of concurrent uploads
+     * @param attempts         - max tries per upload (1 means no retries)
+     * @param maxBytesInFlight - max total length of the concurrent uploads
+     * @param executor         - runs the uploads; null for the shared batch pool
+     */
+    public AttachmentUploader(@Nonnull Smartsheet client, int parallelism, int attempts, long maxBytesInFlight,
+                              ExecutorService executor) {
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+        Preconditions.checkArgument(attempts > 0, "attempts must be positive: %s", attempts);
+        Preconditions.checkArgument(maxBytesInFlight > 0, "maxBytesInFlight must be positive: %s", maxBytesInFlight);
+        this.client = Preconditions.checkNotNull(client, "client");
+        this.parallelism = parallelism;
+        this.attempts = attempts;
+        this.maxKibInFlight = toKib(maxBytesInFlight);
+        this.kibInFlight = new Semaphore(maxKibInFlight, true);
+        this.executor = executor != null ? executor : BatchRunner.sharedExecutor();
+    }
+
+    public AttachmentUploader(@Nonnull Smartsheet client, int parallelism, int attempts, ExecutorService executor) {
+        this(client, parallelism, attempts, DEFAULT_MAX_BYTES_IN_FLIGHT, executor);
+    }
+
+    public AttachmentUploader(@Nonnull Smartsheet client) {
+        this(client, DEFAULT_PARALLELISM, DEFAULT_ATTEMPTS, null);
+    }
+
+    /**
+     * upload attachments
+     *
+     * @param sources  - what to upload and where
+     * @param progress - optional callback given each upload's outcome as it finishes (on an upload thread)
+     * @return the outcome of every upload (in input order) and the aggregate throughput
+     */
+    @Nonnull
+    public Report upload(@Nonnull Collection<Source> sources, Consumer<Upload> progress) throws InterruptedException {
+        List<Source> todo = new ArrayList<>(sources);
+        long start = System.nanoTime();
+        Upload[] results = new Upload[todo.size()];
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, todo.size())];
+        for (int w = 0; w < workers.length; ++w) {
+            workers[w] = CompletableFuture.runAsync(() -> {
+                for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement()) {
+                    results[i] = uploadOne(todo.get(i));
+                    if (progress != null) {
+                        try {
+                            progress.accept(results[i]);
+                        } catch (RuntimeException e) {
+                            log.warn("progress callback failed for {} - {}", results[i].source.name, e.toString());
+                        }
+                    }
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(workers).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("upload worker failed", e.getCause());
+        } catch (InterruptedException e) {
+            next.set(results.length);   // stop the workers picking up more uploads
+            throw e;
+        }
+        return new Report(Arrays.asList(results), System.nanoTime() - start);
+    }
+
+    private Upload uploadOne(Source source) {
+        long start = System.nanoTime();
+        int kib = Math.min(toKib(source.length), maxKibInFlight);
+        try {
+            kibInFlight.acquire(kib);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(source, 0, start, e);
+        }
+        try {
+            for (int attempt = 1; ; ++attempt) {
+                InputStream in;
+                try {
+                    in = source.content.open();
+                } catch (IOException | RuntimeException e) {
+                    if (attempt >= attempts) {
+                        return failed(source, attempt, start, e);
+                    }
+                    retrying(source, e);
+                    continue;
+                }
+                try (in) {
+                    Attachment attachment = Metrics.timed("AttachmentUploader.upload", () -> source.rowId != null
+                            ? client.sheetResources().rowResources().attachmentResources().attachFile(source.sheetId,
+                            source.rowId, in, source.contentType, source.length, source.name)
+                            : client.sheetResources().attachmentResources().attachFile(source.sheetId, in,
+                            source.contentType, source.length, source.name));
+                    Metrics.transferred("AttachmentUploader.upload", ApiMetrics.Unit.BYTES, source.length);
+                    return new Upload(source, Status.UPLOADED, attachment, attempt, source.length,
+                            System.nanoTime() - start, null);
+                } catch (SmartsheetException e) {
+                    if (!notAccepted(e) || attempt >= attempts) {
+                        return failed(source, attempt, start, e);
+                    }
+                    retrying(source, e);
+                } catch (IOException | RuntimeException e) {
+                    return failed(source, attempt, start, e);   // may have been attached; don't risk doing so twice
+                }
+            }
+        } finally {
+            kibInFlight.release(kib);
+        }
+    }
+
+    /**
+     * @return true if the API is known not to have created the attachment (unavailable or still rate-limiting)
+     */
+    private static boolean notAccepted(SmartsheetException e) {
+        return e instanceof ServiceUnavailableException || (e instanceof SmartsheetRestException
+                && ((SmartsheetRestException) e).getErrorCode() == ThrottledHttpClient.RATE_LIMIT_EXCEEDED_ERROR);
+    }
+
+    private static void retrying(Source source, Exception e) {
+        log.debug("retrying upload of {} to sheet {} - {}", source.name, source.sheetId, e.toString());
+        Metrics.retried();
+    }
+
+    private static int toKib(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + KIB - 1) / KIB);
+    }
+
+    private static Upload failed(Source source, int attempts, long start, Exception e) {
+        log.warn("failed to upload {} to sheet {} - {}", source.name, source.sheetId, e.toString());
+        return new Upload(source, Status.FAILED, null, attempts, 0, System.nanoTime() - start, e);
+    }
+
+    /**
+     * what to upload and where to attach it
+     */
+    public static class Source {
+        private final long sheetId;
+        private final Long rowId;
+        private final String name;
+        private final String contentType;
+        private final long length;
+        private final StreamSupplier content;
+
+        /**
+         * @param rowId  - the row to attach to; null to attach to the sheet
+         * @param length - exact number of bytes content supplies (the API needs it up front)
+         */
+        public Source(long sheetId, Long rowId, @Nonnull String name, @Nonnull String contentType, long length,
+                      @Nonnull StreamSupplier content) {
+            Preconditions.checkArgument(length >= 0, "length must not be negative: %s", length);
+            this.sheetId = sheetId;
+            this.rowId = rowId;
+            this.name = Preconditions.checkNotNull(name, "name");
+            this.contentType = Preconditions.checkNotNull(contentType, "contentType");
+            this.length = length;
+            this.content = Preconditions.checkNotNull(content, "content");
+        }
+
+        /**
+         * a file attached under its own name; the content type is guessed from the file (octet-stream if unknown)
+         */
+        public static Source of(long sheetId, Long rowId, @Nonnull Path file) throws IOException {
+            return of(sheetId, rowId, file.getFileName().toString(), file);
+        }
+
+        public static Source of(long sheetId, Long rowId, @Nonnull String name, @Nonnull Path file)
+                throws IOException {
+            String contentType = Files.probeContentType(file);
+            return new Source(sheetId, rowId, name, contentType != null ? contentType : DEFAULT_CONTENT_TYPE,
+                    Files.size(file), () -> Files.newInputStream(file));
+        }
+
+        public long getSheetId() {
+            return sheetId;
+        }
+
+        public Long getRowId() {
+            return rowId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{sheetId:%d, rowId:%s, name:'%s', contentType:%s, length:%d}", sheetId, rowId, name,
+                    contentType, length);
+        }
+    }
+
+    public enum Status {
+        UPLOADED, FAILED
+    }
+
+    /**
+     * the outcome of uploading one source
+     */
+    public static class Upload {
+        private final Source source;
+        private final Status status;
+        private final Attachment attachment;
+        private final int attempts;
+        private final long bytesTransferred;
+        private final long nanos;
+        private final Exception error;
+
+        Upload(Source source, Status status, Attachment attachment, int attempts, long bytesTransferred, long nanos,
+               Exception error) {
+            this.source = source;
+            this.status = status;
+            this.attachment = attachment;
+            this.attempts = attempts;
+            this.bytesTransferred = bytesTransferred;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the created attachment (null if the upload failed)
+         */
+        public Attachment getAttachment() {
+            return attachment;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public long getBytesTransferred() {
+            return bytesTransferred;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        public double getBytesPerSecond() {
+            return nanos > 0 ? bytesTransferred * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{name:'%s', status:%s, attempts:%d, bytes:%d, ms:%d, bytesPerSec:%.0f%s}",
+                    source.name, status, attempts, bytesTransferred, nanos / 1_000_000, getBytesPerSecond(),
+                    error != null ? ", error:" + error : "");
+        }
+    }
+
+    /**
+     * the outcome of a whole upload run
+     */
+    public static class Report {
+        private final List<Upload> uploads;
+        private final long nanos;
+
+        Report(List<Upload> uploads, long nanos) {
+            this.uploads = uploads;
+            this.nanos = nanos;
+        }
+
+        public List<Upload> getUploads() {
+            return uploads;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getBytesTransferred() {
+            return uploads.stream().mapToLong(Upload::getBytesTransferred).sum();
+        }
+
+        public long count(Status status) {
+            return uploads.stream().filter(u -> u.getStatus() == status).count();
+        }
+
+        /**
+         * @return uploads that needed more than one attempt
+         */
+        public long getRetried() {
+            return uploads.stream().filter(u -> u.getAttempts() > 1).count();
+        }
+
+        /**
+         * @return aggregate throughput (total bytes over wall-clock time of the whole run)
+         */
+        public double getBytesPerSecond() {
+            return nanos > 0 ? getBytesTransferred() * 1e9 / nanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{files:%d, uploaded:%d, failed:%d, retried:%d, bytes:%d, ms:%d, bytesPerSec:%.0f}",
+                    uploads.size(), count(Status.UPLOADED), count(Status.FAILED), getRetried(),
+                    getBytesTransferred(), nanos / 1_000_000, getBytesPerSecond());
+        }
+    }
+}
@@ -16,7 +16,11 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -33,7 +37,8 @@ public class Attachments {
      */
     public static <K> Map<K, Attachment> getAttachmentMap(Smartsheet client, long sheetId, Function<Attachment, K> keyMapper)
             throws SmartsheetException {
-        PagedResult<Attachment> attachments = client.sheetResources().attachmentResources().listAttachments(sheetId, Constants.ALL_PAGES);
+        PagedResult<Attachment> attachments = Metrics.timed("Attachments.getAttachmentMap",
+                () -> client.sheetResources().attachmentResources().listAttachments(sheetId, Constants.ALL_PAGES));
 
         return buildMap(attachments.getData(), keyMapper);
     }
@@ -45,11 +50,33 @@ public class Attachments {
             throws SmartsheetException {
         List<Attachment> attachments = sheet.getAttachments();
         if (attachments == null) {
-            attachments = client.sheetResources().attachmentResources().listAttachments(sheet.getId(), Constants.ALL_PAGES).getData();
+            attachments = Metrics.timed("Attachments.getAttachmentMap", () -> client.sheetResources()
+                    .attachmentResources().listAttachments(sheet.getId(), Constants.ALL_PAGES)).getData();
         }
         return buildMap(attachments, keyMapper);
     }
 
+    /**
+     * lists the attachments of many sheets concurrently (one listAttachments call per sheet)
+     *
+     * @param batcher - parallelism of the calls (its chunk size is ignored)
+     * @return each sheet's attachments (in sheetIds order)
+     * @throws BatchRunner.BatchException if any sheet's call failed; carries the lists of the sheets that succeeded
+     */
+    public static Map<Long, List<Attachment>> getAttachmentsBySheet(Smartsheet client, Collection<Long> sheetIds,
+                                                                     BatchRunner batcher) throws SmartsheetException {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(sheetIds));
+        List<List<Attachment>> lists = batcher.withMaxChunkSize(1).run(ids, (chunk) -> Collections.singletonList(
+                Metrics.timed("Attachments.getAttachmentsBySheet", () -> client.sheetResources().attachmentResources()
+                        .listAttachments(chunk.get(0), Constants.ALL_PAGES)).getData()), null);
+        Map<Long, List<Attachment>> bySheet = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); ++i) {
+            List<Attachment> attachments = lists.get(i);
+            bySheet.put(ids.get(i), attachments != null ? attachments : Collections.emptyList());
+        }
+        return bySheet;
+    }
+
     /**
      * converts a list of Attachment objects into a map keyed by whatever the keyMapper returns as the key
      */
@@ -67,16 +94,22 @@ public class Attachments {
 
     public static Attachment addSheetAttachment(Smartsheet client, long sheetId, String name, File source)
             throws FileNotFoundException, SmartsheetException {
-        return client.sheetResources().attachmentResources().attachFile(sheetId, source, name);
+        Attachment attachment = Metrics.timed("Attachments.addSheetAttachment",
+                () -> client.sheetResources().attachmentResources().attachFile(sheetId, source, name));
+        Metrics.transferred("Attachments.addSheetAttachment", ApiMetrics.Unit.BYTES, source.length());
+        return attachment;
     }
 
     public static Attachment addSheetRowAttachment(Smartsheet client, long sheetId, long rowId, String name, File source)
             throws FileNotFoundException, SmartsheetException {
-        return client.sheetResources().rowResources().attachmentResources().attachFile(sheetId, rowId, source, name);
+        Attachment attachment = Metrics.timed("Attachments.addSheetRowAttachment",
+                () -> client.sheetResources().rowResources().attachmentResources().attachFile(sheetId, rowId, source, name));
+        Metrics.transferred("Attachments.addSheetRowAttachment", ApiMetrics.Unit.BYTES, source.length());
+        return attachment;
     }
 
     /**
-     * downloads an attachment to a local file
+     * downloads an attachment to a local file (always; see {@link AttachmentCache} to download each attachment once)
      *
      * @param dir        the directory into which to place the file (name based on name of attachment)
      * @param attachment the attachment to download
@@ -87,12 +120,46 @@ public class Attachments {
     public static long downloadToDir(File dir, Attachment attachment, Consumer<File> fileCb) throws IOException {
         File file = new File(dir, attachment.getName());
         fileCb.accept(file);
-        try (FileOutputStream fos = new FileOutputStream(file);
-             InputStream is = new URL(Preconditions.checkNotNull(attachment.getUrl())).openStream()) {
-            return ByteStreams.copy(is, fos);
+        try {
+            long bytes = Metrics.timed("Attachments.downloadToDir", () -> {
+                try (FileOutputStream fos = new FileOutputStream(file);
+                     InputStream is = new URL(Preconditions.checkNotNull(attachment.getUrl())).openStream()) {
+                    return ByteStreams.copy(is, fos);
+                }
+            });
+            Metrics.transferred("Attachments.downloadToDir", ApiMetrics.Unit.BYTES, bytes);
+            return bytes;
+        } catch (SmartsheetException e) {
+            throw new IllegalStateException("should be impossible", e);   // no API call is made
         }
     }
 
+    /**
+     * downloads many attachments to a directory concurrently (resuming partial files and skipping complete ones)
+     *
+     * @param sheetId     the sheet the attachments belong to (used to fetch download URLs the attachments lack)
+     * @param attachments the attachments to download (e.g. from {@link #getAttachmentMap})
+     * @param dir         the directory into which to place the files (named based on name of attachment)
+     * @return the outcome of each download plus aggregate throughput
+     * @throws IOException if the directory can't be created
+     */
+    public static AttachmentDownloader.Report downloadAllToDir(Smartsheet client, long sheetId,
+                                                               Collection<Attachment> attachments, File dir)
+            throws IOException, InterruptedException {
+        return new AttachmentDownloader(client).download(sheetId, attachments, dir.toPath(), null);
+    }
+
+    /**
+     * uploads many files or streams as sheet or row attachments concurrently (retrying transient failures)
+     *
+     * @param sources what to upload and where (e.g. {@link AttachmentUploader.Source#of})
+     * @return the outcome of each upload plus aggregate throughput
+     */
+    public static AttachmentUploader.Report uploadAll(Smartsheet client, Collection<AttachmentUploader.Source> sources)
+            throws InterruptedException {
+        return new AttachmentUploader(client).upload(sources, null);
+    }
+
     public static <K> String toString(Map<K, Attachment> attachmentMap) {
         StringBuilder buf = new StringBuilder(attachmentMap.size() * 100);
         for (Map.Entry<K, Attachment> entry : attachmentMap.entrySet()) {
@@ -0,0 +1,294 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.smartsheet.api.SmartsheetException;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * splits a list of items into chunks and makes one API call per chunk with bounded concurrency.
+ * results (and callbacks) are delivered in input order; a failed chunk doesn't stop the other chunks.
+ * <p>
+ * by default chunks are sent one at a time. concurrency is opt-in (see {@link #of}) as the API rejects concurrent
+ * writes to the same sheet (error 4004), rows placed with toTop/toBottom land in the order their chunks finish and a
+ * row's parentId/siblingId may refer to a row in a chunk that hasn't been added yet.
+ */
+@Slf4j
+public class BatchRunner {
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+    public static final int DEFAULT_PARALLELISM = 1;
+
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("smartsheet-batch-%d").build());
+    private static final BatchRunner DEFAULT = new BatchRunner(DEFAULT_CHUNK_SIZE, DEFAULT_PARALLELISM, SHARED_EXECUTOR);
+
+    /**
+     * the API call to make for a single chunk of items
+     */
+    @FunctionalInterface
+    public interface ChunkCall<T, R> {
+        List<R> call(List<T> chunk) throws SmartsheetException;
+    }
+
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    /**
+     * @param chunkSize   - max number of items sent in a single API call
+     * @param parallelism - max number of chunks in flight at once (1 runs every chunk on the calling thread)
+     * @param executor    - runs the chunks when parallelism is greater than 1
+     */
+    public BatchRunner(int chunkSize, int parallelism, @Nonnull ExecutorService executor) {
+        Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive: %s", chunkSize);
+        Preconditions.checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.executor = Preconditions.checkNotNull(executor, "executor");
+    }
+
+    /**
+     * @return the runner used by {@link Sheets#addRows} and {@link Sheets#updateRows} when none is specified; it sends
+     * one chunk at a time
+     */
+    public static BatchRunner defaults() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param parallelism - more than 1 only suits calls that don't write to the same sheet (or whose order doesn't
+     *                    matter and that the client retries on error 4004); see the class doc
+     */
+    public static BatchRunner of(int chunkSize, int parallelism) {
+        return new BatchRunner(chunkSize, parallelism, SHARED_EXECUTOR);
+    }
+
+    /**
+     * @return the daemon thread-pool shared by runners that aren't given their own executor
+     */
+    public static ExecutorService sharedExecutor() {
+        return SHARED_EXECUTOR;
+    }
+
+    /**
+     * @return this runner if its chunks are no bigger than maxChunkSize, otherwise one like it with smaller chunks
+     * (e.g. for calls whose ids go in the url)
+     */
+    public BatchRunner withMaxChunkSize(int maxChunkSize) {
+        return chunkSize <= maxChunkSize ? this : new BatchRunner(maxChunkSize, parallelism, executor);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * run all chunks; throw if any of them failed
+     *
+     * @param items - the items to send
+     * @param call  - the API call made for each chunk
+     * @param cb    - optional callback given the results of each successful chunk (in chunk order, on the calling thread)
+     * @return the results of all chunks in input order
+     * @throws BatchException if any chunk failed; the exception carries the results of the chunks that succeeded
+     */
+    @Nonnull
+    public <T, R> List<R> run(@Nonnull List<T> items, @Nonnull ChunkCall<T, R> call, Consumer<List<R>> cb)
+            throws BatchException {
+        Result<R> result = runAll(items, call, cb);
+        if (!result.isSuccess()) {
+            throw new BatchException(result);
+        }
+        return result.getResults();
+    }
+
+    /**
+     * run all chunks and report per-chunk failures rather than throwing. if the calling thread is interrupted the
+     * chunks that already finished are still reported; the rest are cancelled and fail with an InterruptedException
+     * as their cause (one that was in flight may still have reached the API so its outcome is unknown).
+     */
+    @Nonnull
+    public <T, R> Result<R> runAll(@Nonnull List<T> items, @Nonnull ChunkCall<T, R> call, Consumer<List<R>> cb) {
+        List<List<T>> chunks = Lists.partition(items, chunkSize);
+        Result<R> result = new Result<>(chunks.size());
+        if (parallelism == 1 || chunks.size() <= 1) {
+            for (int i = 0; i < chunks.size(); ++i) {
+                List<T> chunk = chunks.get(i);
+                List<R> chunkResults;
+                try {
+                    chunkResults = call.call(chunk);
+                } catch (SmartsheetException | RuntimeException e) {
+                    result.fail(i, i * chunkSize, chunk, e);
+                    continue;
+                }
+                result.add(chunkResults, cb);
+            }
+            return result;
+        }
+
+        // sliding window of in-flight chunks; always wait on the oldest so results are delivered in order
+        List<Future<List<R>>> futures = new ArrayList<>(Collections.nCopies(chunks.size(), null));
+        int next = 0;
+        for (int i = 0; i < chunks.size(); ++i) {
+            while (next < chunks.size() && next - i < parallelism) {
+                List<T> chunk = chunks.get(next);
+                futures.set(next++, executor.submit(() -> call.call(chunk)));
+            }
+            List<T> chunk = chunks.get(i);
+            List<R> chunkResults;
+            try {
+                chunkResults = futures.get(i).get();
+            } catch (ExecutionException e) {
+                result.fail(i, i * chunkSize, chunk, e.getCause());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                interrupted(result, chunks, futures, i, e, cb);
+                break;
+            }
+            result.add(chunkResults, cb);
+        }
+        return result;
+    }
+
+    /**
+     * stop waiting: chunks that already finished are reported as usual (so their items aren't mistaken for unsent);
+     * the rest are cancelled and reported as failed with the interrupt as their cause
+     */
+    private <T, R> void interrupted(Result<R> result, List<List<T>> chunks, List<Future<List<R>>> futures, int from,
+                                    InterruptedException interrupt, Consumer<List<R>> cb) {
+        for (int j = from; j < chunks.size(); ++j) {
+            Future<List<R>> future = futures.get(j);
+            if (future != null && future.isDone() && !future.isCancelled()) {
+                try {
+                    result.add(future.get(), cb);
+                } catch (ExecutionException e) {
+                    result.fail(j, j * chunkSize, chunks.get(j), e.getCause());
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("should be impossible; the future is done", e);
+                }
+                continue;
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+            result.fail(j, j * chunkSize, chunks.get(j), interrupt);
+        }
+    }
+
+    /**
+     * the outcome of a batch run; results of successful chunks in input order plus a failure per failed chunk
+     */
+    public static class Result<R> {
+        private final int chunkCount;
+        private final List<R> results = new ArrayList<>();
+        private final List<ChunkFailure> failures = new ArrayList<>();
+
+        Result(int chunkCount) {
+            this.chunkCount = chunkCount;
+        }
+
+        private void add(List<R> chunkResults, Consumer<List<R>> cb) {
+            results.addAll(chunkResults);
+            if (cb != null) {
+                cb.accept(chunkResults);
+            }
+        }
+
+        private void fail(int index, int offset, List<?> chunk, Throwable cause) {
+            log.warn("chunk {} ({} items at offset {}) failed - {}", index, chunk.size(), offset, cause.toString());
+            failures.add(new ChunkFailure(index, offset, chunk, cause));
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        public List<R> getResults() {
+            return results;
+        }
+
+        public List<ChunkFailure> getFailures() {
+            return failures;
+        }
+
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+    }
+
+    /**
+     * a chunk whose API call failed (or returned an unexpected result)
+     */
+    public static class ChunkFailure {
+        private final int index;
+        private final int offset;
+        private final List<?> items;
+        private final Throwable cause;
+
+        ChunkFailure(int index, int offset, List<?> items, Throwable cause) {
+            this.index = index;
+            this.offset = offset;
+            this.items = items;
+            this.cause = cause;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the position in the original list of the first item in the chunk
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        public List<?> getItems() {
+            return items;
+        }
+
+        public Throwable getCause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return "{chunk:" + index + ", offset:" + offset + ", size:" + items.size() + ", cause:" + cause + "}";
+        }
+    }
+
+    /**
+     * thrown by {@link #run} when any chunk failed
+     */
+    public static class BatchException extends SmartsheetException {
+        private final transient Result<?> result;
+
+        public BatchException(@Nonnull Result<?> result) {
+            super(String.format("%d of %d chunks failed: %s", result.getFailures().size(), result.getChunkCount(),
+                    result.getFailures()), result.getFailures().isEmpty() ? null : result.getFailures().get(0).getCause());
+            this.result = result;
+        }
+
+        /**
+         * @return the partial results (of the chunks that succeeded) and the failures
+         */
+        public Result<?> getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableListMultimap;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Folder;
+import com.smartsheet.api.models.Sheet;
+import com.smartsheet.api.models.Workspace;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a name index of the sheets, (home) folders and workspaces visible to a client; the listing calls are made once and
+ * repeated only when the TTL expires or {@link #invalidate()} is called. names aren't unique so each lookup returns
+ * every match (in listing order).
+ * <p>
+ * once the catalog is loaded lookups keep working through refreshes: the first lookup after the TTL expires refreshes
+ * it while the other threads keep reading the previous listing, and if that refresh fails the previous listing is
+ * kept (and the refresh retried a minute, or the TTL if shorter, later) rather than failing the lookup.
+ */
+@Slf4j
+public class Catalog {
+    private static final long FAILED_REFRESH_RETRY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Smartsheet client;
+    private final long ttlNanos;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Index index;   // immutable; replaced (never modified) by a refresh
+
+    /**
+     * @param client - client to use to access the Smartsheet API
+     * @param ttl    - how long a listing is used before it's refreshed
+     */
+    public Catalog(@Nonnull Smartsheet client, @Nonnull Duration ttl) {
+        Preconditions.checkArgument(!ttl.isNegative(), "ttl must not be negative: %s", ttl);
+        this.client = client;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Nonnull
+    public List<Sheet> findSheets(@Nonnull String name) throws SmartsheetException {
+        return current().sheets.get(name);
+    }
+
+    @Nonnull
+    public List<Folder> findFolders(@Nonnull String name) throws SmartsheetException {
+        return current().folders.get(name);
+    }
+
+    @Nonnull
+    public List<Workspace> findWorkspaces(@Nonnull String name) throws SmartsheetException {
+        return current().workspaces.get(name);
+    }
+
+    @Nonnull
+    public Optional<Folder> findFirstFolder(@Nonnull String name) throws SmartsheetException {
+        return findFolders(name).stream().findFirst();
+    }
+
+    @Nonnull
+    public Optional<Workspace> findFirstWorkspace(@Nonnull String name) throws SmartsheetException {
+        return findWorkspaces(name).stream().findFirst();
+    }
+
+    /**
+     * discard the current listing; the next lookup waits for a fresh one
+     */
+    public void invalidate() {
+        index = null;
+    }
+
+    /**
+     * reload the listing now
+     *
+     * @throws SmartsheetException if anything goes wrong talking to the API
+     */
+    public void refresh() throws SmartsheetException {
+        refreshLock.lock();
+        try {
+            index = load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Index current() throws SmartsheetException {
+        Index current = index;
+        if (current != null && !current.isExpired(ttlNanos)) {
+            return current;
+        }
+        if (current != null) {
+            // expired; one thread refreshes while the rest keep using the old listing
+            if (refreshLock.tryLock()) {
+                try {
+                    if (index == current) {
+                        index = load();
+                    }
+                } catch (SmartsheetException | RuntimeException e) {
+                    log.warn("catalog refresh failed; keeping the previous listing - {}", e.toString());
+                    if (index == current) {     // unless invalidated meanwhile
+                        index = current.retryLater(ttlNanos, FAILED_REFRESH_RETRY_NANOS);
+                    }
+                } finally {
+                    refreshLock.unlock();
+                }
+            }
+            Index refreshed = index;
+            return refreshed != null ? refreshed : current;
+        }
+        // nothing loaded (yet or since invalidate) so everybody waits
+        refreshLock.lock();
+        try {
+            if (index == null) {
+                index = load();
+            }
+            return index;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Index load() throws SmartsheetException {
+        long start = System.nanoTime();
+        ImmutableListMultimap.Builder<String, Sheet> sheets = ImmutableListMultimap.builder();
+        Metrics.timed("Catalog.load", () -> client.sheetResources()
+                        .listSheets(Constants.ALL_SOURCES, Constants.NO_PAGINATION, null)).getData()
+                .forEach(sheet -> {
+                    if (sheet.getName() != null) sheets.put(sheet.getName(), sheet);
+                });
+        ImmutableListMultimap.Builder<String, Folder> folders = ImmutableListMultimap.builder();
+        Metrics.timed("Catalog.load", () -> client.homeResources().folderResources()
+                        .listFolders(Constants.ALL_PAGES)).getData()
+                .forEach(folder -> {
+                    if (folder.getName() != null) folders.put(folder.getName(), folder);
+                });
+        ImmutableListMultimap.Builder<String, Workspace> workspaces = ImmutableListMultimap.builder();
+        Metrics.timed("Catalog.load", () -> client.workspaceResources()
+                        .listWorkspaces(Constants.ALL_PAGES)).getData()
+                .forEach(workspace -> {
+                    if (workspace.getName() != null) workspaces.put(workspace.getName(), workspace);
+                });
+        Index loaded = new Index(sheets.build(), folders.build(), workspaces.build(), System.nanoTime());
+        log.debug("catalog loaded {} sheets, {} folders, {} workspaces in {}ms", loaded.sheets.size(),
+                loaded.folders.size(), loaded.workspaces.size(), (loaded.loadedAtNanos - start) / 1_000_000);
+        return loaded;
+    }
+
+    private static class Index {
+        final ImmutableListMultimap<String, Sheet> sheets;
+        final ImmutableListMultimap<String, Folder> folders;
+        final ImmutableListMultimap<String, Workspace> workspaces;
+        final long loadedAtNanos;
+
+        Index(ImmutableListMultimap<String, Sheet> sheets, ImmutableListMultimap<String, Folder> folders,
+              ImmutableListMultimap<String, Workspace> workspaces, long loadedAtNanos) {
+            this.sheets = sheets;
+            this.folders = folders;
+            this.workspaces = workspaces;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAtNanos >= ttlNanos;
+        }
+
+        /**
+         * @return the same listing but expiring retryNanos (at most ttlNanos) from now
+         */
+        Index retryLater(long ttlNanos, long retryNanos) {
+            return new Index(sheets, folders, workspaces, System.nanoTime() - ttlNanos + Math.min(ttlNanos, retryNanos));
+        }
+    }
+}
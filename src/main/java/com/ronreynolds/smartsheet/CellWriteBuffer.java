@@ -0,0 +1,295 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Row;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * write-behind buffer for single-cell writes (rather than one {@link Cells#setCellValue} call per cell). writes are
+ * coalesced per sheet and row (the last write to a cell wins) and sent as batched {@link Sheets#updateRows} calls when
+ * a sheet has maxRowsPerFlush rows pending or its oldest pending write is maxDelayMillis old.
+ * <p>
+ * flushes run one at a time (in write order) so a later value is never overwritten by an earlier one. once
+ * maxPendingCells cells are buffered or being sent, {@link #write} blocks until a flush frees room.
+ */
+@Slf4j
+public class CellWriteBuffer implements Closeable {
+    public static final int DEFAULT_MAX_ROWS_PER_FLUSH = BatchRunner.DEFAULT_CHUNK_SIZE;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1_000;
+    public static final int DEFAULT_MAX_PENDING_CELLS = 50_000;
+
+    private final Smartsheet client;
+    private final int maxRowsPerFlush;
+    private final long maxDelayMillis;
+    private final int maxPendingCells;
+    private final BatchRunner batcher;
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("smartsheet-cell-writer-%d").build());
+
+    // guarded by this
+    private final Map<Long, SheetBuffer> sheets = new HashMap<>();
+    private int pendingCells;
+    private boolean closed;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder cellsSent = new LongAdder();
+    private final LongAdder cellsFailed = new LongAdder();
+
+    public CellWriteBuffer(@Nonnull Smartsheet client) {
+        this(client, DEFAULT_MAX_ROWS_PER_FLUSH, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_PENDING_CELLS,
+                BatchRunner.defaults());
+    }
+
+    /**
+     * @param maxRowsPerFlush - a sheet is flushed once this many of its rows have pending writes
+     * @param maxDelayMillis  - a sheet is flushed this long after its first pending write
+     * @param maxPendingCells - writes block while this many cells are buffered or being sent
+     * @param batcher         - chunking & parallelism of each flush's updateRows
+     */
+    public CellWriteBuffer(@Nonnull Smartsheet client, int maxRowsPerFlush, long maxDelayMillis, int maxPendingCells,
+                           @Nonnull BatchRunner batcher) {
+        Preconditions.checkArgument(maxRowsPerFlush > 0, "maxRowsPerFlush must be positive: %s", maxRowsPerFlush);
+        Preconditions.checkArgument(maxDelayMillis >= 0, "maxDelayMillis must not be negative: %s", maxDelayMillis);
+        Preconditions.checkArgument(maxPendingCells > 0, "maxPendingCells must be positive: %s", maxPendingCells);
+        this.client = Preconditions.checkNotNull(client, "client");
+        this.maxRowsPerFlush = maxRowsPerFlush;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxPendingCells = maxPendingCells;
+        this.batcher = Preconditions.checkNotNull(batcher, "batcher");
+    }
+
+    /**
+     * buffer a cell write; blocks while the buffer is full
+     *
+     * @return completes with the updated row once the write (or a later write to the same cell that replaced it) is
+     * sent; fails with the exception of its chunk if that failed
+     * @throws IllegalStateException if the buffer is closed
+     */
+    @Nonnull
+    public CompletableFuture<Row> write(long sheetId, long rowId, long columnId, Object value)
+            throws InterruptedException {
+        CompletableFuture<Row> future = new CompletableFuture<>();
+        synchronized (this) {
+            SheetBuffer buffer;
+            while (true) {
+                Preconditions.checkState(!closed, "buffer is closed");
+                buffer = sheets.get(sheetId);
+                PendingCell pending = buffer != null ? buffer.find(rowId, columnId) : null;
+                if (pending != null) {
+                    pending.value = value;
+                    pending.futures.add(future);
+                    writes.increment();
+                    coalesced.increment();
+                    return future;
+                }
+                if (pendingCells < maxPendingCells) {
+                    break;
+                }
+                flushAllLocked();
+                wait();
+            }
+
+            if (buffer == null) {
+                SheetBuffer newBuffer = new SheetBuffer(sheetId);
+                sheets.put(sheetId, newBuffer);
+                flusher.schedule(() -> flushIfCurrent(newBuffer), maxDelayMillis, TimeUnit.MILLISECONDS);
+                buffer = newBuffer;
+            }
+            PendingCell pending = new PendingCell(value);
+            pending.futures.add(future);
+            buffer.rows.computeIfAbsent(rowId, (id) -> new LinkedHashMap<>()).put(columnId, pending);
+            ++buffer.cellCount;
+            ++pendingCells;
+            writes.increment();
+            if (buffer.rows.size() >= maxRowsPerFlush) {
+                sheets.remove(sheetId);
+                SheetBuffer full = buffer;
+                flusher.execute(() -> send(full));
+            }
+        }
+        return future;
+    }
+
+    /**
+     * send everything buffered now
+     *
+     * @return completes once every write made before this call has been sent (or failed; see the write's future)
+     */
+    @Nonnull
+    public synchronized CompletableFuture<Void> flush() {
+        flushAllLocked();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (flusher.isShutdown()) {
+            done.complete(null);
+        } else {
+            flusher.execute(() -> done.complete(null));    // flushes run in order so this runs after them
+        }
+        return done;
+    }
+
+    /**
+     * flush, wait for everything to be sent and stop; later writes throw IllegalStateException
+     */
+    @Override
+    public void close() {
+        CompletableFuture<Void> flushed;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flushed = flush();
+            closed = true;
+            notifyAll();    // blocked writers fail rather than wait forever
+        }
+        flushed.join();
+        flusher.shutdownNow();  // drops the timers of buffers that are already sent
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    /**
+     * @return writes that replaced a pending write to the same cell (and so weren't sent separately)
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of (per-sheet) batches sent
+     */
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getCellsSent() {
+        return cellsSent.sum();
+    }
+
+    public long getCellsFailed() {
+        return cellsFailed.sum();
+    }
+
+    /**
+     * @return cells buffered or being sent
+     */
+    public synchronized int getPendingCells() {
+        return pendingCells;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{writes:%d, coalesced:%d, flushes:%d, cellsSent:%d, cellsFailed:%d, pending:%d}",
+                getWrites(), getCoalesced(), getFlushes(), getCellsSent(), getCellsFailed(), getPendingCells());
+    }
+
+    private void flushAllLocked() {
+        for (SheetBuffer buffer : sheets.values()) {
+            flusher.execute(() -> send(buffer));
+        }
+        sheets.clear();
+    }
+
+    // the max-delay timer; the buffer may already have been flushed (for size or by flush())
+    private void flushIfCurrent(SheetBuffer buffer) {
+        synchronized (this) {
+            if (sheets.get(buffer.sheetId) != buffer) {
+                return;
+            }
+            sheets.remove(buffer.sheetId);
+        }
+        send(buffer);
+    }
+
+    // runs on the flusher thread
+    private void send(SheetBuffer buffer) {
+        List<Row> rows = new ArrayList<>(buffer.rows.size());
+        for (Map.Entry<Long, Map<Long, PendingCell>> row : buffer.rows.entrySet()) {
+            List<Cell> cells = new ArrayList<>(row.getValue().size());
+            row.getValue().forEach((columnId, pending) ->
+                    cells.add(new Cell(columnId).setValue(pending.value).setStrict(true)));
+            rows.add(new Row(row.getKey()).setCells(cells));
+        }
+
+        Map<Long, Row> updated = new HashMap<>();
+        Map<Long, Throwable> failed = new HashMap<>();
+        try {
+            Sheets.updateRows(client, buffer.sheetId, rows, null, batcher).forEach((row) -> updated.put(row.getId(), row));
+        } catch (BatchRunner.BatchException e) {
+            e.getResult().getResults().forEach((row) -> updated.put(((Row) row).getId(), (Row) row));
+            for (BatchRunner.ChunkFailure failure : e.getResult().getFailures()) {
+                failure.getItems().forEach((row) -> failed.put(((Row) row).getId(), failure.getCause()));
+            }
+        } catch (SmartsheetException | RuntimeException e) {
+            rows.forEach((row) -> failed.put(row.getId(), e));
+        }
+        flushes.increment();
+
+        for (Map.Entry<Long, Map<Long, PendingCell>> row : buffer.rows.entrySet()) {
+            Row updatedRow = updated.get(row.getKey());
+            Throwable cause = updatedRow == null ? failed.getOrDefault(row.getKey(),
+                    new IllegalStateException("row " + row.getKey() + " not returned by update")) : null;
+            (cause == null ? cellsSent : cellsFailed).add(row.getValue().size());
+            for (PendingCell pending : row.getValue().values()) {
+                for (CompletableFuture<Row> future : pending.futures) {
+                    if (cause == null) {
+                        future.complete(updatedRow);
+                    } else {
+                        future.completeExceptionally(cause);
+                    }
+                }
+            }
+        }
+        if (!failed.isEmpty()) {
+            log.warn("failed to write {} of {} rows to sheet {}", failed.size(), rows.size(), buffer.sheetId);
+        }
+        synchronized (this) {
+            pendingCells -= buffer.cellCount;
+            notifyAll();
+        }
+    }
+
+    private static class SheetBuffer {
+        private final long sheetId;
+        private final Map<Long, Map<Long, PendingCell>> rows = new LinkedHashMap<>();
+        private int cellCount;
+
+        SheetBuffer(long sheetId) {
+            this.sheetId = sheetId;
+        }
+
+        PendingCell find(long rowId, long columnId) {
+            Map<Long, PendingCell> row = rows.get(rowId);
+            return row != null ? row.get(columnId) : null;
+        }
+    }
+
+    private static class PendingCell {
+        private Object value;
+        private final List<CompletableFuture<Row>> futures = new ArrayList<>(1);
+
+        PendingCell(Object value) {
+            this.value = value;
+        }
+    }
+}
@@ -4,12 +4,15 @@ import com.google.common.base.Preconditions;
 import com.smartsheet.api.Smartsheet;
 import com.smartsheet.api.SmartsheetException;
 import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
 import com.smartsheet.api.models.Row;
 import com.smartsheet.api.models.Sheet;
 
 import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,6 +26,8 @@ import java.util.stream.Stream;
  */
 public class Cells {
     /**
+     * one API call per cell; for many cell changes use a {@link CellWriteBuffer}
+     *
      * @param client   - client to use to access the Smartsheet API
      * @param sheetId  - ID of sheet into which we want to set the cell value
      * @param rowId    - ID of the row in the sheet into which we want to set the cell value
@@ -37,7 +42,9 @@ public class Cells {
                 .setColumnId(columnId).setValue(value).setStrict(true).setHyperlink(null).setLinkInFromCell(null));
         Row updatedRow = new Row(rowId);
         updatedRow.setCells(cell);
-        List<Row> updatedRows = client.sheetResources().rowResources().updateRows(sheetId, Collections.singletonList(updatedRow));
+        List<Row> updatedRows = Metrics.timed("Cells.setCellValue", () -> client.sheetResources().rowResources()
+                .updateRows(sheetId, Collections.singletonList(updatedRow)));
+        Metrics.transferred("Cells.setCellValue", ApiMetrics.Unit.CELLS, 1);
         if (updatedRows == null || updatedRows.size() != 1) {
             throw new RuntimeException(String.format("update FAILED - row:%d column:%d value:'%s'", rowId, columnId, value));
         }
@@ -52,7 +59,24 @@ public class Cells {
      * @return the Cell in the Row for the columnId or Optional.empty if none is found
      */
     public static Optional<Cell> getCellForColumn(Row row, long columnId) {
-        return row.getCells().stream().filter(cell -> cell.getColumnId() == columnId).findFirst();
+        for (Cell cell : row.getCells()) {
+            if (cell.getColumnId() == columnId) {
+                return Optional.of(cell);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * get the Cell for the specified column the provided row using a prebuilt index of the sheet's columns
+     *
+     * @param row         is the row from which we want a Cell
+     * @param columnId    is the column id for the Cell we want
+     * @param columnIndex is the index of the columns of the sheet the row came from
+     * @return the Cell in the Row for the columnId or Optional.empty if none is found
+     */
+    public static Optional<Cell> getCellForColumn(Row row, long columnId, @Nonnull ColumnIndex columnIndex) {
+        return columnIndex.getCell(row, columnId);
     }
 
     /**
@@ -67,6 +91,44 @@ public class Cells {
         return getCellForColumn(row, columnId).stream().anyMatch(cellMatch);
     }
 
+    /**
+     * like {@link #rowHasMatchingCell(Row, long, Predicate)} but using a prebuilt index of the sheet's columns
+     */
+    public static boolean rowHasMatchingCell(Row row, long columnId, Predicate<? super Cell> cellMatch,
+                                             @Nonnull ColumnIndex columnIndex) {
+        Cell cell = columnIndex.findCell(row, columnId);
+        return cell != null && cellMatch.test(cell);
+    }
+
+    /**
+     * @param sheet     is the (loaded) sheet whose rows we want to filter
+     * @param columnId  is the column of the cells we want to check
+     * @param cellMatch is the match criteria for the cell in each row
+     * @return the rows whose cell for the column matches (in sheet order)
+     */
+    @Nonnull
+    public static List<Row> filterRows(@Nonnull Sheet sheet, long columnId, @Nonnull Predicate<? super Cell> cellMatch) {
+        return filterRows(sheet, columnId, cellMatch, ColumnIndex.of(sheet));
+    }
+
+    /**
+     * like {@link #filterRows(Sheet, long, Predicate)} but reusing an index of the sheet's columns
+     */
+    @Nonnull
+    public static List<Row> filterRows(@Nonnull Sheet sheet, long columnId, @Nonnull Predicate<? super Cell> cellMatch,
+                                       @Nonnull ColumnIndex columnIndex) {
+        // resolve the position once; each row is then a List.get() (plus the fallback scan for out-of-order rows)
+        int position = columnIndex.positionOf(columnId);
+        List<Row> matches = new ArrayList<>();
+        for (Row row : sheet.getRows()) {
+            Cell cell = columnIndex.findCell(row, position, columnId);
+            if (cell != null && cellMatch.test(cell)) {
+                matches.add(row);
+            }
+        }
+        return matches;
+    }
+
     /**
      * set the values of many cells in a single row given a map of column ID and cell value
      *
@@ -85,25 +147,63 @@ public class Cells {
                         .map(entry -> new Cell(entry.getKey()).setValue(entry.getValue()).setStrict(true)
                                 .setHyperlink(null).setLinkInFromCell(null))
                         .collect(Collectors.toList()));
-        List<Row> updatedRows = client.sheetResources().rowResources().updateRows(sheetId, List.of(updatedRow));
+        List<Row> updatedRows = Metrics.timed("Cells.setCellValues",
+                () -> client.sheetResources().rowResources().updateRows(sheetId, List.of(updatedRow)));
+        Metrics.transferred("Cells.setCellValues", ApiMetrics.Unit.CELLS, updatedRow.getCells().size());
         Preconditions.checkState(updatedRows != null && updatedRows.size() == 1, "failed to update row");
         return updatedRows;
     }
 
     /**
+     * like {@link #setCellValues(Smartsheet, long, long, Map)} but only values that differ from originalRow's are sent
+     * (and no call is made if none do)
+     *
+     * @param originalRow - the row as it is in the sheet (with its cells)
+     * @param diff        - does the comparison and counts the skipped cells
+     * @return the updated row or an empty list if nothing changed
+     */
+    public static List<Row> setCellValues(@Nonnull Smartsheet client, long sheetId, @Nonnull Row originalRow,
+                                          Map<Long, Object> columnValueMap, @Nonnull RowDiff diff)
+            throws SmartsheetException {
+        Row desiredRow = new Row(originalRow.getId())
+                .setCells(columnValueMap.entrySet().stream()
+                        .map(entry -> new Cell(entry.getKey()).setValue(entry.getValue()).setStrict(true)
+                                .setHyperlink(null).setLinkInFromCell(null))
+                        .collect(Collectors.toList()));
+        Row changes = diff.diff(originalRow, desiredRow);
+        if (changes == null) {
+            return Collections.emptyList();
+        }
+        Map<Long, Object> changedValues = new LinkedHashMap<>();
+        for (Cell cell : changes.getCells()) {
+            changedValues.put(cell.getColumnId(), cell.getValue());
+        }
+        return setCellValues(client, sheetId, originalRow.getId(), changedValues);
+    }
+
+    /**
+     * for scanning large sheets see {@link SheetSnapshot} which doesn't allocate a Map per row
+     *
      * @param sheet - sheet from which we get the Column info
      * @return a Stream of row cell values mapped by column title
      */
     public static Stream<Map<String, Object>> getCellValuesByNameStream(@Nonnull Sheet sheet) {
         List<Row> rowList = sheet.getRows();
-        // for each row get the list of cells
+        List<Column> columns = sheet.getColumns();
+        // resolve titles once rather than building a Map of cells for every row
+        Map<Long, String> titleByColumnId = new HashMap<>(columns.size() * 2);
+        columns.forEach(column -> titleByColumnId.put(column.getId(), column.getTitle()));
         return rowList.stream()
-                .map(Cells::cellsByColumnId)
-                .map(cellMap -> {
-                    Map<String, Object> cellValueMap = new HashMap<>();
-                    for (var column : sheet.getColumns()) {
-                        Cell cell = cellMap.get(column.getId());
-                        cellValueMap.put(column.getTitle(), cell != null ? cell.getValue() : null);
+                .map(row -> {
+                    Map<String, Object> cellValueMap = new HashMap<>(columns.size() * 2);
+                    for (Column column : columns) {
+                        cellValueMap.put(column.getTitle(), null);
+                    }
+                    for (Cell cell : row.getCells()) {
+                        String title = titleByColumnId.get(cell.getColumnId());
+                        if (title != null) {
+                            cellValueMap.put(title, cell.getValue());
+                        }
                     }
                     return cellValueMap;
                 });
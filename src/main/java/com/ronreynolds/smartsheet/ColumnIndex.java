@@ -0,0 +1,93 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * maps column ids to the position of their cells within a row; built once per sheet from sheet.getColumns().
+ * rows normally have one cell per column in column order so a lookup is a List.get(); rows whose cells aren't in that
+ * order (e.g. fetched with nonexistent-cells excluded) fall back to a linear scan.
+ */
+public class ColumnIndex {
+    private final long[] columnIds;
+    private final Map<Long, Integer> positionById;
+
+    private ColumnIndex(List<Column> columns) {
+        this.columnIds = new long[columns.size()];
+        this.positionById = new HashMap<>(columns.size() * 2);
+        for (int i = 0; i < columnIds.length; ++i) {
+            columnIds[i] = columns.get(i).getId();
+            positionById.put(columnIds[i], i);
+        }
+    }
+
+    @Nonnull
+    public static ColumnIndex of(@Nonnull Sheet sheet) {
+        return new ColumnIndex(sheet.getColumns());
+    }
+
+    @Nonnull
+    public static ColumnIndex of(@Nonnull List<Column> columns) {
+        return new ColumnIndex(columns);
+    }
+
+    public int size() {
+        return columnIds.length;
+    }
+
+    /**
+     * @return the expected position of the column's cell within a row or -1 if the column isn't in the sheet
+     */
+    public int positionOf(long columnId) {
+        return positionById.getOrDefault(columnId, -1);
+    }
+
+    /**
+     * @param row      - row from which we want a Cell
+     * @param position - expected position of the cell (from {@link #positionOf}); -1 goes straight to the slow path
+     * @param columnId - column id of the cell we want
+     * @return the cell or null if the row has none for the column
+     */
+    public Cell findCell(@Nonnull Row row, int position, long columnId) {
+        List<Cell> cells = row.getCells();
+        if (cells == null) {
+            return null;
+        }
+        if (position >= 0 && position < cells.size()) {
+            Cell cell = cells.get(position);
+            Long cellColumnId = cell.getColumnId();
+            if (cellColumnId != null && cellColumnId == columnId) {
+                return cell;
+            }
+        }
+        // cells aren't in column order (or the column isn't known); do it the slow way
+        for (int i = 0; i < cells.size(); ++i) {
+            Cell cell = cells.get(i);
+            Long cellColumnId = cell.getColumnId();
+            if (cellColumnId != null && cellColumnId == columnId) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the cell or null if the row has none for the column
+     */
+    public Cell findCell(@Nonnull Row row, long columnId) {
+        return findCell(row, positionOf(columnId), columnId);
+    }
+
+    @Nonnull
+    public Optional<Cell> getCell(@Nonnull Row row, long columnId) {
+        return Optional.ofNullable(findCell(row, columnId));
+    }
+}
@@ -1,5 +1,6 @@
 package com.ronreynolds.smartsheet;
 
+import com.google.common.base.Preconditions;
 import com.smartsheet.api.models.Column;
 import com.smartsheet.api.models.Sheet;
 
@@ -18,4 +19,14 @@ public class Columns {
     public static Map<String, Column> buildColumnByNameMap(@Nonnull Sheet sheet) {
         return sheet.getColumns().stream().collect(Collectors.toMap(Column::getTitle, Function.identity()));
     }
+
+    /**
+     * @return the id of the column with the title
+     * @throws IllegalArgumentException if the sheet has no such column
+     */
+    public static long getColumnId(@Nonnull Sheet sheet, @Nonnull String title) {
+        Column column = buildColumnByNameMap(sheet).get(title);
+        Preconditions.checkArgument(column != null, "no column '%s' in sheet %s", title, sheet.getId());
+        return column.getId();
+    }
 }
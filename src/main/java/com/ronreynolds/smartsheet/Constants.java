@@ -32,6 +32,12 @@ public class Constants {
             SheetInclusion.COLUMN_TYPE,
             SheetInclusion.SOURCE);
     public static final EnumSet<SheetInclusion> NO_SHEET_INCLUSIONS = null;
+    // the inclusions that add to each row (rather than to the sheet) for fetching pages of rows
+    public static final EnumSet<SheetInclusion> ROW_INCLUSIONS = EnumSet.of(
+            SheetInclusion.FORMAT,
+            SheetInclusion.OBJECT_VALUE,
+            SheetInclusion.ROW_PERMALINK,
+            SheetInclusion.ROW_WRITER_INFO);
 
     public static final EnumSet<SheetCopyInclusion> ALL_SHEET_COPY_INCLUSIONS = EnumSet.allOf(SheetCopyInclusion.class);
 
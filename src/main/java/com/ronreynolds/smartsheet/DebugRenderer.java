@@ -0,0 +1,183 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.PagedResult;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * the engine behind {@link Sheets#toString}, {@link Rows#toString} and {@link PagedResults#toString}; writes straight
+ * to any Appendable (StringBuilder, Writer, ...) without intermediate format strings. row and cell counts can be
+ * limited so huge sheets can be logged safely.
+ */
+public class DebugRenderer {
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private static final DebugRenderer UNLIMITED = new DebugRenderer(NO_LIMIT, NO_LIMIT);
+
+    private final int maxRows;
+    private final int maxCellsPerRow;
+
+    /**
+     * @param maxRows        - max number of rows (or paged-result items) rendered; the rest are summarized
+     * @param maxCellsPerRow - max number of cells rendered per row; the rest are summarized
+     */
+    public DebugRenderer(int maxRows, int maxCellsPerRow) {
+        Preconditions.checkArgument(maxRows >= 0, "maxRows must not be negative: %s", maxRows);
+        Preconditions.checkArgument(maxCellsPerRow >= 0, "maxCellsPerRow must not be negative: %s", maxCellsPerRow);
+        this.maxRows = maxRows;
+        this.maxCellsPerRow = maxCellsPerRow;
+    }
+
+    /**
+     * @return a renderer without limits (the default for the toString methods)
+     */
+    public static DebugRenderer unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * the sheet's own attributes (no columns or rows)
+     */
+    public void appendSheet(@Nonnull Appendable out, @Nonnull Sheet sheet) throws IOException {
+        String delim = Sheets.LINE_DELIMITER;
+        out.append("{{id:").append(String.valueOf(sheet.getId())).append(delim)
+                .append(" name:'").append(sheet.getName()).append('\'').append(delim)
+                .append(" rowCount:").append(String.valueOf(sheet.getTotalRowCount())).append(delim)
+                .append(" version:").append(String.valueOf(sheet.getVersion())).append(delim)
+                .append(" owner:").append(sheet.getOwner()).append('(').append(String.valueOf(sheet.getOwnerId()))
+                .append(')').append(delim)
+                .append(" source:").append(String.valueOf(sheet.getSource())).append(delim)
+                .append(" accessLevel:").append(String.valueOf(sheet.getAccessLevel())).append(delim)
+                .append(" readOnly:").append(String.valueOf(sheet.getReadOnly())).append(delim)
+                .append(" link:").append(sheet.getPermalink()).append(delim)
+                .append(" ganttEnabled:").append(String.valueOf(sheet.getGanttEnabled())).append(delim)
+                .append(" dependEnabled:").append(String.valueOf(sheet.getDependenciesEnabled())).append(delim)
+                .append(" resMgmntEnabled:").append(String.valueOf(sheet.getResourceManagementEnabled())).append(delim)
+                .append(" favorite:").append(String.valueOf(sheet.isFavorite())).append(delim)
+                .append('}').append(System.lineSeparator());
+    }
+
+    public void appendColumns(@Nonnull Appendable out, @Nonnull List<Column> columns) throws IOException {
+        out.append(System.lineSeparator()).append("columns:{num:").append(String.valueOf(columns.size()))
+                .append(" data:{").append(System.lineSeparator());
+        for (Column col : columns) {
+            out.append(String.valueOf(col.getId())).append(":'").append(col.getTitle()).append("',")
+                    .append(Sheets.LINE_DELIMITER);
+        }
+        out.append("}}");
+    }
+
+    /**
+     * the cell values of each row; rows are consumed (and written) one at a time so this can be fed by a
+     * {@link RowPager} or flushed to a Writer as it goes
+     *
+     * @param totalRows - total number of rows (for the truncation summary) or -1 if unknown
+     */
+    public void appendRowContent(@Nonnull Appendable out, @Nonnull Iterator<Row> rows, int totalRows) throws IOException {
+        out.append("{rows:{");
+        int count = 0;
+        while (rows.hasNext()) {
+            if (count == maxRows) {
+                appendTruncated(out, totalRows >= 0 ? totalRows - count : -1, "rows");
+                break;
+            }
+            Row row = rows.next();
+            out.append(String.valueOf(row.getId())).append(":[");
+            List<Cell> cells = row.getCells();
+            if (cells != null) {
+                int numCells = Math.min(cells.size(), maxCellsPerRow);
+                for (int i = 0; i < numCells; ++i) {
+                    out.append(String.valueOf(cells.get(i).getValue())).append(',').append(Sheets.LINE_DELIMITER);
+                }
+                if (numCells < cells.size()) {
+                    appendTruncated(out, cells.size() - numCells, "cells");
+                }
+            }
+            out.append("],\n");
+            ++count;
+        }
+        out.append("}}\n");
+    }
+
+    public void appendRow(@Nonnull Appendable out, @Nonnull Row row) throws IOException {
+        out.append("{id:").append(String.valueOf(row.getId()))
+                .append(", rowNum:").append(String.valueOf(row.getRowNumber()))
+                .append(", sheetId:").append(String.valueOf(row.getSheetId()))
+                .append(", parentId:").append(String.valueOf(row.getParentId()))
+                .append(", parentRowNum:").append(String.valueOf(row.getParentRowNumber()))
+                .append(", siblingId:").append(String.valueOf(row.getSiblingId()))
+                .append(", permalink:").append(row.getPermalink())
+                .append(", version:").append(String.valueOf(row.getVersion()))
+                .append(", created:{by:").append(String.valueOf(row.getCreatedBy()))
+                .append(", at:").append(String.valueOf(row.getCreatedAt())).append('}')
+                .append(", modified:{by:").append(String.valueOf(row.getModifiedBy()))
+                .append(", at:").append(String.valueOf(row.getModifiedAt())).append('}')
+                .append(", above:").append(String.valueOf(row.getAbove()))
+                .append(", toBottom:").append(String.valueOf(row.getToBottom()))
+                .append(", toTop:").append(String.valueOf(row.getToTop()))
+                .append(", indent:").append(String.valueOf(row.getIndent()))
+                .append(", outdent:").append(String.valueOf(row.getOutdent()))
+                .append(", accessLevel:").append(String.valueOf(row.getAccessLevel()))
+                .append(", format:").append(row.getFormat())
+                .append(", condFormat:").append(row.getConditionalFormat());
+        out.append(", columns:");
+        appendList(out, row.getColumns(), NO_LIMIT);
+        out.append(", cells:");
+        appendList(out, row.getCells(), maxCellsPerRow);
+        out.append(", attachments:");
+        appendList(out, row.getAttachments(), NO_LIMIT);
+        out.append(", discussions:");
+        appendList(out, row.getDiscussions(), NO_LIMIT);
+    }
+
+    public <T> void appendPagedResult(@Nonnull Appendable out, @Nonnull PagedResult<T> result) throws IOException {
+        out.append("{pageNum:").append(String.valueOf(result.getPageNumber()))
+                .append(", pageSize:").append(String.valueOf(result.getPageSize()))
+                .append(", totalCount:").append(String.valueOf(result.getTotalCount()))
+                .append(", totalPages:").append(String.valueOf(result.getTotalPages()))
+                .append(", data:");
+        appendList(out, result.getData(), maxRows);
+        out.append('}');
+    }
+
+    /**
+     * same format as List.toString() but written element-by-element and limited to maxItems
+     */
+    private static void appendList(Appendable out, List<?> list, int maxItems) throws IOException {
+        if (list == null) {
+            out.append("null");
+            return;
+        }
+        out.append('[');
+        int numItems = Math.min(list.size(), maxItems);
+        for (int i = 0; i < numItems; ++i) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(String.valueOf(list.get(i)));
+        }
+        if (numItems < list.size()) {
+            if (numItems > 0) {
+                out.append(", ");
+            }
+            appendTruncated(out, list.size() - numItems, "items");
+        }
+        out.append(']');
+    }
+
+    private static void appendTruncated(Appendable out, int remaining, String what) throws IOException {
+        out.append("...(");
+        if (remaining >= 0) {
+            out.append(String.valueOf(remaining)).append(' ');
+        }
+        out.append("more ").append(what).append(')');
+    }
+}
@@ -0,0 +1,330 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Folder;
+import com.smartsheet.api.models.Home;
+import com.smartsheet.api.models.Report;
+import com.smartsheet.api.models.Sheet;
+import com.smartsheet.api.models.Sight;
+import com.smartsheet.api.models.Workspace;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * walks a workspace (or home) and all its nested folders, populating sibling folders concurrently, and produces a
+ * flat index of folder path to the sheets/reports/sights in that folder.
+ * <p>
+ * folders waiting to be fetched are queued and drained by at most maxConcurrency workers per crawl (so a big workspace
+ * doesn't start a thread per folder); the workers run on virtual threads when the JVM has them (21+) and on the shared
+ * batch pool otherwise. concurrent crawls on one crawler share its limit on concurrent API calls.
+ */
+@Slf4j
+public class FolderCrawler {
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final int UNLIMITED_DEPTH = Integer.MAX_VALUE;
+
+    private static final ExecutorService DEFAULT_EXECUTOR = virtualThreadExecutorIfAvailable();
+
+    private final Smartsheet client;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final int maxDepth;
+    private final ExecutorService executor;
+    private final Set<Crawl> inProgress = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param client         - client to use to access the Smartsheet API
+     * @param maxConcurrency - max number of folders fetched at once (by all crawls of this crawler)
+     * @param maxDepth       - folders nested deeper than this aren't fetched (the root is depth 0)
+     * @param executor       - runs the fetches; null for the default (virtual threads if available)
+     */
+    public FolderCrawler(@Nonnull Smartsheet client, int maxConcurrency, int maxDepth, ExecutorService executor) {
+        Preconditions.checkArgument(maxConcurrency > 0, "maxConcurrency must be positive: %s", maxConcurrency);
+        Preconditions.checkArgument(maxDepth >= 0, "maxDepth must not be negative: %s", maxDepth);
+        this.client = client;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxDepth = maxDepth;
+        this.executor = executor != null ? executor : DEFAULT_EXECUTOR;
+    }
+
+    public FolderCrawler(@Nonnull Smartsheet client) {
+        this(client, DEFAULT_MAX_CONCURRENCY, UNLIMITED_DEPTH, null);
+    }
+
+    /**
+     * @return index of every folder in the workspace by path ("/workspace/folder/sub-folder"), sorted by path
+     * @throws SmartsheetException   if any folder can't be fetched
+     * @throws CancellationException if {@link #cancel()} was called during the crawl
+     */
+    @Nonnull
+    public SortedMap<String, Entry> crawl(@Nonnull Workspace workspace) throws SmartsheetException, InterruptedException {
+        if (workspace.getFolders() == null) {
+            Workspace data = Metrics.timed("FolderCrawler.getWorkspace", () -> client.workspaceResources()
+                    .getWorkspace(workspace.getId(), false, Constants.ALL_SOURCES));
+            workspace.setFolders(data.getFolders());
+            workspace.setSheets(data.getSheets());
+            workspace.setReports(data.getReports());
+            workspace.setSights(data.getSights());
+        }
+        Crawl crawl = new Crawl();
+        crawl.visit("/" + workspace.getName(), workspace, 0);
+        return crawl.await();
+    }
+
+    /**
+     * @return index of the home folder (path "/") and every folder & workspace beneath it, sorted by path
+     * @throws SmartsheetException   if any folder can't be fetched
+     * @throws CancellationException if {@link #cancel()} was called during the crawl
+     */
+    @Nonnull
+    public SortedMap<String, Entry> crawlHome() throws SmartsheetException, InterruptedException {
+        Home home = Metrics.timed("FolderCrawler.getHome", () -> client.homeResources().getHome(Constants.ALL_SOURCES));
+        Crawl crawl = new Crawl();
+        crawl.add(new Entry("/", null, 0, home.getSheets(), home.getReports(), home.getSights()));
+        if (maxDepth > 0) {
+            for (Folder folder : nonNull(home.getFolders())) {
+                crawl.submit("/" + folder.getName(), folder, 1);
+            }
+            for (Workspace workspace : nonNull(home.getWorkspaces())) {
+                crawl.submit("/" + workspace.getName(), workspace, 1);
+            }
+        }
+        return crawl.await();
+    }
+
+    /**
+     * stop the crawls in progress; folders being fetched finish but no more are started. later crawls aren't affected.
+     */
+    public void cancel() {
+        for (Crawl crawl : inProgress) {
+            crawl.done.cancel(false);
+        }
+    }
+
+    /**
+     * the contents of one folder
+     */
+    public static class Entry {
+        private final String path;
+        private final Folder folder;
+        private final int depth;
+        private final List<Sheet> sheets;
+        private final List<Report> reports;
+        private final List<Sight> sights;
+
+        Entry(String path, Folder folder, int depth, List<Sheet> sheets, List<Report> reports, List<Sight> sights) {
+            this.path = path;
+            this.folder = folder;
+            this.depth = depth;
+            this.sheets = nonNull(sheets);
+            this.reports = nonNull(reports);
+            this.sights = nonNull(sights);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the folder (or workspace); null for home
+         */
+        public Folder getFolder() {
+            return folder;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public List<Sheet> getSheets() {
+            return sheets;
+        }
+
+        public List<Report> getReports() {
+            return reports;
+        }
+
+        public List<Sight> getSights() {
+            return sights;
+        }
+
+        @Override
+        public String toString() {
+            return "{path:'" + path + "', sheets:" + sheets.size() + ", reports:" + reports.size() + ", sights:" +
+                    sights.size() + "}";
+        }
+    }
+
+    /**
+     * the state of a single crawl; every submitted folder is counted as pending until it (and its fan-out) is done
+     */
+    private class Crawl {
+        final Map<String, Entry> index = new ConcurrentHashMap<>();
+        final AtomicInteger pending = new AtomicInteger(1);   // the caller's own hold; released by await()
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger workers = new AtomicInteger();
+
+        Crawl() {
+            inProgress.add(this);
+        }
+
+        void submit(String path, Folder folder, int depth) {
+            pending.incrementAndGet();
+            queue.add(new Task(path, folder, depth));
+            startWorkerIfNeeded();
+        }
+
+        void startWorkerIfNeeded() {
+            while (true) {
+                int running = workers.get();
+                if (running >= maxConcurrency || queue.isEmpty()) {
+                    return;
+                }
+                if (workers.compareAndSet(running, running + 1)) {
+                    break;
+                }
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                workers.decrementAndGet();
+                done.completeExceptionally(e);
+            }
+        }
+
+        void drain() {
+            try {
+                for (Task task = queue.poll(); task != null; task = queue.poll()) {
+                    try {
+                        fetchAndVisit(task.path, task.folder, task.depth);
+                    } finally {
+                        release();
+                    }
+                }
+            } finally {
+                workers.decrementAndGet();
+            }
+            startWorkerIfNeeded();  // a folder may have been queued after our last poll while all workers were busy
+        }
+
+        void fetchAndVisit(String path, Folder folder, int depth) {
+            if (done.isDone()) {
+                return;
+            }
+            try {
+                permits.acquire();
+                try {
+                    if (done.isDone()) {
+                        return;
+                    }
+                    if (folder instanceof Workspace && folder.getFolders() == null) {
+                        Workspace data = Metrics.timed("FolderCrawler.getWorkspace", () -> client
+                                .workspaceResources().getWorkspace(folder.getId(), false, Constants.ALL_SOURCES));
+                        folder.setFolders(data.getFolders());
+                        folder.setSheets(data.getSheets());
+                        folder.setReports(data.getReports());
+                        folder.setSights(data.getSights());
+                    } else {
+                        Folders.populateIfNeeded(client, folder);
+                    }
+                } finally {
+                    permits.release();
+                }
+                visit(path, folder, depth);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done.completeExceptionally(e);
+            } catch (SmartsheetException | RuntimeException e) {
+                log.warn("failed to fetch folder {} ({}) - {}", path, folder.getId(), e.toString());
+                done.completeExceptionally(e);
+            }
+        }
+
+        void visit(String path, Folder folder, int depth) {
+            add(new Entry(path, folder, depth, folder.getSheets(), folder.getReports(), folder.getSights()));
+            if (depth < maxDepth) {
+                for (Folder child : nonNull(folder.getFolders())) {
+                    submit(path + "/" + child.getName(), child, depth + 1);
+                }
+            }
+        }
+
+        void add(Entry entry) {
+            // names aren't unique within a folder; keep both by qualifying the later one with its id
+            if (index.putIfAbsent(entry.getPath(), entry) != null) {
+                String path = entry.getPath() + "#" + entry.getFolder().getId();
+                index.put(path, new Entry(path, entry.folder, entry.depth, entry.sheets, entry.reports, entry.sights));
+            }
+        }
+
+        void release() {
+            if (pending.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+
+        SortedMap<String, Entry> await() throws SmartsheetException, InterruptedException {
+            release();
+            try {
+                done.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SmartsheetException) {
+                    throw (SmartsheetException) e.getCause();
+                }
+                if (e.getCause() instanceof InterruptedException) {
+                    throw (InterruptedException) e.getCause();
+                }
+                throw new IllegalStateException("crawl failed", e.getCause());
+            } finally {
+                inProgress.remove(this);
+            }
+            return new TreeMap<>(index);
+        }
+    }
+
+    private static class Task {
+        private final String path;
+        private final Folder folder;
+        private final int depth;
+
+        Task(String path, Folder folder, int depth) {
+            this.path = path;
+            this.folder = folder;
+            this.depth = depth;
+        }
+    }
+
+    private static <T> List<T> nonNull(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+
+    private static ExecutorService virtualThreadExecutorIfAvailable() {
+        try {
+            // Java 21+; looked up reflectively since we build for 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return BatchRunner.sharedExecutor();
+        }
+    }
+}
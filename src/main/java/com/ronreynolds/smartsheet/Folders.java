@@ -15,8 +15,8 @@ import java.util.stream.Collectors;
 public class Folders {
     public static Optional<Folder> findFirstFolderByName(@Nonnull Smartsheet api, @Nonnull String name)
             throws SmartsheetException {
-        return api.homeResources().folderResources()
-                .listFolders(Constants.ALL_PAGES)
+        return Metrics.timed("Folders.findByName", () -> api.homeResources().folderResources()
+                        .listFolders(Constants.ALL_PAGES))
                 .getData()
                 .stream()
                 .filter(ws -> name.equals(ws.getName()))
@@ -25,19 +25,36 @@ public class Folders {
 
     public static List<Folder> findFoldersByName(@Nonnull Smartsheet api, @Nonnull String name)
             throws SmartsheetException {
-        return api.homeResources().folderResources()
-                .listFolders(Constants.ALL_PAGES)
+        return Metrics.timed("Folders.findByName", () -> api.homeResources().folderResources()
+                        .listFolders(Constants.ALL_PAGES))
                 .getData()
                 .stream()
                 .filter(ws -> name.equals(ws.getName()))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * @param catalog - if non-null the name is looked up in the catalog rather than by listing all folders
+     */
+    public static Optional<Folder> findFirstFolderByName(@Nonnull Smartsheet api, @Nonnull String name, Catalog catalog)
+            throws SmartsheetException {
+        return catalog != null ? catalog.findFirstFolder(name) : findFirstFolderByName(api, name);
+    }
+
+    /**
+     * @param catalog - if non-null the name is looked up in the catalog rather than by listing all folders
+     */
+    public static List<Folder> findFoldersByName(@Nonnull Smartsheet api, @Nonnull String name, Catalog catalog)
+            throws SmartsheetException {
+        return catalog != null ? catalog.findFolders(name) : findFoldersByName(api, name);
+    }
+
     public static <T extends Folder> T populateIfNeeded(@Nonnull Smartsheet api, @Nonnull T folder)
             throws SmartsheetException {
         // it seems that if the folder is populated then the folders list is non-null
         if (folder.getFolders() == null) {
-            Folder folderData = api.folderResources().getFolder(folder.getId(), Constants.ALL_SOURCES);
+            Folder folderData = Metrics.timed("Folders.populateIfNeeded",
+                    () -> api.folderResources().getFolder(folder.getId(), Constants.ALL_SOURCES));
             if (folderData != null) {
                 // even tho the ref within an Optional is immutable our Folder type is not
                 folder.setFavorite(folderData.getFavorite());
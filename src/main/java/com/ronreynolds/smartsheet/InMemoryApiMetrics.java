@@ -0,0 +1,321 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ApiMetrics} kept in memory (per operation counters plus a latency histogram); {@link #snapshot()} for the
+ * numbers or {@link #dump(Appendable)} for a table of them.
+ */
+public class InMemoryApiMetrics implements ApiMetrics {
+    private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordCall(@Nonnull String operation, long durationNanos, @Nullable Throwable error) {
+        Operation op = operation(operation);
+        op.calls.increment();
+        op.latency.record(durationNanos);
+        if (error != null) {
+            op.errors.computeIfAbsent(error.getClass().getSimpleName(), (type) -> new LongAdder()).increment();
+        }
+    }
+
+    @Override
+    public void recordTransfer(@Nonnull String operation, @Nonnull Unit unit, long amount) {
+        operation(operation).transfers[unit.ordinal()].add(amount);
+    }
+
+    @Override
+    public void recordRetry(@Nonnull String operation) {
+        operation(operation).retries.increment();
+    }
+
+    /**
+     * @return the current numbers of each operation (sorted by name)
+     */
+    @Nonnull
+    public SortedMap<String, OperationSnapshot> snapshot() {
+        SortedMap<String, OperationSnapshot> snapshot = new TreeMap<>();
+        operations.forEach((name, op) -> snapshot.put(name, op.snapshot(name)));
+        return snapshot;
+    }
+
+    /**
+     * forget everything recorded so far
+     */
+    public void reset() {
+        operations.clear();
+    }
+
+    /**
+     * write a line per operation with its counts and latency percentiles (in millis)
+     */
+    public void dump(@Nonnull Appendable out) throws IOException {
+        out.append(String.format("%-36s %8s %6s %6s %9s %9s %9s %9s %9s %10s %10s %12s%n", "operation", "calls",
+                "errors", "retry", "mean", "p50", "p90", "p99", "max", "rows", "cells", "bytes"));
+        for (OperationSnapshot op : snapshot().values()) {
+            out.append(String.format("%-36s %8d %6d %6d %9.2f %9.2f %9.2f %9.2f %9.2f %10d %10d %12d%n", op.getName(),
+                    op.getCalls(), op.getErrorCount(), op.getRetries(), op.getMeanMillis(), op.getPercentileMillis(50),
+                    op.getPercentileMillis(90), op.getPercentileMillis(99), op.getMaxMillis(), op.getRows(),
+                    op.getCells(), op.getBytes()));
+            if (!op.getErrors().isEmpty()) {
+                out.append(String.format("%-36s errors:%s%n", "", op.getErrors()));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        try {
+            dump(buf);
+        } catch (IOException e) {
+            throw new IllegalStateException("should be impossible", e);
+        }
+        return buf.toString();
+    }
+
+    private Operation operation(String name) {
+        Operation op = operations.get(name);
+        return op != null ? op : operations.computeIfAbsent(name, (n) -> new Operation());
+    }
+
+    private static class Operation {
+        final LongAdder calls = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder[] transfers = new LongAdder[Unit.values().length];
+        final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+        final Histogram latency = new Histogram();
+
+        Operation() {
+            for (int i = 0; i < transfers.length; ++i) {
+                transfers[i] = new LongAdder();
+            }
+        }
+
+        OperationSnapshot snapshot(String name) {
+            Map<String, Long> errorCounts = new TreeMap<>();
+            errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+            Map<Unit, Long> transferred = new EnumMap<>(Unit.class);
+            for (Unit unit : Unit.values()) {
+                transferred.put(unit, transfers[unit.ordinal()].sum());
+            }
+            return new OperationSnapshot(name, calls.sum(), retries.sum(), errorCounts, transferred, latency.copy());
+        }
+    }
+
+    /**
+     * the numbers of one operation at the time of {@link #snapshot()}
+     */
+    public static class OperationSnapshot {
+        private final String name;
+        private final long calls;
+        private final long retries;
+        private final Map<String, Long> errors;
+        private final Map<Unit, Long> transferred;
+        private final Histogram latency;
+
+        OperationSnapshot(String name, long calls, long retries, Map<String, Long> errors, Map<Unit, Long> transferred,
+                          Histogram latency) {
+            this.name = name;
+            this.calls = calls;
+            this.retries = retries;
+            this.errors = Collections.unmodifiableMap(errors);
+            this.transferred = Collections.unmodifiableMap(transferred);
+            this.latency = latency;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        /**
+         * @return number of failed calls by (simple) exception class name
+         */
+        public Map<String, Long> getErrors() {
+            return errors;
+        }
+
+        public long getErrorCount() {
+            long count = 0;
+            for (long errorCount : errors.values()) {
+                count += errorCount;
+            }
+            return count;
+        }
+
+        public long getRows() {
+            return transferred.get(Unit.ROWS);
+        }
+
+        public long getCells() {
+            return transferred.get(Unit.CELLS);
+        }
+
+        public long getBytes() {
+            return transferred.get(Unit.BYTES);
+        }
+
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public double getMeanMillis() {
+            return toMillis(latency.getMean());
+        }
+
+        public double getMaxMillis() {
+            return toMillis(latency.getMax());
+        }
+
+        /**
+         * @param percentile - 0 to 100
+         */
+        public double getPercentileMillis(double percentile) {
+            return toMillis(latency.getValueAtPercentile(percentile));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{%s calls:%d errors:%s retries:%d mean:%.2fms p99:%.2fms max:%.2fms rows:%d cells:%d bytes:%d}",
+                    name, calls, errors, retries, getMeanMillis(), getPercentileMillis(99), getMaxMillis(), getRows(),
+                    getCells(), getBytes());
+        }
+
+        private static double toMillis(double nanos) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * a log-linear histogram of non-negative longs (HDR-style): values below 2^SUB_BUCKET_BITS are counted exactly
+     * and larger ones in 2^(SUB_BUCKET_BITS-1) linear buckets per power of 2, so any recorded value is reported within
+     * ~1.6% of its actual value. values above {@link #MAX_VALUE} (~9.7 hours in nanos) are counted as MAX_VALUE.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;          // 128 exact values
+        private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;    // 64 buckets per power of 2
+        private static final int MAX_EXPONENT = 45;
+        public static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+        private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+        private final AtomicLongArray counts;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+        public Histogram() {
+            this.counts = new AtomicLongArray(BUCKET_COUNT);
+        }
+
+        public void record(long value) {
+            long v = Math.min(Math.max(value, 0), MAX_VALUE);
+            counts.incrementAndGet(bucketIndex(v));
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+            min.accumulate(v);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getMin() {
+            return getCount() == 0 ? 0 : min.get();
+        }
+
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * @param percentile - 0 to 100
+         * @return the highest value equivalent (within the precision) to the value at the percentile; 0 if empty
+         */
+        public long getValueAtPercentile(double percentile) {
+            Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "percentile must be 0-100: %s", percentile);
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestEquivalentValue(i), getMax());
+                }
+            }
+            return getMax();
+        }
+
+        Histogram copy() {
+            Histogram copy = new Histogram();
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                long n = counts.get(i);
+                if (n != 0) {
+                    copy.counts.set(i, n);
+                }
+            }
+            copy.count.add(count.sum());
+            copy.sum.add(sum.sum());
+            copy.max.accumulate(max.get());
+            copy.min.accumulate(min.get());
+            return copy;
+        }
+
+        static int bucketIndex(long value) {
+            if (value < SUB_BUCKET_COUNT) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);                   // >= SUB_BUCKET_BITS
+            int shift = exponent - (SUB_BUCKET_BITS - 1);
+            int subBucket = (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;        // top bits minus the leading 1
+            return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT + subBucket;
+        }
+
+        static long highestEquivalentValue(int index) {
+            if (index < SUB_BUCKET_COUNT) {
+                return index;
+            }
+            int offset = index - SUB_BUCKET_COUNT;
+            int exponent = offset / HALF_SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+            int shift = exponent - (SUB_BUCKET_BITS - 1);
+            long top = (offset % HALF_SUB_BUCKET_COUNT) + HALF_SUB_BUCKET_COUNT;
+            return ((top + 1) << shift) - 1;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Row;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * the process-wide {@link ApiMetrics} plus the timing helpers the wrappers use to report to it. while the NOOP
+ * metrics are installed (the default) calls go straight through without reading the clock or counting anything.
+ */
+public final class Metrics {
+    /**
+     * the operation retries are attributed to when a request wasn't made through one of the helpers
+     */
+    public static final String UNKNOWN_OPERATION = "http";
+
+    private static volatile ApiMetrics current = ApiMetrics.NOOP;
+    // lets the http-client attribute retries to the helper whose call it's making (SDK calls are synchronous)
+    private static final ThreadLocal<String> currentOperation = new ThreadLocal<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * @param metrics - where measurements go from now on; null to stop recording
+     */
+    public static void install(@Nullable ApiMetrics metrics) {
+        current = metrics != null ? metrics : ApiMetrics.NOOP;
+    }
+
+    @Nonnull
+    public static ApiMetrics get() {
+        return current;
+    }
+
+    public static boolean isEnabled() {
+        return current != ApiMetrics.NOOP;
+    }
+
+    /**
+     * a call to the API; E covers a checked exception other than SmartsheetException (e.g. IOException)
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws SmartsheetException, E;
+    }
+
+    /**
+     * time the call and record it (and what it threw) against operation
+     */
+    public static <T, E extends Exception> T timed(@Nonnull String operation, @Nonnull Call<T, E> call)
+            throws SmartsheetException, E {
+        ApiMetrics metrics = current;
+        if (metrics == ApiMetrics.NOOP) {
+            return call.call();
+        }
+        String outerOperation = currentOperation.get();
+        currentOperation.set(operation);
+        long start = System.nanoTime();
+        Throwable error = null;
+        try {
+            return call.call();
+        } catch (Throwable t) {
+            error = t;
+            throw t;
+        } finally {
+            metrics.recordCall(operation, System.nanoTime() - start, error);
+            if (outerOperation != null) {
+                currentOperation.set(outerOperation);
+            } else {
+                currentOperation.remove();
+            }
+        }
+    }
+
+    public static void transferred(@Nonnull String operation, @Nonnull ApiMetrics.Unit unit, long amount) {
+        ApiMetrics metrics = current;
+        if (metrics != ApiMetrics.NOOP && amount > 0) {
+            metrics.recordTransfer(operation, unit, amount);
+        }
+    }
+
+    /**
+     * record the number of rows and the total number of cells in them
+     */
+    public static void rowsTransferred(@Nonnull String operation, @Nullable List<Row> rows) {
+        ApiMetrics metrics = current;
+        if (metrics == ApiMetrics.NOOP || rows == null || rows.isEmpty()) {
+            return;
+        }
+        long cells = 0;
+        for (Row row : rows) {
+            if (row.getCells() != null) {
+                cells += row.getCells().size();
+            }
+        }
+        metrics.recordTransfer(operation, ApiMetrics.Unit.ROWS, rows.size());
+        if (cells > 0) {
+            metrics.recordTransfer(operation, ApiMetrics.Unit.CELLS, cells);
+        }
+    }
+
+    /**
+     * a retry of the current thread's operation (see {@link #timed}) or {@link #UNKNOWN_OPERATION}
+     */
+    public static void retried() {
+        ApiMetrics metrics = current;
+        if (metrics != ApiMetrics.NOOP) {
+            String operation = currentOperation.get();
+            metrics.recordRetry(operation != null ? operation : UNKNOWN_OPERATION);
+        }
+    }
+}
@@ -2,14 +2,30 @@ package com.ronreynolds.smartsheet;
 
 import com.smartsheet.api.models.PagedResult;
 
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
 /**
  *
  */
 public class PagedResults {
     public static <T> String toString(PagedResult<T> result) {
-        String buf = "{pageNum:" + result.getPageNumber() + ", pageSize:" + result.getPageSize() +
-                ", totalCount:" + result.getTotalCount() + ", totalPages:" + result.getTotalPages() +
-                ", data:" + result.getData() + "}";
-        return buf;
+        StringBuilder buf = new StringBuilder();
+        try {
+            toString(buf, result, DebugRenderer.unlimited());
+        } catch (IOException e) {
+            throw new IllegalStateException("should be impossible", e);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * write the paged-result directly to out
+     *
+     * @param renderer - controls truncation of the page's data
+     */
+    public static <T> void toString(@Nonnull Appendable out, @Nonnull PagedResult<T> result,
+                                    @Nonnull DebugRenderer renderer) throws IOException {
+        renderer.appendPagedResult(out, result);
     }
 }
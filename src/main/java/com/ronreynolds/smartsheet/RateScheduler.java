@@ -0,0 +1,208 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * a token-bucket shared by every thread (and client) using the same API token. the rate backs off (halves) when the
+ * API throttles us and creeps back up with each successful call; interactive callers are always served before bulk
+ * callers waiting on the same bucket.
+ * <p>
+ * the Smartsheet API allows ~300 requests/minute per token.
+ */
+@Slf4j
+public class RateScheduler {
+    public static final double DEFAULT_REQUESTS_PER_MINUTE = 300;
+    public static final int DEFAULT_BURST = 10;
+
+    private static final double MIN_REQUESTS_PER_SECOND = 0.1;
+    private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public enum Priority {
+        /** reads a user is waiting on */
+        INTERACTIVE,
+        /** writes (and anything else that can wait) */
+        BULK
+    }
+
+    private final double maxRatePerSecond;
+    private final int burst;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final int[] waiting = new int[Priority.values().length];
+
+    // guarded by lock
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private long lastDecreaseNanos;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+
+    public RateScheduler() {
+        this(DEFAULT_REQUESTS_PER_MINUTE, DEFAULT_BURST);
+    }
+
+    /**
+     * @param requestsPerMinute - the max (and initial) rate
+     * @param burst             - max number of requests that can be made back-to-back after a quiet period
+     */
+    public RateScheduler(double requestsPerMinute, int burst) {
+        Preconditions.checkArgument(requestsPerMinute > 0, "requestsPerMinute must be positive: %s", requestsPerMinute);
+        Preconditions.checkArgument(burst > 0, "burst must be positive: %s", burst);
+        this.maxRatePerSecond = requestsPerMinute / 60;
+        this.burst = burst;
+        this.ratePerSecond = maxRatePerSecond;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+        this.lastDecreaseNanos = lastRefillNanos - DECREASE_INTERVAL_NANOS;
+    }
+
+    /**
+     * block until a request may be made
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(Priority priority) throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            waiting[priority.ordinal()]++;
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    boolean ourTurn = priority == Priority.INTERACTIVE || waiting[Priority.INTERACTIVE.ordinal()] == 0;
+                    if (now >= pausedUntilNanos && tokens >= 1 && ourTurn) {
+                        tokens -= 1;
+                        break;
+                    }
+                    long waitNanos;
+                    if (now < pausedUntilNanos) {
+                        waitNanos = pausedUntilNanos - now;
+                    } else if (tokens < 1) {
+                        waitNanos = (long) ((1 - tokens) / ratePerSecond * 1e9);
+                    } else {
+                        waitNanos = MIN_WAIT_NANOS;   // a token is free but an interactive caller gets it first
+                    }
+                    changed.awaitNanos(Math.max(waitNanos, MIN_WAIT_NANOS));
+                }
+            } finally {
+                waiting[priority.ordinal()]--;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        acquired.increment();
+        totalWaitNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * the API throttled us; halve the rate (at most once per second) and pause all callers
+     *
+     * @param retryAfterMillis - how long the API asked us to wait (or <= 0 if it didn't say)
+     */
+    public void onThrottled(long retryAfterMillis) {
+        throttled.increment();
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos >= DECREASE_INTERVAL_NANOS) {
+                ratePerSecond = Math.max(MIN_REQUESTS_PER_SECOND, ratePerSecond / 2);
+                lastDecreaseNanos = now;
+                log.info("throttled by API; rate reduced to {}/min", String.format("%.1f", ratePerSecond * 60));
+            }
+            long pauseNanos = retryAfterMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(retryAfterMillis)
+                    : (long) (1e9 / ratePerSecond);
+            pausedUntilNanos = Math.max(pausedUntilNanos, now + pauseNanos);
+            tokens = Math.min(tokens, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * a request succeeded; grow the rate back towards the max (by 1% of the max per success)
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            if (ratePerSecond < maxRatePerSecond) {
+                ratePerSecond = Math.min(maxRatePerSecond, ratePerSecond + maxRatePerSecond / 100);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the current (adapted) rate in requests/minute
+     */
+    public double getCurrentRate() {
+        lock.lock();
+        try {
+            return ratePerSecond * 60;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of callers currently waiting for permission to make a request
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            int depth = 0;
+            for (int count : waiting) {
+                depth += count;
+            }
+            return depth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum());
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquired.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{rate:%.1f/min, queueDepth:%d, acquired:%d, throttled:%d, avgWaitMs:%.1f}",
+                getCurrentRate(), getQueueDepth(), getAcquiredCount(), getThrottledCount(), getAverageWaitMillis());
+    }
+
+    private void refill(long now) {
+        // no tokens accrue while paused so we don't burst as soon as the pause ends
+        if (now > pausedUntilNanos) {
+            long from = Math.max(lastRefillNanos, pausedUntilNanos);
+            tokens = Math.min(burst, tokens + (now - from) / 1e9 * ratePerSecond);
+        }
+        lastRefillNanos = now;
+    }
+}
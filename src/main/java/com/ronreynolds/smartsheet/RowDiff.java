@@ -0,0 +1,238 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.CellLink;
+import com.smartsheet.api.models.Hyperlink;
+import com.smartsheet.api.models.Row;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * reduces an update to what actually differs from the original row so unchanged cells (and rows) aren't resent;
+ * resending them costs payload and creates cell-history entries and automation triggers for no change.
+ * <p>
+ * a desired row is compared to the original by:
+ * <ul>
+ *     <li>cells - value (numbers compare numerically; null and "" are equal), formula, format, hyperlink and
+ *     cell-link. attributes other than value that are null in the desired cell mean "leave as is". setting a value
+ *     on a cell that has a formula is always a change as it replaces the formula.</li>
+ *     <li>row attributes - format, expanded & locked (null means "leave as is")</li>
+ *     <li>location - parentId/siblingId/above are sent only if they differ from the original; toTop is dropped
+ *     for the first top-level row; toBottom, indent and outdent are always sent</li>
+ * </ul>
+ * counters accumulate over every row diffed by this instance (which is thread-safe) so the saving can be reported.
+ */
+public class RowDiff {
+    private final LongAdder rowsCompared = new LongAdder();
+    private final LongAdder rowsSkipped = new LongAdder();
+    private final LongAdder cellsCompared = new LongAdder();
+    private final LongAdder cellsSkipped = new LongAdder();
+
+    /**
+     * @param original - the row as it is in the sheet (with its cells)
+     * @param desired  - the row as it should be; only its non-null attributes and its cells are considered
+     * @return a row with the original's id and only what changed or null if nothing did
+     */
+    @Nullable
+    public Row diff(@Nonnull Row original, @Nonnull Row desired) {
+        rowsCompared.increment();
+        Row changes = new Row(original.getId());
+        boolean changed = diffLocation(original, desired, changes);
+        if (desired.getFormat() != null && !desired.getFormat().equals(original.getFormat())) {
+            changes.setFormat(desired.getFormat());
+            changed = true;
+        }
+        if (desired.isExpanded() != null && !desired.isExpanded().equals(original.isExpanded())) {
+            changes.setExpanded(desired.isExpanded());
+            changed = true;
+        }
+        if (desired.isLocked() != null && !desired.isLocked().equals(original.isLocked())) {
+            changes.setLocked(desired.isLocked());
+            changed = true;
+        }
+
+        List<Cell> changedCells = new ArrayList<>();
+        if (desired.getCells() != null && !desired.getCells().isEmpty()) {
+            Map<Long, Cell> originalCells = new HashMap<>();
+            if (original.getCells() != null) {
+                for (Cell cell : original.getCells()) {
+                    originalCells.put(cell.getColumnId(), cell);
+                }
+            }
+            for (Cell cell : desired.getCells()) {
+                cellsCompared.increment();
+                if (cellChanged(originalCells.get(cell.getColumnId()), cell)) {
+                    changedCells.add(cell);
+                } else {
+                    cellsSkipped.increment();
+                }
+            }
+        }
+        if (!changedCells.isEmpty()) {
+            changes.setCells(changedCells);
+            changed = true;
+        }
+        if (!changed) {
+            rowsSkipped.increment();
+            return null;
+        }
+        return changes;
+    }
+
+    /**
+     * diff each desired row against the original with the same id; desired rows without an id (or whose id isn't in
+     * originals) are returned as-is
+     *
+     * @return the rows that need updating (in the order of desired)
+     */
+    @Nonnull
+    public List<Row> diffAll(@Nonnull List<Row> originals, @Nonnull List<Row> desired) {
+        Map<Long, Row> originalsById = new HashMap<>(originals.size() * 2);
+        for (Row row : originals) {
+            originalsById.put(row.getId(), row);
+        }
+        List<Row> changes = new ArrayList<>(desired.size());
+        for (Row row : desired) {
+            Row original = row.getId() != null ? originalsById.get(row.getId()) : null;
+            if (original == null) {
+                changes.add(row);
+                continue;
+            }
+            Row change = diff(original, row);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    public long getRowsCompared() {
+        return rowsCompared.sum();
+    }
+
+    /**
+     * @return rows dropped because nothing in them changed
+     */
+    public long getRowsSkipped() {
+        return rowsSkipped.sum();
+    }
+
+    public long getCellsCompared() {
+        return cellsCompared.sum();
+    }
+
+    /**
+     * @return cells not sent because they already had the desired value
+     */
+    public long getCellsSkipped() {
+        return cellsSkipped.sum();
+    }
+
+    public long getCellsSent() {
+        return getCellsCompared() - getCellsSkipped();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{rows:{compared:%d, skipped:%d}, cells:{compared:%d, skipped:%d, sent:%d}}",
+                getRowsCompared(), getRowsSkipped(), getCellsCompared(), getCellsSkipped(), getCellsSent());
+    }
+
+    private static boolean diffLocation(Row original, Row desired, Row changes) {
+        if (Boolean.TRUE.equals(desired.getToTop())) {
+            boolean alreadyTop = original.getParentId() == null && Integer.valueOf(1).equals(original.getRowNumber());
+            if (!alreadyTop) {
+                changes.setToTop(true);
+                return true;
+            }
+            return false;
+        }
+        if (Boolean.TRUE.equals(desired.getToBottom())) {
+            changes.setToBottom(true);  // can't tell from the row alone whether it's already last
+            return true;
+        }
+        if (desired.getIndent() != null || desired.getOutdent() != null) {
+            changes.setIndent(desired.getIndent());
+            changes.setOutdent(desired.getOutdent());
+            return true;
+        }
+        boolean moved = (desired.getParentId() != null && !desired.getParentId().equals(original.getParentId()))
+                || (desired.getSiblingId() != null && !desired.getSiblingId().equals(original.getSiblingId()))
+                || Boolean.TRUE.equals(desired.getAbove());
+        if (moved) {
+            changes.setParentId(desired.getParentId());
+            changes.setSiblingId(desired.getSiblingId());
+            changes.setAbove(desired.getAbove());
+        }
+        return moved;
+    }
+
+    /**
+     * @param original - null if the row has no such cell (i.e. it's empty)
+     */
+    static boolean cellChanged(@Nullable Cell original, @Nonnull Cell desired) {
+        String originalFormula = original != null ? original.getFormula() : null;
+        if (desired.getFormula() != null) {
+            if (!desired.getFormula().equals(originalFormula)) {
+                return true;
+            }
+        } else if (originalFormula != null || !valuesEqual(original != null ? original.getValue() : null,
+                desired.getValue())) {
+            // a value replaces a formula even if it's the same as the formula's result
+            return true;
+        }
+        if (desired.getFormat() != null && !desired.getFormat().equals(original != null ? original.getFormat() : null)) {
+            return true;
+        }
+        if (desired.getHyperlink() != null
+                && !hyperlinksEqual(original != null ? original.getHyperlink() : null, desired.getHyperlink())) {
+            return true;
+        }
+        return desired.getLinkInFromCell() != null
+                && !cellLinksEqual(original != null ? original.getLinkInFromCell() : null, desired.getLinkInFromCell());
+    }
+
+    static boolean valuesEqual(Object a, Object b) {
+        if (isEmpty(a) || isEmpty(b)) {
+            return isEmpty(a) && isEmpty(b);
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue()) == 0;
+        }
+        return a.equals(b);
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null || (value instanceof String && ((String) value).isEmpty());
+    }
+
+    /**
+     * an empty Hyperlink (how a link is removed) equals no hyperlink
+     */
+    private static boolean hyperlinksEqual(Hyperlink a, Hyperlink b) {
+        boolean aEmpty = a == null || (a.getUrl() == null && a.getSheetId() == null && a.getReportId() == null
+                && a.getSightId() == null);
+        boolean bEmpty = b == null || (b.getUrl() == null && b.getSheetId() == null && b.getReportId() == null
+                && b.getSightId() == null);
+        if (aEmpty || bEmpty) {
+            return aEmpty && bEmpty;
+        }
+        return Objects.equals(a.getUrl(), b.getUrl()) && Objects.equals(a.getSheetId(), b.getSheetId())
+                && Objects.equals(a.getReportId(), b.getReportId()) && Objects.equals(a.getSightId(), b.getSightId());
+    }
+
+    private static boolean cellLinksEqual(CellLink a, CellLink b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Objects.equals(a.getSheetId(), b.getSheetId()) && Objects.equals(a.getRowId(), b.getRowId())
+                && Objects.equals(a.getColumnId(), b.getColumnId());
+    }
+}
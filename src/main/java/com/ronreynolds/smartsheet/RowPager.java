@@ -0,0 +1,170 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * iterates the rows of a sheet one page at a time so only a page of rows is on the heap at once.
+ * the sheet (with its columns but without rows) is fetched once up front and pages only ask for row-level inclusions
+ * (see {@link Constants#ROW_INCLUSIONS}); if given an executor the next page is fetched in the background while the
+ * current one is consumed.
+ */
+public class RowPager implements Iterator<Row>, Closeable {
+    private final Smartsheet client;
+    private final long sheetId;
+    private final int pageSize;
+    private final Executor prefetchExecutor;
+    private final Sheet sheet;
+
+    private Iterator<Row> current = Collections.emptyIterator();
+    private int nextPage = 1;
+    private int rowsFetched;
+    private boolean lastPage;
+    private boolean closed;
+    private CompletableFuture<Sheet> prefetched;
+
+    /**
+     * @param client           - client to use to access the Smartsheet API
+     * @param sheetId          - ID of the sheet whose rows we want
+     * @param pageSize         - number of rows fetched per API call
+     * @param prefetchExecutor - runs the fetch of the next page in the background; null to fetch on demand only
+     * @throws SmartsheetException if the sheet (sans rows) can't be fetched
+     */
+    public RowPager(@Nonnull Smartsheet client, long sheetId, int pageSize, Executor prefetchExecutor)
+            throws SmartsheetException {
+        Preconditions.checkArgument(pageSize > 0, "pageSize must be positive: %s", pageSize);
+        this.client = client;
+        this.sheetId = sheetId;
+        this.pageSize = pageSize;
+        this.prefetchExecutor = prefetchExecutor;
+        this.sheet = Sheets.getSheetNoRows(client, sheetId);
+    }
+
+    /**
+     * @return the sheet without rows (fetched once and shared by all pages)
+     */
+    @Nonnull
+    public Sheet getSheet() {
+        return sheet;
+    }
+
+    @Nonnull
+    public List<Column> getColumns() {
+        return sheet.getColumns() != null ? sheet.getColumns() : Collections.emptyList();
+    }
+
+    /**
+     * @return the number of rows fetched so far
+     */
+    public int getRowsFetched() {
+        return rowsFetched;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (lastPage || closed) {
+                return false;
+            }
+            nextPage();
+        }
+        return true;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * @return a lazy Stream of the remaining rows; closing the stream closes this pager
+     */
+    @Nonnull
+    public Stream<Row> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                false).onClose(this::close);
+    }
+
+    /**
+     * stops fetching pages (and cancels a prefetch in progress)
+     */
+    @Override
+    public void close() {
+        closed = true;
+        current = Collections.emptyIterator();
+        if (prefetched != null) {
+            prefetched.cancel(true);
+            prefetched = null;
+        }
+    }
+
+    private void nextPage() {
+        int page = nextPage++;
+        Sheet pageData;
+        if (prefetched != null) {
+            try {
+                pageData = prefetched.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException(String.format("failed to fetch page %d of sheet %d", page, sheetId),
+                        e.getCause());
+            } finally {
+                prefetched = null;
+            }
+        } else {
+            try {
+                pageData = fetchPage(page);
+            } catch (SmartsheetException e) {
+                throw new IllegalStateException(String.format("failed to fetch page %d of sheet %d", page, sheetId), e);
+            }
+        }
+
+        List<Row> rows = pageData.getRows() != null ? pageData.getRows() : Collections.emptyList();
+        rowsFetched += rows.size();
+        // the API returns the last page again when asked for a page past the end so we have to count
+        Integer totalRowCount = pageData.getTotalRowCount();
+        lastPage = rows.size() < pageSize || (totalRowCount != null && rowsFetched >= totalRowCount);
+        current = rows.iterator();
+
+        if (!lastPage && prefetchExecutor != null) {
+            int prefetchPage = nextPage;
+            prefetched = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fetchPage(prefetchPage);
+                } catch (SmartsheetException e) {
+                    throw new CompletionException(e);
+                }
+            }, prefetchExecutor);
+        }
+    }
+
+    private Sheet fetchPage(int page) throws SmartsheetException {
+        Sheet sheet = Metrics.timed("RowPager.fetchPage", () -> client.sheetResources().getSheet(sheetId,
+                Constants.ROW_INCLUSIONS, Constants.NO_OBJECT_EXCLUSIONS, Constants.ALL_ROW_IDS,
+                Constants.ALL_ROW_NUMBERS, Constants.ALL_COLUMN_IDS, pageSize, page));
+        if (sheet != null) {
+            Metrics.rowsTransferred("RowPager.fetchPage", sheet.getRows());
+        }
+        return sheet;
+    }
+}
@@ -0,0 +1,313 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * syncs records into a sheet by a key column (see {@link Sheets#upsertRows}): existing rows are indexed by their key
+ * value, records are partitioned into updates (key exists) and inserts (it doesn't) and, optionally, rows whose key
+ * isn't among the records are deleted. each partition is sent in batches; updates and inserts go first so a failure
+ * never leaves the sheet with rows deleted but their records unwritten. batches are sent one at a time (unless given
+ * a concurrent BatchRunner) so new rows are added at the bottom in record order.
+ * <p>
+ * keys compare by value with numbers compared numerically (so 5 and 5.0 are the same key); blank keys never match.
+ * if the sheet has several rows with the same key the top-most one is updated.
+ */
+@Slf4j
+public class RowUpsert {
+    private static final BatchRunner SEQUENTIAL = BatchRunner.of(BatchRunner.DEFAULT_CHUNK_SIZE, 1);
+
+    /**
+     * which record wins when several records have the same key
+     */
+    public enum DuplicatePolicy {
+        /** the first record with the key is used; later ones are reported as duplicates */
+        FIRST_WINS,
+        /** the last record with the key is used; earlier ones are reported as duplicates */
+        LAST_WINS,
+        /** duplicate keys are an error (IllegalArgumentException before any call is made) */
+        FAIL
+    }
+
+    public static class Options {
+        private DuplicatePolicy duplicatePolicy = DuplicatePolicy.FIRST_WINS;
+        private boolean deleteMissing;
+        private boolean skipUnchanged = true;
+        private BatchRunner batcher = SEQUENTIAL;
+
+        public static Options defaults() {
+            return new Options();
+        }
+
+        public Options setDuplicatePolicy(@Nonnull DuplicatePolicy duplicatePolicy) {
+            this.duplicatePolicy = duplicatePolicy;
+            return this;
+        }
+
+        /**
+         * @param deleteMissing - if true rows whose key isn't among the records (and extra rows sharing a key) are
+         *                      deleted; rows with a blank key are always left alone
+         */
+        public Options setDeleteMissing(boolean deleteMissing) {
+            this.deleteMissing = deleteMissing;
+            return this;
+        }
+
+        /**
+         * @param skipUnchanged - if true (the default) updates only send the cells that differ (see {@link RowDiff})
+         */
+        public Options setSkipUnchanged(boolean skipUnchanged) {
+            this.skipUnchanged = skipUnchanged;
+            return this;
+        }
+
+        /**
+         * @param batcher - sends the chunks of each phase; the default sends them one at a time. a concurrent runner
+         *                adds new rows in no particular order and the API may reject its calls with error 4004
+         */
+        public Options setBatchRunner(@Nonnull BatchRunner batcher) {
+            this.batcher = batcher;
+            return this;
+        }
+    }
+
+    /**
+     * what an upsert did
+     */
+    public static class Result {
+        private final List<Row> inserted = new ArrayList<>();
+        private final List<Row> updated = new ArrayList<>();
+        private final List<Long> deleted = new ArrayList<>();
+        private final List<Row> duplicates = new ArrayList<>();
+        private final List<Row> withoutKey = new ArrayList<>();
+        private final List<BatchRunner.ChunkFailure> failures = new ArrayList<>();
+        private final RowDiff diff = new RowDiff();
+
+        /**
+         * @return the new rows (as returned by the API)
+         */
+        public List<Row> getInserted() {
+            return inserted;
+        }
+
+        /**
+         * @return the updated rows (as returned by the API); excludes rows that didn't change
+         */
+        public List<Row> getUpdated() {
+            return updated;
+        }
+
+        public List<Long> getDeletedRowIds() {
+            return deleted;
+        }
+
+        /**
+         * @return records ignored because another record had the same key
+         */
+        public List<Row> getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * @return records ignored because their key cell was missing or blank
+         */
+        public List<Row> getWithoutKey() {
+            return withoutKey;
+        }
+
+        /**
+         * @return the chunks (of updates, inserts or deleted row ids) whose calls failed
+         */
+        public List<BatchRunner.ChunkFailure> getFailures() {
+            return failures;
+        }
+
+        public boolean isSuccess() {
+            return failures.isEmpty();
+        }
+
+        /**
+         * @return counts of the rows & cells not sent because they were unchanged
+         */
+        public RowDiff getDiff() {
+            return diff;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{inserted:%d, updated:%d, unchanged:%d, deleted:%d, duplicates:%d, withoutKey:%d, "
+                            + "cellsSkipped:%d}", inserted.size(), updated.size(), diff.getRowsSkipped(), deleted.size(),
+                    duplicates.size(), withoutKey.size(), diff.getCellsSkipped());
+        }
+    }
+
+    /**
+     * thrown by an upsert when any chunk failed; every phase still ran so the result has everything that was done
+     */
+    public static class UpsertException extends SmartsheetException {
+        private final transient Result result;
+
+        UpsertException(@Nonnull Result result) {
+            super(String.format("%d chunks failed: %s", result.getFailures().size(), result.getFailures()),
+                    result.getFailures().get(0).getCause());
+            this.result = result;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * @param sheet       - the sheet with all its rows (e.g. from {@link Sheets#getWholeSheet})
+     * @param keyColumnId - the column whose value identifies a record
+     * @param records     - rows (with cells) as they should be; their ids and row-numbers are ignored
+     * @throws UpsertException if any chunk failed; it carries what was done
+     */
+    @Nonnull
+    static Result upsert(@Nonnull Smartsheet client, @Nonnull Sheet sheet, long keyColumnId,
+                         @Nonnull List<Row> records, @Nonnull Options options) throws SmartsheetException {
+        Preconditions.checkArgument(sheet.getColumns().stream().anyMatch(c -> c.getId() == keyColumnId),
+                "column %s isn't in sheet %s", keyColumnId, sheet.getId());
+        Result result = new Result();
+        ColumnIndex columnIndex = ColumnIndex.of(sheet);
+        int keyPosition = columnIndex.positionOf(keyColumnId);
+
+        // index the existing rows; the top-most row with a key is its target, the others are extras
+        List<Row> existingRows = sheet.getRows() != null ? sheet.getRows() : Collections.emptyList();
+        Map<Object, Row> existingByKey = new HashMap<>(existingRows.size() * 2);
+        for (Row row : existingRows) {
+            Object key = keyOf(columnIndex.findCell(row, keyPosition, keyColumnId));
+            if (key != null) {
+                existingByKey.putIfAbsent(key, row);
+            }
+        }
+
+        // de-duplicate the records (in record order so the outcome doesn't depend on hashing)
+        Map<Object, Row> recordsByKey = new LinkedHashMap<>(records.size() * 2);
+        for (Row record : records) {
+            Object key = keyOf(findCell(record, keyColumnId));
+            if (key == null) {
+                result.withoutKey.add(record);
+                continue;
+            }
+            Row previous = recordsByKey.get(key);
+            if (previous == null) {
+                recordsByKey.put(key, record);
+            } else if (options.duplicatePolicy == DuplicatePolicy.FAIL) {
+                throw new IllegalArgumentException("duplicate key '" + key + "' in records");
+            } else if (options.duplicatePolicy == DuplicatePolicy.LAST_WINS) {
+                recordsByKey.put(key, record);
+                result.duplicates.add(previous);
+            } else {
+                result.duplicates.add(record);
+            }
+        }
+
+        // partition
+        List<Row> inserts = new ArrayList<>();
+        List<Row> updates = new ArrayList<>();
+        List<Row> originals = new ArrayList<>();
+        for (Map.Entry<Object, Row> entry : recordsByKey.entrySet()) {
+            Row record = entry.getValue();
+            Row existing = existingByKey.get(entry.getKey());
+            if (existing == null) {
+                Row insert = new Row();
+                insert.setToBottom(true);
+                insert.setCells(record.getCells());
+                insert.setFormat(record.getFormat());
+                inserts.add(insert);
+            } else {
+                Row update = new Row(existing.getId());
+                update.setCells(record.getCells());
+                update.setFormat(record.getFormat());
+                updates.add(update);
+                originals.add(existing);
+            }
+        }
+        if (options.skipUnchanged) {
+            updates = result.diff.diffAll(originals, updates);
+        }
+        List<Long> deletes = new ArrayList<>();
+        if (options.deleteMissing) {
+            // in sheet order; rows with a key no record has plus all but the top-most row of a duplicated key
+            for (Row row : existingRows) {
+                Object key = keyOf(columnIndex.findCell(row, keyPosition, keyColumnId));
+                if (key != null && (!recordsByKey.containsKey(key) || existingByKey.get(key) != row)) {
+                    deletes.add(row.getId());
+                }
+            }
+        }
+        log.debug("upsert into sheet {}: {} inserts, {} updates, {} deletes, {} duplicates, {} without key",
+                sheet.getId(), inserts.size(), updates.size(), deletes.size(), result.duplicates.size(),
+                result.withoutKey.size());
+
+        // deletes last as they're the destructive (unrecoverable) part; a failed chunk doesn't stop the later phases
+        long sheetId = sheet.getId();
+        if (!updates.isEmpty()) {
+            List<Row> updated = updates;
+            runPhase(result, result.updated, () -> Sheets.updateRows(client, sheetId, updated, null, options.batcher));
+        }
+        if (!inserts.isEmpty()) {
+            runPhase(result, result.inserted, () -> Sheets.addRows(client, sheetId, inserts, null, options.batcher));
+        }
+        if (!deletes.isEmpty()) {
+            runPhase(result, result.deleted, () -> Sheets.deleteRows(client, sheetId, deletes, options.batcher));
+        }
+        if (!result.isSuccess()) {
+            throw new UpsertException(result);
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Phase<T> {
+        List<T> run() throws SmartsheetException;
+    }
+
+    // collects what a phase did (all of it or just the chunks that succeeded) and its failures
+    @SuppressWarnings("unchecked")
+    private static <T> void runPhase(Result result, List<T> done, Phase<T> phase) throws SmartsheetException {
+        try {
+            done.addAll(phase.run());
+        } catch (BatchRunner.BatchException e) {
+            done.addAll((List<T>) e.getResult().getResults());
+            result.failures.addAll(e.getResult().getFailures());
+        }
+    }
+
+    private static Cell findCell(Row record, long columnId) {
+        if (record.getCells() != null) {
+            for (Cell cell : record.getCells()) {
+                if (cell.getColumnId() != null && cell.getColumnId() == columnId) {
+                    return cell;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the cell's value as a key (numbers as Double so 5 and 5.0 match) or null if it's blank
+     */
+    private static Object keyOf(Cell cell) {
+        Object value = cell != null ? cell.getValue() : null;
+        if (value == null || (value instanceof String && ((String) value).isEmpty())) {
+            return null;
+        }
+        return value instanceof Number ? (Object) ((Number) value).doubleValue() : value;
+    }
+}
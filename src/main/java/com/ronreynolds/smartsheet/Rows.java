@@ -1,12 +1,10 @@
 package com.ronreynolds.smartsheet;
 
-import com.smartsheet.api.models.Attachment;
 import com.smartsheet.api.models.Cell;
-import com.smartsheet.api.models.Column;
-import com.smartsheet.api.models.Discussion;
 import com.smartsheet.api.models.Row;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
@@ -54,35 +52,66 @@ public class Rows {
         return builder.build();
     }
 
+    /**
+     * like {@link #updateRow(Row, Consumer, BiConsumer)} but only what differs from originalRow is kept
+     *
+     * @param diff - does the comparison and counts the skipped cells & rows
+     * @return the minimal update or null if the update doesn't change anything
+     */
+    public static Row updateRow(Row originalRow, Consumer<Row.UpdateRowBuilder> rowUpdate,
+                                BiConsumer<Cell.UpdateRowCellsBuilder, List<Cell>> cellUpdate, @Nonnull RowDiff diff) {
+        return diff.diff(originalRow, updateRow(originalRow, rowUpdate, cellUpdate));
+    }
+
     public static CharSequence toString(Row row) {
         StringBuilder buf = new StringBuilder();
-        buf.append("{id:").append(row.getId())
-                .append(", rowNum:").append(row.getRowNumber())
-                .append(", sheetId:").append(row.getSheetId())
-                .append(", parentId:").append(row.getParentId())
-                .append(", parentRowNum:").append(row.getParentRowNumber())
-                .append(", siblingId:").append(row.getSiblingId())
-                .append(", permalink:").append(row.getPermalink())
-                .append(", version:").append(row.getVersion())
-                .append(", created:{by:").append(row.getCreatedBy()).append(", at:").append(row.getCreatedAt()).append('}')
-                .append(", modified:{by:").append(row.getModifiedBy()).append(", at:").append(row.getModifiedAt()).append('}')
-                .append(", above:").append(row.getAbove())
-                .append(", toBottom:").append(row.getToBottom()).append(", toTop:").append(row.getToTop())
-                .append(", indent:").append(row.getIndent()).append(", outdent:").append(row.getOutdent())
-                .append(", accessLevel:").append(row.getAccessLevel())
-                .append(", format:").append(row.getFormat()).append(", condFormat:").append(row.getConditionalFormat());
-
-        List<Attachment> attachmentList = row.getAttachments();
-        List<Column> columnList = row.getColumns();
-        List<Cell> cellList = row.getCells();
-        List<Discussion> discussionList = row.getDiscussions();
+        try {
+            toString(buf, row, DebugRenderer.unlimited());
+        } catch (IOException e) {
+            throw new IllegalStateException("should be impossible", e);
+        }
+        return buf;
+    }
 
-        buf.append(", columns:").append(columnList);
-        buf.append(", cells:").append(cellList);
-        buf.append(", attachments:").append(attachmentList);
-        buf.append(", discussions:").append(discussionList);
+    /**
+     * write the row directly to out
+     *
+     * @param renderer - controls truncation of the row's cells
+     */
+    public static void toString(@Nonnull Appendable out, @Nonnull Row row, @Nonnull DebugRenderer renderer)
+            throws IOException {
+        renderer.appendRow(out, row);
+    }
 
-        return buf;
+    /**
+     * @return a shallow copy of the row as read from the API (its cells, attachments etc. are shared, not copied; the
+     * write-only location settings aren't copied)
+     */
+    @Nonnull
+    public static Row copyOf(@Nonnull Row row) {
+        Row copy = new Row(row.getId());
+        copy.setSheetId(row.getSheetId());
+        copy.setRowNumber(row.getRowNumber());
+        copy.setParentRowNumber(row.getParentRowNumber());
+        copy.setVersion(row.getVersion());
+        copy.setFilteredOut(row.getFilteredOut());
+        copy.setLocked(row.isLocked());
+        copy.setExpanded(row.isExpanded());
+        copy.setAccessLevel(row.getAccessLevel());
+        copy.setFormat(row.getFormat());
+        copy.setConditionalFormat(row.getConditionalFormat());
+        copy.setCreatedAt(row.getCreatedAt());
+        copy.setCreatedBy(row.getCreatedBy());
+        copy.setModifiedAt(row.getModifiedAt());
+        copy.setModifiedBy(row.getModifiedBy());
+        copy.setPermalink(row.getPermalink());
+        copy.setParentId(row.getParentId());
+        copy.setSiblingId(row.getSiblingId());
+        copy.setCells(row.getCells());
+        copy.setColumns(row.getColumns());
+        copy.setDiscussions(row.getDiscussions());
+        copy.setAttachments(row.getAttachments());
+        return copy;
     }
 
     /**
@@ -0,0 +1,259 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * caches whole sheets by id and keeps them current cheaply: the sheet version is checked first and if the sheet has
+ * changed only the rows modified since the last sync are fetched and merged into a copy of the cached sheet (rows
+ * that were added, deleted or moved are detected with an id-only fetch). eviction is LRU bounded by total row count.
+ * <p>
+ * with a {@link SnapshotStore} sheets not in memory are loaded from disk (if still current) and refreshed sheets are
+ * saved to it, so a restarted process starts warm.
+ * <p>
+ * returned sheets are shared by all callers of the cache so must not be modified.
+ */
+@Slf4j
+public class SheetCache {
+    private final Smartsheet client;
+    private final Cache<Long, Sheet> sheets;
+    private final SnapshotStore store;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder deltaRows = new LongAdder();
+    private final LongAdder deletedRows = new LongAdder();
+
+    /**
+     * @param client  - client to use to access the Smartsheet API
+     * @param maxRows - max total number of rows across all cached sheets
+     */
+    public SheetCache(@Nonnull Smartsheet client, long maxRows) {
+        this(client, maxRows, null);
+    }
+
+    /**
+     * @param store - where sheets are persisted between runs; null for none
+     */
+    public SheetCache(@Nonnull Smartsheet client, long maxRows, SnapshotStore store) {
+        Preconditions.checkArgument(maxRows > 0, "maxRows must be positive: %s", maxRows);
+        this.client = client;
+        this.store = store;
+        this.sheets = CacheBuilder.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((Long sheetId, Sheet sheet) -> Math.max(1, sheet.getRows() != null ? sheet.getRows().size() : 0))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the current version of the sheet (fetching or refreshing it as needed)
+     * @throws SmartsheetException if anything goes wrong talking to the API
+     */
+    @Nonnull
+    public Sheet getSheet(long sheetId) throws SmartsheetException {
+        Sheet cached = sheets.getIfPresent(sheetId);
+        if (cached == null) {
+            return fetchWholeSheet(sheetId);
+        }
+        Integer version = Metrics.timed("SheetCache.getSheetVersion", () -> client.sheetResources().getSheetVersion(sheetId));
+        if (version != null && version.equals(cached.getVersion())) {
+            hits.increment();
+            return cached;
+        }
+        Sheet refreshed = refresh(cached);
+        if (refreshed == null) {
+            return fetchWholeSheet(sheetId);
+        }
+        sheets.put(sheetId, refreshed);
+        if (store != null) {
+            store.saveQuietly(refreshed);
+        }
+        return refreshed;
+    }
+
+    public void invalidate(long sheetId) {
+        sheets.invalidate(sheetId);
+    }
+
+    public void invalidateAll() {
+        sheets.invalidateAll();
+    }
+
+    @Nonnull
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), deltas.sum(), deltaRows.sum(), deletedRows.sum(),
+                sheets.stats().evictionCount(), sheets.size());
+    }
+
+    private Sheet fetchWholeSheet(long sheetId) throws SmartsheetException {
+        misses.increment();
+        Sheet sheet = store != null ? store.getSheet(client, sheetId) : Sheets.getWholeSheet(client, sheetId);
+        sheets.put(sheetId, sheet);
+        return sheet;
+    }
+
+    /**
+     * @return a new Sheet with the changes since the cached copy merged in or null if a whole fetch is required
+     */
+    private Sheet refresh(Sheet cached) throws SmartsheetException {
+        long sheetId = cached.getId();
+        Date lastModified = cached.getModifiedAt();
+        if (lastModified == null) {
+            return null;
+        }
+        Sheet delta = Metrics.timed("SheetCache.refresh", () -> client.sheetResources().getSheet(sheetId,
+                Constants.ALL_SHEET_INCLUSIONS, Constants.NO_OBJECT_EXCLUSIONS, Constants.ALL_ROW_IDS,
+                Constants.ALL_ROW_NUMBERS, Constants.ALL_COLUMN_IDS, Constants.NO_PAGE_SIZE_LIMIT,
+                Constants.ALL_PAGE_NUMBERS, null, null, lastModified));
+        Metrics.rowsTransferred("SheetCache.refresh", delta.getRows());
+        if (!columnIds(delta).equals(columnIds(cached))) {
+            log.debug("columns of sheet {} changed; fetching whole sheet", sheetId);
+            return null;
+        }
+
+        Map<Long, Row> rowsById = new LinkedHashMap<>();
+        for (Row row : cached.getRows()) {
+            rowsById.put(row.getId(), row);
+        }
+        List<Row> changedRows = delta.getRows() != null ? delta.getRows() : Collections.emptyList();
+        boolean reordered = false;
+        for (Row row : changedRows) {
+            Row previous = rowsById.put(row.getId(), row);
+            // a new row or one whose number changed (moved or shifted by another change) means the order has changed
+            reordered |= previous == null || !Objects.equals(previous.getRowNumber(), row.getRowNumber());
+        }
+        deltas.increment();
+        deltaRows.add(changedRows.size());
+
+        List<Row> mergedRows;
+        if (!reordered && Objects.equals(delta.getTotalRowCount(), rowsById.size())) {
+            mergedRows = new ArrayList<>(rowsById.values());
+        } else {
+            // rows were added, deleted or moved; use the current row order (and numbers) from an id-only fetch
+            List<Row> order = fetchRowOrder(sheetId, delta.getColumns());
+            mergedRows = new ArrayList<>(order.size());
+            for (Row skeleton : order) {
+                Row row = rowsById.get(skeleton.getId());
+                if (row == null) {
+                    log.debug("row {} of sheet {} missing from delta; fetching whole sheet", skeleton.getId(), sheetId);
+                    return null;
+                }
+                // unchanged rows are shared with the previous copy (which callers may still be reading) so a row
+                // whose number shifted is copied rather than modified
+                if (!Objects.equals(row.getRowNumber(), skeleton.getRowNumber())) {
+                    row = Rows.copyOf(row);
+                    row.setRowNumber(skeleton.getRowNumber());
+                }
+                mergedRows.add(row);
+            }
+            deletedRows.add(rowsById.size() - mergedRows.size());
+        }
+        delta.setRows(mergedRows);
+        delta.setTotalRowCount(mergedRows.size());
+        return delta;
+    }
+
+    /**
+     * @return the rows of the sheet in order with (almost) no cell data; only the primary column is requested and
+     * empty cells are excluded
+     */
+    private List<Row> fetchRowOrder(long sheetId, List<Column> columns) throws SmartsheetException {
+        Long primaryColumnId = columns.stream().filter(c -> Boolean.TRUE.equals(c.getPrimary()))
+                .map(Column::getId).findFirst().orElse(columns.get(0).getId());
+        return Sheets.fetchRowSkeleton(client, sheetId, primaryColumnId, "SheetCache.fetchRowOrder");
+    }
+
+    private static List<Long> columnIds(Sheet sheet) {
+        return sheet.getColumns() != null
+                ? sheet.getColumns().stream().map(Column::getId).collect(Collectors.toList())
+                : Collections.emptyList();
+    }
+
+    /**
+     * a point-in-time copy of the cache's counters
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long deltas;
+        private final long deltaRows;
+        private final long deletedRows;
+        private final long evictions;
+        private final long size;
+
+        Stats(long hits, long misses, long deltas, long deltaRows, long deletedRows, long evictions, long size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.deltas = deltas;
+            this.deltaRows = deltaRows;
+            this.deletedRows = deletedRows;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        /**
+         * @return number of requests served without fetching any rows (version unchanged)
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return number of whole-sheet fetches
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return number of incremental (modified-rows-only) fetches
+         */
+        public long getDeltas() {
+            return deltas;
+        }
+
+        /**
+         * @return total number of modified rows fetched by incremental fetches
+         */
+        public long getDeltaRows() {
+            return deltaRows;
+        }
+
+        public long getDeletedRows() {
+            return deletedRows;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "{hits:" + hits + ", misses:" + misses + ", deltas:" + deltas + ", deltaRows:" + deltaRows +
+                    ", deletedRows:" + deletedRows + ", evictions:" + evictions + ", size:" + size + "}";
+        }
+    }
+}
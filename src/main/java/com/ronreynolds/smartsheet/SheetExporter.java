@@ -0,0 +1,189 @@
+package com.ronreynolds.smartsheet;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.ronreynolds.jackson.ObjectMappers;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * writes sheet rows to a stream one row at a time (as newline-delimited JSON or CSV) without building the whole
+ * document in memory; combined with {@link RowPager} an export of any size runs in (about) one page of memory.
+ * <p>
+ * every row is written with its id (as "_rowId") followed by one field per column, named by column title.
+ */
+public class SheetExporter {
+    public static final String ROW_ID_FIELD = "_rowId";
+
+    public enum Format {
+        /** one JSON object per line */
+        NDJSON,
+        /** RFC-4180 CSV with a header line of column titles */
+        CSV
+    }
+
+    /**
+     * export a sheet by fetching its rows a page at a time (the next page is prefetched while the current is written)
+     *
+     * @return number of rows written
+     */
+    public static long export(@Nonnull Smartsheet client, long sheetId, int pageSize, @Nonnull Format format,
+                              @Nonnull OutputStream out) throws SmartsheetException, IOException {
+        try (RowPager pager = Sheets.rowPager(client, sheetId, pageSize, true)) {
+            return export(pager.getColumns(), pager, format, out);
+        }
+    }
+
+    /**
+     * export an already-loaded sheet
+     *
+     * @return number of rows written
+     */
+    public static long export(@Nonnull Sheet sheet, @Nonnull Format format, @Nonnull OutputStream out) throws IOException {
+        return export(sheet.getColumns(), sheet.getRows().iterator(), format, out);
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public static long export(@Nonnull List<Column> columns, @Nonnull Iterator<Row> rows, @Nonnull Format format,
+                              @Nonnull WritableByteChannel channel) throws IOException {
+        return export(columns, rows, format, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * @param columns - the sheet's columns (titles are resolved once)
+     * @param rows    - the rows to write; consumed as they're written
+     * @param out     - flushed (not closed) when done
+     * @return number of rows written
+     */
+    public static long export(@Nonnull List<Column> columns, @Nonnull Iterator<Row> rows, @Nonnull Format format,
+                              @Nonnull OutputStream out) throws IOException {
+        ColumnIndex columnIndex = ColumnIndex.of(columns);
+        String[] titles = columns.stream().map(Column::getTitle).toArray(String[]::new);
+        long[] columnIds = columns.stream().mapToLong(Column::getId).toArray();
+        switch (format) {
+            case NDJSON:
+                return writeNdjson(columnIndex, titles, columnIds, rows, out);
+            case CSV:
+                return writeCsv(columnIndex, titles, columnIds, rows, out);
+            default:
+                throw new IllegalArgumentException("unsupported format: " + format);
+        }
+    }
+
+    private static long writeNdjson(ColumnIndex columnIndex, String[] titles, long[] columnIds, Iterator<Row> rows,
+                                    OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator gen = ObjectMappers.defaultMapper().getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            gen.setRootValueSeparator(null);
+            while (rows.hasNext()) {
+                Row row = rows.next();
+                gen.writeStartObject();
+                gen.writeFieldName(ROW_ID_FIELD);
+                gen.writeNumber(row.getId());
+                for (int c = 0; c < titles.length; ++c) {
+                    gen.writeFieldName(titles[c]);
+                    writeJsonValue(gen, valueOf(columnIndex.findCell(row, c, columnIds[c])));
+                }
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+                ++count;
+            }
+            gen.flush();
+        }
+        return count;
+    }
+
+    private static void writeJsonValue(JsonGenerator gen, Object value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof String) {
+            gen.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            gen.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short) {
+            gen.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            gen.writeNumber(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            gen.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            gen.writeNumber((BigInteger) value);
+        } else {
+            gen.writeObject(value);
+        }
+    }
+
+    private static long writeCsv(ColumnIndex columnIndex, String[] titles, long[] columnIds, Iterator<Row> rows,
+                                 OutputStream out) throws IOException {
+        // not closed; that would close the caller's stream
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        writeCsvField(writer, ROW_ID_FIELD);
+        for (String title : titles) {
+            writer.write(',');
+            writeCsvField(writer, title);
+        }
+        writer.write("\r\n");
+
+        long count = 0;
+        while (rows.hasNext()) {
+            Row row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            for (int c = 0; c < titles.length; ++c) {
+                writer.write(',');
+                Object value = valueOf(columnIndex.findCell(row, c, columnIds[c]));
+                if (value != null) {
+                    writeCsvField(writer, value.toString());
+                }
+            }
+            writer.write("\r\n");
+            ++count;
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvField(Writer writer, String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; ++i) {
+            char ch = field.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\r' || ch == '\n';
+        }
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < field.length(); ++i) {
+            char ch = field.charAt(i);
+            if (ch == '"') {
+                writer.write('"');
+            }
+            writer.write(ch);
+        }
+        writer.write('"');
+    }
+
+    private static Object valueOf(Cell cell) {
+        return cell != null ? cell.getValue() : null;
+    }
+}
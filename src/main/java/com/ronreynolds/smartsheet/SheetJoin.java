@@ -0,0 +1,296 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * joins the rows of two sheets on equal key-column values (a cross-sheet VLOOKUP) with a hash join: the smaller sheet's
+ * rows are hashed by key and the larger sheet's rows probe the table in parallel (fork-join). keys compare like
+ * {@link SheetQuery} values (numbers numerically); empty keys never match.
+ * <p>
+ * matches are in left-sheet order (then right-sheet order when a left row matches several right rows).
+ */
+public class SheetJoin {
+    // rows probed per fork-join task; below this the probe runs on the calling thread
+    static final int PROBE_CHUNK_SIZE = 4096;
+
+    public enum Type {
+        /** only left rows with at least one matching right row */
+        INNER,
+        /** every left row; those without a match have a null right row */
+        LEFT
+    }
+
+    /**
+     * a joined pair of rows
+     */
+    public static class Match {
+        private final Sides sides;
+        private final int leftIndex;
+        private final int rightIndex;
+
+        Match(Sides sides, int leftIndex, int rightIndex) {
+            this.sides = sides;
+            this.leftIndex = leftIndex;
+            this.rightIndex = rightIndex;
+        }
+
+        public Row getLeft() {
+            return sides.leftRows.get(leftIndex);
+        }
+
+        /**
+         * @return the matching right row or null (for a LEFT join) if there's none
+         */
+        public Row getRight() {
+            return rightIndex >= 0 ? sides.rightRows.get(rightIndex) : null;
+        }
+
+        /**
+         * @return the value of the left row's cell in the titled column (null if empty)
+         * @throws IllegalArgumentException if the left sheet has no such column
+         */
+        public Object getLeftValue(@Nonnull String title) {
+            return value(getLeft(), sides.leftColumns, sides.columnId(true, title));
+        }
+
+        /**
+         * @return the value of the right row's cell in the titled column (null if empty or there's no right row)
+         * @throws IllegalArgumentException if the right sheet has no such column
+         */
+        public Object getRightValue(@Nonnull String title) {
+            Row right = getRight();
+            return right != null ? value(right, sides.rightColumns, sides.columnId(false, title)) : null;
+        }
+
+        @Override
+        public String toString() {
+            Row right = getRight();
+            return "{left:" + getLeft().getId() + ", right:" + (right != null ? right.getId() : null) + "}";
+        }
+
+        private static Object value(Row row, ColumnIndex columns, long columnId) {
+            Cell cell = columns.findCell(row, columns.positionOf(columnId), columnId);
+            return cell != null ? cell.getValue() : null;
+        }
+    }
+
+    /**
+     * join on the common pool
+     *
+     * @param left          - the sheet whose rows are kept by a LEFT join (and written by {@link #writeBack})
+     * @param leftKeyTitle  - title of the left sheet's key column
+     * @param rightKeyTitle - title of the right sheet's key column
+     */
+    @Nonnull
+    public static List<Match> join(@Nonnull Sheet left, @Nonnull String leftKeyTitle, @Nonnull Sheet right,
+                                   @Nonnull String rightKeyTitle, @Nonnull Type type) {
+        return join(left, leftKeyTitle, right, rightKeyTitle, type, ForkJoinPool.commonPool());
+    }
+
+    @Nonnull
+    public static List<Match> join(@Nonnull Sheet left, @Nonnull String leftKeyTitle, @Nonnull Sheet right,
+                                   @Nonnull String rightKeyTitle, @Nonnull Type type, @Nonnull ForkJoinPool pool) {
+        Sides sides = new Sides(left, leftKeyTitle, right, rightKeyTitle);
+        boolean buildLeft = sides.leftRows.size() < sides.rightRows.size();
+        Map<Object, List<Integer>> table = buildLeft ? sides.hash(true) : sides.hash(false);
+        List<Row> probeRows = buildLeft ? sides.rightRows : sides.leftRows;
+        Probe probe = new Probe(sides, table, !buildLeft, type, 0, probeRows.size());
+        List<Match> matches = probeRows.size() <= PROBE_CHUNK_SIZE ? probe.compute() : pool.invoke(probe);
+        if (!buildLeft) {
+            return matches;     // probed in left order so already in order
+        }
+
+        if (type == Type.LEFT) {
+            BitSet matched = new BitSet(sides.leftRows.size());
+            matches.forEach((match) -> matched.set(match.leftIndex));
+            for (int l = matched.nextClearBit(0); l < sides.leftRows.size(); l = matched.nextClearBit(l + 1)) {
+                matches.add(new Match(sides, l, -1));
+            }
+        }
+        matches.sort(Comparator.comparingInt((Match m) -> m.leftIndex).thenComparingInt((m) -> m.rightIndex));
+        return matches;
+    }
+
+    /**
+     * copy values from the matched right rows into the left rows; only cells whose value changes are sent (see
+     * {@link RowDiff}). a left row matching several right rows takes the first match's values.
+     *
+     * @param matches - from {@link #join} with left as the left sheet
+     * @param columns - right-sheet column title to the left-sheet column title it's copied to
+     * @return the updated left rows
+     */
+    @Nonnull
+    public static List<Row> writeBack(@Nonnull Smartsheet client, @Nonnull Sheet left, @Nonnull Sheet right,
+                                      @Nonnull List<Match> matches, @Nonnull Map<String, String> columns,
+                                      @Nonnull RowDiff diff, @Nonnull BatchRunner batcher) throws SmartsheetException {
+        Preconditions.checkArgument(!columns.isEmpty(), "no columns to copy");
+        ColumnIndex rightColumns = ColumnIndex.of(right);
+        Map<String, Column> rightByTitle = Columns.buildColumnByNameMap(right);
+        Map<String, Column> leftByTitle = Columns.buildColumnByNameMap(left);
+        long[] rightIds = new long[columns.size()];
+        long[] leftIds = new long[columns.size()];
+        int[] rightPositions = new int[columns.size()];
+        int i = 0;
+        for (Map.Entry<String, String> column : columns.entrySet()) {
+            rightIds[i] = columnId(right, rightByTitle, column.getKey());
+            leftIds[i] = columnId(left, leftByTitle, column.getValue());
+            rightPositions[i] = rightColumns.positionOf(rightIds[i]);
+            ++i;
+        }
+
+        List<Row> updates = new ArrayList<>();
+        Long previousLeftId = null;
+        for (Match match : matches) {
+            Row rightRow = match.getRight();
+            Long leftId = match.getLeft().getId();
+            if (rightRow == null || leftId.equals(previousLeftId)) {
+                continue;
+            }
+            previousLeftId = leftId;
+            List<Cell> cells = new ArrayList<>(leftIds.length);
+            for (int c = 0; c < leftIds.length; ++c) {
+                Cell source = rightColumns.findCell(rightRow, rightPositions[c], rightIds[c]);
+                Object value = source != null ? source.getValue() : null;
+                cells.add(new Cell(leftIds[c]).setValue(value != null ? value : "").setStrict(true));
+            }
+            updates.add(new Row(leftId).setCells(cells));
+        }
+        if (updates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Sheets.updateChangedRows(client, left.getId(), left.getRows(), updates, null, diff, batcher);
+    }
+
+    private static long columnId(Sheet sheet, Map<String, Column> byTitle, String title) {
+        Column column = byTitle.get(title);
+        Preconditions.checkArgument(column != null, "no column '%s' in sheet %s", title, sheet.getId());
+        return column.getId();
+    }
+
+    /**
+     * both sheets with their rows and how to find their cells (columns by title are resolved once per sheet)
+     */
+    private static final class Sides {
+        private final Sheet left;
+        private final Sheet right;
+        private final Map<String, Column> leftByTitle;
+        private final Map<String, Column> rightByTitle;
+        private final List<Row> leftRows;
+        private final List<Row> rightRows;
+        private final ColumnIndex leftColumns;
+        private final ColumnIndex rightColumns;
+        private final long leftKeyId;
+        private final long rightKeyId;
+        private final int leftKeyPosition;
+        private final int rightKeyPosition;
+
+        Sides(Sheet left, String leftKeyTitle, Sheet right, String rightKeyTitle) {
+            this.left = left;
+            this.right = right;
+            this.leftByTitle = Columns.buildColumnByNameMap(left);
+            this.rightByTitle = Columns.buildColumnByNameMap(right);
+            this.leftRows = left.getRows() != null ? left.getRows() : Collections.emptyList();
+            this.rightRows = right.getRows() != null ? right.getRows() : Collections.emptyList();
+            this.leftColumns = ColumnIndex.of(left);
+            this.rightColumns = ColumnIndex.of(right);
+            this.leftKeyId = columnId(true, leftKeyTitle);
+            this.rightKeyId = columnId(false, rightKeyTitle);
+            this.leftKeyPosition = leftColumns.positionOf(leftKeyId);
+            this.rightKeyPosition = rightColumns.positionOf(rightKeyId);
+        }
+
+        long columnId(boolean leftSide, String title) {
+            return leftSide
+                    ? SheetJoin.columnId(left, leftByTitle, title)
+                    : SheetJoin.columnId(right, rightByTitle, title);
+        }
+
+        Object key(boolean leftSide, int index) {
+            Cell cell = leftSide
+                    ? leftColumns.findCell(leftRows.get(index), leftKeyPosition, leftKeyId)
+                    : rightColumns.findCell(rightRows.get(index), rightKeyPosition, rightKeyId);
+            Object value = cell != null ? cell.getValue() : null;
+            if (value == null || (value instanceof String && ((String) value).isEmpty())) {
+                return null;
+            }
+            return SheetQuery.normalize(value);
+        }
+
+        Map<Object, List<Integer>> hash(boolean leftSide) {
+            int size = leftSide ? leftRows.size() : rightRows.size();
+            Map<Object, List<Integer>> table = new HashMap<>(size * 2);
+            for (int i = 0; i < size; ++i) {
+                Object key = key(leftSide, i);
+                if (key != null) {
+                    table.computeIfAbsent(key, (k) -> new ArrayList<>(1)).add(i);
+                }
+            }
+            return table;
+        }
+    }
+
+    /**
+     * probes a range of one side's rows against the other side's hash table; splits in half until small enough
+     */
+    private static final class Probe extends RecursiveTask<List<Match>> {
+        private final Sides sides;
+        private final Map<Object, List<Integer>> table;
+        private final boolean probeLeft;
+        private final Type type;
+        private final int from;
+        private final int to;
+
+        Probe(Sides sides, Map<Object, List<Integer>> table, boolean probeLeft, Type type, int from, int to) {
+            this.sides = sides;
+            this.table = table;
+            this.probeLeft = probeLeft;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Match> compute() {
+            if (to - from > PROBE_CHUNK_SIZE) {
+                int mid = (from + to) >>> 1;
+                Probe second = new Probe(sides, table, probeLeft, type, mid, to);
+                second.fork();
+                List<Match> matches = new Probe(sides, table, probeLeft, type, from, mid).compute();
+                matches.addAll(second.join());
+                return matches;
+            }
+            List<Match> matches = new ArrayList<>();
+            for (int i = from; i < to; ++i) {
+                Object key = sides.key(probeLeft, i);
+                List<Integer> found = key != null ? table.get(key) : null;
+                if (found == null) {
+                    if (probeLeft && type == Type.LEFT) {
+                        matches.add(new Match(sides, i, -1));
+                    }
+                    continue;
+                }
+                for (int other : found) {
+                    matches.add(probeLeft ? new Match(sides, i, other) : new Match(sides, other, i));
+                }
+            }
+            return matches;
+        }
+    }
+}
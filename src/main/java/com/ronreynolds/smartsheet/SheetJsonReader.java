@@ -0,0 +1,165 @@
+package com.ronreynolds.smartsheet;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ronreynolds.jackson.ObjectMappers;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.internal.json.ObjectValueDeserializer;
+import com.smartsheet.api.models.ObjectValue;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.function.Consumer;
+
+/**
+ * parses a sheet's JSON one row at a time rather than building the whole Sheet (as the SDK's getSheet does); each row
+ * is given to a callback as soon as it's parsed so memory is bounded by one row (plus whatever the callback keeps) and
+ * the first row is available before the rest of the payload has arrived.
+ * <p>
+ * rows are read with (a copy of) the relaxed mapper (unknown properties are ignored) that also reads objectValues
+ * the way the SDK does; the sheet's other attributes are returned once the payload is consumed.
+ */
+public class SheetJsonReader {
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    // a stalled connection fails (with a SocketTimeoutException) rather than blocking the caller forever
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int READ_TIMEOUT_MILLIS = 60_000;
+    private static final String USER_AGENT = "smartsheet-java-sdk-ex/SheetJsonReader";
+
+    // ObjectValue is abstract (its type depends on the payload) so needs the SDK's deserializer
+    private static final ObjectMapper MAPPER = ObjectMappers.relaxedMapper().copy()
+            .registerModule(new SimpleModule("ObjectValue")
+                    .addDeserializer(ObjectValue.class, new ObjectValueDeserializer()));
+    private static final ObjectReader ROW_READER = MAPPER.readerFor(Row.class);
+    private static final ObjectReader SHEET_READER = MAPPER.readerFor(Sheet.class);
+
+    /**
+     * @param rowCb - given each row in order
+     * @return the sheet without its rows (e.g. id, name, columns, totalRowCount)
+     * @throws JsonMappingException if the payload isn't a sheet
+     */
+    @Nonnull
+    public static Sheet read(@Nonnull InputStream in, @Nonnull Consumer<Row> rowCb) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            return read(parser, rowCb);
+        }
+    }
+
+    @Nonnull
+    public static Sheet read(@Nonnull Reader in, @Nonnull Consumer<Row> rowCb) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            return read(parser, rowCb);
+        }
+    }
+
+    /**
+     * fetch a sheet straight from the API and stream its rows, paced by the scheduler shared by throttled clients of
+     * the same token (see {@link SmartsheetBuilders#getSharedScheduler})
+     *
+     * @see #fetch(String, String, RateScheduler, long, Consumer)
+     */
+    @Nonnull
+    public static Sheet fetch(@Nonnull String baseUri, @Nonnull String accessToken, long sheetId,
+                              @Nonnull Consumer<Row> rowCb) throws IOException {
+        return fetch(baseUri, accessToken, SmartsheetBuilders.getSharedScheduler(accessToken), sheetId, rowCb);
+    }
+
+    /**
+     * fetch a sheet straight from the API and stream its rows; the SDK client can't be used as it always parses the
+     * whole response. the request is paced by the scheduler like any throttled client's (so counts against the same
+     * rate limit) and a 429 or 503 slows the scheduler and is retried (up to 5 tries in all).
+     *
+     * @param baseUri     - the API's base (e.g. {@link Constants#PROD_URL})
+     * @param accessToken - the API token
+     * @param scheduler   - the token's rate limit
+     * @return the sheet without its rows
+     * @throws IOException if the request fails, times out (10s to connect, 60s without data) or returns anything but 200
+     */
+    @Nonnull
+    public static Sheet fetch(@Nonnull String baseUri, @Nonnull String accessToken, @Nonnull RateScheduler scheduler,
+                              long sheetId, @Nonnull Consumer<Row> rowCb) throws IOException {
+        String url = (baseUri.endsWith("/") ? baseUri : baseUri + "/") + "sheets/" + sheetId;
+        long[] rows = new long[1];
+        Sheet sheet;
+        try {
+            sheet = Metrics.timed("SheetJsonReader.fetch", () -> {
+                for (int attempt = 1; ; ++attempt) {
+                    try {
+                        scheduler.acquire(RateScheduler.Priority.INTERACTIVE);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("interrupted waiting for rate-limit");
+                    }
+                    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+                    try {
+                        conn.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                        conn.setReadTimeout(READ_TIMEOUT_MILLIS);
+                        conn.setRequestProperty("Authorization", "Bearer " + accessToken);
+                        conn.setRequestProperty("Accept", "application/json");
+                        conn.setRequestProperty("User-Agent", USER_AGENT);
+                        int status = conn.getResponseCode();
+                        if ((status == TOO_MANY_REQUESTS || status == HttpURLConnection.HTTP_UNAVAILABLE)
+                                && attempt < MAX_ATTEMPTS) {
+                            scheduler.onThrottled(ThrottledHttpClient.parseRetryAfter(
+                                    conn.getHeaderField("Retry-After")));
+                            Metrics.retried();
+                            continue;
+                        }
+                        if (status != HttpURLConnection.HTTP_OK) {
+                            throw new IOException("http " + status + " fetching sheet " + sheetId);
+                        }
+                        scheduler.onSuccess();
+                        try (InputStream in = conn.getInputStream()) {
+                            return read(in, (row) -> {
+                                ++rows[0];
+                                rowCb.accept(row);
+                            });
+                        }
+                    } finally {
+                        conn.disconnect();
+                    }
+                }
+            });
+        } catch (SmartsheetException e) {
+            throw new IllegalStateException("should be impossible", e);  // no SDK calls are made
+        }
+        Metrics.transferred("SheetJsonReader.fetch", ApiMetrics.Unit.ROWS, rows[0]);
+        return sheet;
+    }
+
+    private static Sheet read(JsonParser parser, Consumer<Row> rowCb) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(parser, "expected a sheet object");
+        }
+        ObjectNode attributes = MAPPER.createObjectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("rows".equals(field) && token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    rowCb.accept(ROW_READER.readValue(parser));
+                }
+                if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+                    throw JsonMappingException.from(parser, "expected a row object");
+                }
+            } else {
+                attributes.set(field, MAPPER.readTree(parser));
+            }
+        }
+        return SHEET_READER.readValue(attributes);
+    }
+}
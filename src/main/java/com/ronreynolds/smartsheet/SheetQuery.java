@@ -0,0 +1,601 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * queries over a loaded sheet: conditions on cell values (by column title) combined with AND/OR/NOT, projected by
+ * column title and limited. conditions are evaluated column-at-a-time over a {@link SheetSnapshot} as row bitmaps.
+ * <p>
+ * values compare by type: numbers numerically, text lexicographically (so ISO dates work; a {@link Temporal} argument
+ * is compared as its ISO text) and booleans by equality. a null (empty) cell only matches {@link #isNull}; a value of
+ * another type than the argument never matches.
+ * <p>
+ * once a column has been filtered indexAfterUses times a hash index (for equality) or a sorted index (for ranges) is
+ * built for it and reused by later queries until {@link #update} is given a different sheet.
+ */
+public class SheetQuery {
+    public static final int DEFAULT_INDEX_AFTER_USES = 2;
+
+    private final int indexAfterUses;
+    private volatile State state;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder indexLookups = new LongAdder();
+    private final LongAdder indexBuilds = new LongAdder();
+
+    /**
+     * @param indexAfterUses - a column is indexed once it has been filtered this many times (1 indexes on first use)
+     */
+    public SheetQuery(@Nonnull Sheet sheet, int indexAfterUses) {
+        Preconditions.checkArgument(indexAfterUses > 0, "indexAfterUses must be positive: %s", indexAfterUses);
+        this.indexAfterUses = indexAfterUses;
+        this.state = new State(sheet);
+    }
+
+    @Nonnull
+    public static SheetQuery of(@Nonnull Sheet sheet) {
+        return new SheetQuery(sheet, DEFAULT_INDEX_AFTER_USES);
+    }
+
+    /**
+     * query a newer copy of the sheet; indexes are dropped unless it's the same sheet instance
+     *
+     * @return true if the sheet was replaced
+     */
+    public synchronized boolean update(@Nonnull Sheet sheet) {
+        if (sheet == state.sheet) {
+            return false;
+        }
+        state = new State(sheet);
+        return true;
+    }
+
+    /**
+     * @return the rows that match (in sheet order)
+     */
+    @Nonnull
+    public List<Row> find(@Nonnull Condition where) {
+        return find(where, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit - max number of rows returned
+     * @return the first rows (in sheet order) that match
+     */
+    @Nonnull
+    public List<Row> find(@Nonnull Condition where, int limit) {
+        State current = state;
+        BitSet matches = evaluate(current, where);
+        List<Row> rows = new ArrayList<>(Math.min(matches.cardinality(), limit));
+        for (int r = matches.nextSetBit(0); r >= 0 && rows.size() < limit; r = matches.nextSetBit(r + 1)) {
+            rows.add(current.rows.get(r));
+        }
+        return rows;
+    }
+
+    /**
+     * @param titles - the columns to return (in this order)
+     * @param limit  - max number of rows returned
+     * @return for the first rows that match, a map of title to value (null for empty cells)
+     * @throws IllegalArgumentException if a title isn't a column of the sheet
+     */
+    @Nonnull
+    public List<Map<String, Object>> select(@Nonnull Condition where, @Nonnull List<String> titles, int limit) {
+        State current = state;
+        int[] columns = new int[titles.size()];
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = current.columnIndex(titles.get(i));
+        }
+        BitSet matches = evaluate(current, where);
+        List<Map<String, Object>> results = new ArrayList<>(Math.min(matches.cardinality(), limit));
+        for (int r = matches.nextSetBit(0); r >= 0 && results.size() < limit; r = matches.nextSetBit(r + 1)) {
+            Map<String, Object> values = new LinkedHashMap<>(columns.length * 2);
+            for (int i = 0; i < columns.length; ++i) {
+                values.put(titles.get(i), current.snapshot.column(columns[i]).getValue(r));
+            }
+            results.add(values);
+        }
+        return results;
+    }
+
+    public int count(@Nonnull Condition where) {
+        return evaluate(state, where).cardinality();
+    }
+
+    /**
+     * @return the indexes (in sheet order) of the matching rows
+     */
+    @Nonnull
+    public BitSet match(@Nonnull Condition where) {
+        return evaluate(state, where);
+    }
+
+    /**
+     * build the column's indexes now rather than waiting for it to be used
+     */
+    public void index(@Nonnull String title) {
+        State current = state;
+        ColumnState column = current.column(title);
+        column.hashIndex(this);
+        column.sortedIndex(this);
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    /**
+     * @return conditions evaluated by scanning a column
+     */
+    public long getScans() {
+        return scans.sum();
+    }
+
+    /**
+     * @return conditions evaluated with an index
+     */
+    public long getIndexLookups() {
+        return indexLookups.sum();
+    }
+
+    public long getIndexBuilds() {
+        return indexBuilds.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{rows:%d, queries:%d, scans:%d, indexLookups:%d, indexBuilds:%d}",
+                state.snapshot.rowCount(), getQueries(), getScans(), getIndexLookups(), getIndexBuilds());
+    }
+
+    // -- conditions --
+
+    public static Condition eq(@Nonnull String title, @Nonnull Object value) {
+        return new Comparison(title, Op.EQ, value);
+    }
+
+    /**
+     * @return matches non-empty cells whose value isn't value
+     */
+    public static Condition ne(@Nonnull String title, @Nonnull Object value) {
+        return new Comparison(title, Op.NE, value);
+    }
+
+    public static Condition lt(@Nonnull String title, @Nonnull Object value) {
+        return new Comparison(title, Op.LT, value);
+    }
+
+    public static Condition le(@Nonnull String title, @Nonnull Object value) {
+        return new Comparison(title, Op.LE, value);
+    }
+
+    public static Condition gt(@Nonnull String title, @Nonnull Object value) {
+        return new Comparison(title, Op.GT, value);
+    }
+
+    public static Condition ge(@Nonnull String title, @Nonnull Object value) {
+        return new Comparison(title, Op.GE, value);
+    }
+
+    /**
+     * @return matches values from low to high (inclusive)
+     */
+    public static Condition between(@Nonnull String title, @Nonnull Object low, @Nonnull Object high) {
+        return and(ge(title, low), le(title, high));
+    }
+
+    public static Condition in(@Nonnull String title, @Nonnull Object... values) {
+        List<Condition> any = new ArrayList<>(values.length);
+        for (Object value : values) {
+            any.add(eq(title, value));
+        }
+        return new AnyOf(any);
+    }
+
+    public static Condition isNull(@Nonnull String title) {
+        return new NullCheck(title, true);
+    }
+
+    public static Condition notNull(@Nonnull String title) {
+        return new NullCheck(title, false);
+    }
+
+    public static Condition and(@Nonnull Condition... conditions) {
+        return new AllOf(Arrays.asList(conditions));
+    }
+
+    public static Condition or(@Nonnull Condition... conditions) {
+        return new AnyOf(Arrays.asList(conditions));
+    }
+
+    public static Condition not(@Nonnull Condition condition) {
+        return new Not(condition);
+    }
+
+    /**
+     * a filter on the rows of a sheet; made by the static methods of {@link SheetQuery}
+     */
+    public abstract static class Condition {
+        private Condition() {
+        }
+
+        abstract BitSet evaluate(SheetQuery query, State state);
+    }
+
+    private BitSet evaluate(State current, Condition where) {
+        queries.increment();
+        return where.evaluate(this, current);
+    }
+
+    private enum Op {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    private static final class Comparison extends Condition {
+        private final String title;
+        private final Op op;
+        private final Object value;
+
+        Comparison(String title, Op op, Object value) {
+            this.title = Preconditions.checkNotNull(title, "title");
+            this.op = op;
+            this.value = normalize(Preconditions.checkNotNull(value, "value"));
+        }
+
+        @Override
+        BitSet evaluate(SheetQuery query, State state) {
+            ColumnState column = state.column(title);
+            boolean indexIt = column.uses.incrementAndGet() >= query.indexAfterUses;
+            if (op == Op.EQ || op == Op.NE) {
+                Map<Object, BitSet> hash = indexIt ? column.hashIndex(query) : column.hash;
+                if (hash != null) {
+                    query.indexLookups.increment();
+                    BitSet equal = hash.getOrDefault(value, EMPTY);
+                    if (op == Op.EQ) {
+                        return (BitSet) equal.clone();
+                    }
+                    BitSet notEqual = column.present();
+                    notEqual.andNot(equal);
+                    return notEqual;
+                }
+            } else {
+                SortedIndex sorted = indexIt ? column.sortedIndex(query) : column.sorted;
+                if (sorted != null && sorted.accepts(value)) {
+                    query.indexLookups.increment();
+                    return sorted.range(op, value, column.vector.size());
+                }
+            }
+            query.scans.increment();
+            SheetSnapshot.ColumnVector vector = column.vector;
+            BitSet matches = new BitSet(vector.size());
+            vector.forEachNonNull((r) -> {
+                Integer cmp = compare(normalize(vector.getValue(r)), value);
+                if (cmp != null ? test(op, cmp) : op == Op.NE) {
+                    matches.set(r);
+                }
+            });
+            return matches;
+        }
+
+        @Override
+        public String toString() {
+            return title + " " + op + " " + value;
+        }
+    }
+
+    private static final class NullCheck extends Condition {
+        private final String title;
+        private final boolean isNull;
+
+        NullCheck(String title, boolean isNull) {
+            this.title = Preconditions.checkNotNull(title, "title");
+            this.isNull = isNull;
+        }
+
+        @Override
+        BitSet evaluate(SheetQuery query, State state) {
+            ColumnState column = state.column(title);
+            BitSet present = column.present();
+            if (isNull) {
+                present.flip(0, column.vector.size());
+            }
+            return present;
+        }
+
+        @Override
+        public String toString() {
+            return title + (isNull ? " IS NULL" : " IS NOT NULL");
+        }
+    }
+
+    private static final class AllOf extends Condition {
+        private final List<Condition> conditions;
+
+        AllOf(List<Condition> conditions) {
+            Preconditions.checkArgument(!conditions.isEmpty(), "no conditions");
+            this.conditions = conditions;
+        }
+
+        @Override
+        BitSet evaluate(SheetQuery query, State state) {
+            BitSet matches = conditions.get(0).evaluate(query, state);
+            for (int i = 1; i < conditions.size() && !matches.isEmpty(); ++i) {
+                matches.and(conditions.get(i).evaluate(query, state));
+            }
+            return matches;
+        }
+
+        @Override
+        public String toString() {
+            return conditions.toString().replace(", ", " AND ");
+        }
+    }
+
+    private static final class AnyOf extends Condition {
+        private final List<Condition> conditions;
+
+        AnyOf(List<Condition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        BitSet evaluate(SheetQuery query, State state) {
+            BitSet matches = new BitSet(state.snapshot.rowCount());
+            for (Condition condition : conditions) {
+                matches.or(condition.evaluate(query, state));
+            }
+            return matches;
+        }
+
+        @Override
+        public String toString() {
+            return conditions.toString().replace(", ", " OR ");
+        }
+    }
+
+    private static final class Not extends Condition {
+        private final Condition condition;
+
+        Not(Condition condition) {
+            this.condition = Preconditions.checkNotNull(condition, "condition");
+        }
+
+        @Override
+        BitSet evaluate(SheetQuery query, State state) {
+            BitSet matches = condition.evaluate(query, state);
+            matches.flip(0, state.snapshot.rowCount());
+            return matches;
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + condition;
+        }
+    }
+
+    // -- values --
+
+    private static final BitSet EMPTY = new BitSet(0);
+
+    /**
+     * @return numbers as Double, temporals as their ISO text, everything else as-is
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Temporal) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * @return the comparison of two normalized values or null if they aren't comparable
+     */
+    static Integer compare(Object a, Object b) {
+        if (a instanceof Double && b instanceof Double) {
+            return Double.compare((Double) a, (Double) b);
+        }
+        if (a instanceof String && b instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        if (a instanceof Boolean && b instanceof Boolean) {
+            return Boolean.compare((Boolean) a, (Boolean) b);
+        }
+        return Objects.equals(a, b) ? 0 : null;
+    }
+
+    private static boolean test(Op op, int cmp) {
+        switch (op) {
+            case EQ:
+                return cmp == 0;
+            case NE:
+                return cmp != 0;
+            case LT:
+                return cmp < 0;
+            case LE:
+                return cmp <= 0;
+            case GT:
+                return cmp > 0;
+            default:
+                return cmp >= 0;
+        }
+    }
+
+    // -- per-sheet state; replaced as a whole by update() --
+
+    private static final class State {
+        private final Sheet sheet;
+        private final List<Row> rows;
+        private final SheetSnapshot snapshot;
+        private final Map<Integer, ColumnState> columns = new ConcurrentHashMap<>();
+
+        State(Sheet sheet) {
+            this.sheet = sheet;
+            this.rows = sheet.getRows() != null ? sheet.getRows() : Collections.emptyList();
+            this.snapshot = SheetSnapshot.of(sheet);
+        }
+
+        int columnIndex(String title) {
+            int c = snapshot.columnIndex(title);
+            Preconditions.checkArgument(c >= 0, "no column titled '%s'", title);
+            return c;
+        }
+
+        ColumnState column(String title) {
+            return columns.computeIfAbsent(columnIndex(title), (c) -> new ColumnState(snapshot.column(c)));
+        }
+    }
+
+    private static final class ColumnState {
+        private final SheetSnapshot.ColumnVector vector;
+        private final AtomicInteger uses = new AtomicInteger();
+        private volatile Map<Object, BitSet> hash;
+        private volatile SortedIndex sorted;
+
+        ColumnState(SheetSnapshot.ColumnVector vector) {
+            this.vector = vector;
+        }
+
+        BitSet present() {
+            BitSet present = new BitSet(vector.size());
+            vector.forEachNonNull(present::set);
+            return present;
+        }
+
+        synchronized Map<Object, BitSet> hashIndex(SheetQuery query) {
+            if (hash == null) {
+                Map<Object, BitSet> index = new HashMap<>();
+                vector.forEachNonNull((r) -> index.computeIfAbsent(normalize(vector.getValue(r)),
+                        (v) -> new BitSet(vector.size())).set(r));
+                hash = index;
+                query.indexBuilds.increment();
+            }
+            return hash;
+        }
+
+        /**
+         * @return null if the column's values aren't all numbers or all text
+         */
+        synchronized SortedIndex sortedIndex(SheetQuery query) {
+            if (sorted == null) {
+                sorted = SortedIndex.build(vector);
+                if (sorted != null) {
+                    query.indexBuilds.increment();
+                }
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * the rows with a value in value order; numeric columns keep double keys, text columns String keys
+     */
+    private static final class SortedIndex {
+        private final int[] rows;
+        private final double[] numbers;
+        private final String[] strings;
+
+        private SortedIndex(int[] rows, double[] numbers, String[] strings) {
+            this.rows = rows;
+            this.numbers = numbers;
+            this.strings = strings;
+        }
+
+        static SortedIndex build(SheetSnapshot.ColumnVector vector) {
+            SheetSnapshot.ColumnKind kind = vector.getKind();
+            boolean numeric = kind == SheetSnapshot.ColumnKind.LONG || kind == SheetSnapshot.ColumnKind.DOUBLE;
+            if (!numeric && kind != SheetSnapshot.ColumnKind.STRING) {
+                return null;
+            }
+            int[] rows = new int[vector.nonNullCount()];
+            int[] next = {0};
+            vector.forEachNonNull((r) -> rows[next[0]++] = r);
+            if (numeric) {
+                SheetSnapshot.sortIndexes(rows, (a, b) -> Double.compare(vector.getDouble(a), vector.getDouble(b)));
+            } else {
+                SheetSnapshot.sortIndexes(rows, (a, b) -> vector.getString(a).compareTo(vector.getString(b)));
+            }
+            double[] numbers = numeric ? new double[rows.length] : null;
+            String[] strings = numeric ? null : new String[rows.length];
+            for (int i = 0; i < rows.length; ++i) {
+                if (numeric) {
+                    numbers[i] = vector.getDouble(rows[i]);
+                } else {
+                    strings[i] = vector.getString(rows[i]);
+                }
+            }
+            return new SortedIndex(rows, numbers, strings);
+        }
+
+        boolean accepts(Object value) {
+            return numbers != null ? value instanceof Double : value instanceof String;
+        }
+
+        BitSet range(Op op, Object value, int size) {
+            int from;
+            int to;
+            switch (op) {
+                case LT:
+                    from = 0;
+                    to = firstNotBelow(value, false);
+                    break;
+                case LE:
+                    from = 0;
+                    to = firstNotBelow(value, true);
+                    break;
+                case GT:
+                    from = firstNotBelow(value, true);
+                    to = rows.length;
+                    break;
+                default:
+                    from = firstNotBelow(value, false);
+                    to = rows.length;
+                    break;
+            }
+            BitSet matches = new BitSet(size);
+            for (int i = from; i < to; ++i) {
+                matches.set(rows[i]);
+            }
+            return matches;
+        }
+
+        /**
+         * @param orEqual - if true skip keys equal to value as well
+         * @return the position of the first key greater than (or equal to) value
+         */
+        private int firstNotBelow(Object value, boolean orEqual) {
+            int low = 0;
+            int high = rows.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = numbers != null ? Double.compare(numbers[mid], (Double) value)
+                        : strings[mid].compareTo((String) value);
+                if (cmp < 0 || (orEqual && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package com.ronreynolds.smartsheet;
+
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.DoublePredicate;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * an immutable column-oriented copy of a Sheet's cell values for scanning large sheets without per-row/per-cell
+ * allocations. numeric columns are stored as long[] or double[], text (and picklist) columns are dictionary-encoded,
+ * checkboxes are a bitmap and every column has a bitmap of which rows have a value.
+ */
+public class SheetSnapshot {
+    /**
+     * how a column's values are stored; decided by the values actually in the column (not the column type)
+     */
+    public enum ColumnKind {
+        /** no row has a value */
+        EMPTY,
+        /** every value is an integral number */
+        LONG,
+        /** every value is a number */
+        DOUBLE,
+        /** every value is a boolean (checkboxes) */
+        BOOLEAN,
+        /** every value is a String; stored as dictionary codes */
+        STRING,
+        /** a mix of types; stored as Objects */
+        OBJECT
+    }
+
+    private final Long sheetId;
+    private final Integer version;
+    private final long[] columnIds;
+    private final String[] titles;
+    private final Map<String, Integer> columnIndexByTitle;
+    private final long[] rowIds;
+    private final long[] sortedRowIds;
+    private final int[] sortedRowIndexes;
+    private final ColumnVector[] columns;
+
+    private SheetSnapshot(Sheet sheet) {
+        List<Column> columnList = sheet.getColumns() != null ? sheet.getColumns() : Collections.emptyList();
+        List<Row> rowList = sheet.getRows() != null ? sheet.getRows() : Collections.emptyList();
+        int numCols = columnList.size();
+        int numRows = rowList.size();
+
+        this.sheetId = sheet.getId();
+        this.version = sheet.getVersion();
+        this.columnIds = new long[numCols];
+        this.titles = new String[numCols];
+        this.columnIndexByTitle = new HashMap<>(numCols * 2);
+        Map<Long, Integer> columnIndexById = new HashMap<>(numCols * 2);
+        for (int c = 0; c < numCols; ++c) {
+            Column column = columnList.get(c);
+            columnIds[c] = column.getId();
+            titles[c] = column.getTitle();
+            columnIndexByTitle.putIfAbsent(column.getTitle(), c);
+            columnIndexById.put(column.getId(), c);
+        }
+
+        // gather values column-wise; the Object[] columns are only held while the vectors are built
+        Object[][] values = new Object[numCols][numRows];
+        this.rowIds = new long[numRows];
+        for (int r = 0; r < numRows; ++r) {
+            Row row = rowList.get(r);
+            rowIds[r] = row.getId() != null ? row.getId() : -1L;
+            List<Cell> cells = row.getCells();
+            if (cells == null) {
+                continue;
+            }
+            for (int i = 0; i < cells.size(); ++i) {
+                Cell cell = cells.get(i);
+                Long columnId = cell.getColumnId();
+                if (columnId == null) {
+                    continue;
+                }
+                // cells are normally in column order so try the matching position before the map
+                int c = i < numCols && columnIds[i] == columnId ? i : columnIndexById.getOrDefault(columnId, -1);
+                if (c >= 0) {
+                    values[c][r] = cell.getValue();
+                }
+            }
+        }
+        this.columns = new ColumnVector[numCols];
+        for (int c = 0; c < numCols; ++c) {
+            columns[c] = ColumnVector.build(values[c]);
+            values[c] = null;
+        }
+
+        // row-id -> row-index via binary search over the sorted ids (no boxing)
+        int[] order = new int[numRows];
+        for (int r = 0; r < numRows; ++r) {
+            order[r] = r;
+        }
+        sortIndexes(order, (a, b) -> Long.compare(rowIds[a], rowIds[b]));
+        this.sortedRowIds = new long[numRows];
+        this.sortedRowIndexes = new int[numRows];
+        for (int i = 0; i < numRows; ++i) {
+            sortedRowIds[i] = rowIds[order[i]];
+            sortedRowIndexes[i] = order[i];
+        }
+    }
+
+    /**
+     * @param sheet - a loaded sheet (with columns and rows)
+     * @return a columnar copy of the sheet's cell values
+     */
+    @Nonnull
+    public static SheetSnapshot of(@Nonnull Sheet sheet) {
+        return new SheetSnapshot(sheet);
+    }
+
+    public Long getSheetId() {
+        return sheetId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public int rowCount() {
+        return rowIds.length;
+    }
+
+    public int columnCount() {
+        return columns.length;
+    }
+
+    public long getRowId(int rowIndex) {
+        return rowIds[rowIndex];
+    }
+
+    public long getColumnId(int columnIndex) {
+        return columnIds[columnIndex];
+    }
+
+    public String getTitle(int columnIndex) {
+        return titles[columnIndex];
+    }
+
+    /**
+     * @return the index of the row with the specified id or -1 if not found
+     */
+    public int rowIndex(long rowId) {
+        int i = Arrays.binarySearch(sortedRowIds, rowId);
+        return i >= 0 ? sortedRowIndexes[i] : -1;
+    }
+
+    /**
+     * @return the index of the (first) column with the specified title or -1 if not found
+     */
+    public int columnIndex(@Nonnull String title) {
+        return columnIndexByTitle.getOrDefault(title, -1);
+    }
+
+    /**
+     * @return the index of the column with the specified id or -1 if not found
+     */
+    public int columnIndexById(long columnId) {
+        for (int c = 0; c < columnIds.length; ++c) {
+            if (columnIds[c] == columnId) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    @Nonnull
+    public ColumnVector column(int columnIndex) {
+        return columns[columnIndex];
+    }
+
+    @Nonnull
+    public ColumnVector column(@Nonnull String title) {
+        int c = columnIndex(title);
+        Preconditions.checkArgument(c >= 0, "no column titled '%s'", title);
+        return columns[c];
+    }
+
+    /**
+     * @return a view of the specified row (a single small object; no values are copied)
+     */
+    @Nonnull
+    public RowView row(int rowIndex) {
+        Preconditions.checkElementIndex(rowIndex, rowIds.length, "rowIndex");
+        return new RowView(rowIndex);
+    }
+
+    /**
+     * visit every row with a single reused view; don't hold onto the view outside the consumer
+     */
+    public void forEachRow(@Nonnull Consumer<? super RowView> visitor) {
+        RowView view = new RowView(0);
+        for (int r = 0; r < rowIds.length; ++r) {
+            view.index = r;
+            visitor.accept(view);
+        }
+    }
+
+    /**
+     * a cursor over one row of the snapshot; values are read straight from the column vectors
+     */
+    public class RowView {
+        private int index;
+
+        private RowView(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getRowId() {
+            return rowIds[index];
+        }
+
+        public boolean isNull(int columnIndex) {
+            return columns[columnIndex].isNull(index);
+        }
+
+        public long getLong(int columnIndex) {
+            return columns[columnIndex].getLong(index);
+        }
+
+        public double getDouble(int columnIndex) {
+            return columns[columnIndex].getDouble(index);
+        }
+
+        public boolean getBoolean(int columnIndex) {
+            return columns[columnIndex].getBoolean(index);
+        }
+
+        public String getString(int columnIndex) {
+            return columns[columnIndex].getString(index);
+        }
+
+        public Object getValue(int columnIndex) {
+            return columns[columnIndex].getValue(index);
+        }
+
+        public Object getValue(@Nonnull String title) {
+            return column(title).getValue(index);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder().append("{id:").append(getRowId());
+            for (int c = 0; c < columns.length; ++c) {
+                buf.append(", ").append(titles[c]).append(':').append(getValue(c));
+            }
+            return buf.append('}').toString();
+        }
+    }
+
+    /**
+     * stable sort of indexes (e.g. row indexes) by whatever they index; a merge sort of the int[] itself as
+     * Arrays.sort only takes a comparator for boxed values
+     *
+     * @param cmp - compares the things two indexes refer to
+     */
+    static void sortIndexes(int[] indexes, IntBinaryOperator cmp) {
+        if (indexes.length > 1) {
+            mergeSort(indexes.clone(), indexes, 0, indexes.length, cmp);
+        }
+    }
+
+    // sorts src[from, to) into dst[from, to); src & dst start with the same contents
+    private static void mergeSort(int[] src, int[] dst, int from, int to, IntBinaryOperator cmp) {
+        if (to - from < 8) {
+            for (int i = from + 1; i < to; ++i) {
+                int index = dst[i];
+                int j = i;
+                for (; j > from && cmp.applyAsInt(dst[j - 1], index) > 0; --j) {
+                    dst[j] = dst[j - 1];
+                }
+                dst[j] = index;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, cmp);
+        mergeSort(dst, src, mid, to, cmp);
+        if (cmp.applyAsInt(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dst, from, to - from);
+            return;
+        }
+        for (int i = from, l = from, r = mid; i < to; ++i) {
+            dst[i] = r >= to || (l < mid && cmp.applyAsInt(src[l], src[r]) <= 0) ? src[l++] : src[r++];
+        }
+    }
+
+    /**
+     * the values of one column for every row of the snapshot
+     */
+    public static final class ColumnVector {
+        private final ColumnKind kind;
+        private final int size;
+        private final BitSet present;   // bit set if the row has a value
+        private final long[] longs;
+        private final double[] doubles;
+        private final BitSet booleans;
+        private final int[] codes;
+        private final String[] dictionary;
+        private final Map<String, Integer> codeByValue;
+        private final Object[] objects;
+
+        private ColumnVector(ColumnKind kind, int size, BitSet present, long[] longs, double[] doubles, BitSet booleans,
+                             int[] codes, String[] dictionary, Map<String, Integer> codeByValue, Object[] objects) {
+            this.kind = kind;
+            this.size = size;
+            this.present = present;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.booleans = booleans;
+            this.codes = codes;
+            this.dictionary = dictionary;
+            this.codeByValue = codeByValue;
+            this.objects = objects;
+        }
+
+        private static ColumnVector build(Object[] values) {
+            int size = values.length;
+            BitSet present = new BitSet(size);
+            boolean allIntegral = true, allNumbers = true, allBooleans = true, allStrings = true;
+            for (int r = 0; r < size; ++r) {
+                Object value = values[r];
+                if (value == null) {
+                    continue;
+                }
+                present.set(r);
+                boolean number = value instanceof Number;
+                allNumbers &= number;
+                allIntegral &= number && (value instanceof Long || value instanceof Integer || value instanceof Short
+                        || value instanceof Byte);
+                allBooleans &= value instanceof Boolean;
+                allStrings &= value instanceof String;
+            }
+
+            if (present.isEmpty()) {
+                return new ColumnVector(ColumnKind.EMPTY, size, present, null, null, null, null, null, null, null);
+            }
+            if (allIntegral) {
+                long[] longs = new long[size];
+                for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                    longs[r] = ((Number) values[r]).longValue();
+                }
+                return new ColumnVector(ColumnKind.LONG, size, present, longs, null, null, null, null, null, null);
+            }
+            if (allNumbers) {
+                double[] doubles = new double[size];
+                for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                    doubles[r] = ((Number) values[r]).doubleValue();
+                }
+                return new ColumnVector(ColumnKind.DOUBLE, size, present, null, doubles, null, null, null, null, null);
+            }
+            if (allBooleans) {
+                BitSet booleans = new BitSet(size);
+                for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                    booleans.set(r, (Boolean) values[r]);
+                }
+                return new ColumnVector(ColumnKind.BOOLEAN, size, present, null, null, booleans, null, null, null, null);
+            }
+            if (allStrings) {
+                int[] codes = new int[size];
+                Map<String, Integer> codeByValue = new HashMap<>();
+                for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                    codes[r] = codeByValue.computeIfAbsent((String) values[r], (v) -> codeByValue.size());
+                }
+                String[] dictionary = new String[codeByValue.size()];
+                codeByValue.forEach((value, code) -> dictionary[code] = value);
+                return new ColumnVector(ColumnKind.STRING, size, present, null, null, null, codes, dictionary,
+                        codeByValue, null);
+            }
+            return new ColumnVector(ColumnKind.OBJECT, size, present, null, null, null, null, null, null,
+                    Arrays.copyOf(values, size));
+        }
+
+        public ColumnKind getKind() {
+            return kind;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int nonNullCount() {
+            return present.cardinality();
+        }
+
+        public boolean isNull(int row) {
+            return !present.get(row);
+        }
+
+        /**
+         * @return the value as a long (0 if null); only valid for LONG & DOUBLE columns
+         */
+        public long getLong(int row) {
+            switch (kind) {
+                case LONG:
+                    return longs[row];
+                case DOUBLE:
+                    return (long) doubles[row];
+                case EMPTY:
+                    return 0L;
+                default:
+                    throw new IllegalStateException("not a numeric column: " + kind);
+            }
+        }
+
+        /**
+         * @return the value as a double (NaN if null); only valid for LONG & DOUBLE columns
+         */
+        public double getDouble(int row) {
+            if (isNull(row)) {
+                return Double.NaN;
+            }
+            switch (kind) {
+                case LONG:
+                    return longs[row];
+                case DOUBLE:
+                    return doubles[row];
+                default:
+                    throw new IllegalStateException("not a numeric column: " + kind);
+            }
+        }
+
+        /**
+         * @return the value as a boolean (false if null); only valid for BOOLEAN columns
+         */
+        public boolean getBoolean(int row) {
+            if (kind == ColumnKind.EMPTY) {
+                return false;
+            }
+            Preconditions.checkState(kind == ColumnKind.BOOLEAN, "not a boolean column: %s", kind);
+            return booleans.get(row);
+        }
+
+        /**
+         * @return the value as a String (null if null); for STRING columns no String is created
+         */
+        public String getString(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            return kind == ColumnKind.STRING ? dictionary[codes[row]] : String.valueOf(getValue(row));
+        }
+
+        /**
+         * @return the dictionary code of a STRING column's value (-1 if null)
+         */
+        public int getCode(int row) {
+            Preconditions.checkState(kind == ColumnKind.STRING, "not a string column: %s", kind);
+            return isNull(row) ? -1 : codes[row];
+        }
+
+        /**
+         * @return the dictionary code for the specified value of a STRING column or -1 if no row has that value
+         */
+        public int codeOf(String value) {
+            return codeByValue != null ? codeByValue.getOrDefault(value, -1) : -1;
+        }
+
+        public int dictionarySize() {
+            return dictionary != null ? dictionary.length : 0;
+        }
+
+        public String dictionaryValue(int code) {
+            return dictionary[code];
+        }
+
+        /**
+         * @return the value boxed as the type it had in the Sheet (allocates for numeric columns)
+         */
+        public Object getValue(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            switch (kind) {
+                case LONG:
+                    return longs[row];
+                case DOUBLE:
+                    return doubles[row];
+                case BOOLEAN:
+                    return booleans.get(row);
+                case STRING:
+                    return dictionary[codes[row]];
+                case OBJECT:
+                    return objects[row];
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * visit the index of every row that has a value
+         */
+        public void forEachNonNull(@Nonnull IntConsumer visitor) {
+            for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                visitor.accept(r);
+            }
+        }
+
+        /**
+         * @return the rows whose (numeric) value matches
+         */
+        @Nonnull
+        public BitSet matchDoubles(@Nonnull DoublePredicate match) {
+            BitSet matches = new BitSet(size);
+            for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                if (match.test(getDouble(r))) {
+                    matches.set(r);
+                }
+            }
+            return matches;
+        }
+
+        /**
+         * @return the rows whose (String) value matches; for STRING columns the predicate is tested once per distinct
+         * value rather than once per row
+         */
+        @Nonnull
+        public BitSet matchStrings(@Nonnull Predicate<String> match) {
+            BitSet matches = new BitSet(size);
+            if (kind == ColumnKind.STRING) {
+                boolean[] codeMatches = new boolean[dictionary.length];
+                for (int code = 0; code < dictionary.length; ++code) {
+                    codeMatches[code] = match.test(dictionary[code]);
+                }
+                for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                    if (codeMatches[codes[r]]) {
+                        matches.set(r);
+                    }
+                }
+            } else {
+                for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                    if (match.test(getString(r))) {
+                        matches.set(r);
+                    }
+                }
+            }
+            return matches;
+        }
+
+        /**
+         * @return the sum of a numeric column's values (nulls ignored)
+         */
+        public double sum() {
+            double sum = 0;
+            for (int r = present.nextSetBit(0); r >= 0; r = present.nextSetBit(r + 1)) {
+                sum += getDouble(r);
+            }
+            return sum;
+        }
+    }
+}
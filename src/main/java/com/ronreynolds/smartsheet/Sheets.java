@@ -7,21 +7,26 @@ import com.smartsheet.api.models.Cell;
 import com.smartsheet.api.models.Column;
 import com.smartsheet.api.models.ContainerDestination;
 import com.smartsheet.api.models.Folder;
-import com.smartsheet.api.models.PagedResult;
 import com.smartsheet.api.models.Row;
 import com.smartsheet.api.models.Sheet;
 import com.smartsheet.api.models.Workspace;
 import com.smartsheet.api.models.enums.DestinationType;
+import com.smartsheet.api.models.enums.ObjectExclusion;
 import lombok.NonNull;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 /**
@@ -29,6 +34,11 @@ import java.util.stream.Collectors;
  */
 @SuppressWarnings("unused")
 public class Sheets {
+    /**
+     * max row ids per delete call; the ids go in the url so this keeps it well below common url-length limits
+     */
+    public static final int MAX_DELETE_CHUNK_SIZE = 200;
+
     static String LINE_DELIMITER = "";    // no line-breaks by default
 
     @NonNull
@@ -44,24 +54,32 @@ public class Sheets {
     public static CharSequence toString(@NonNull Sheet sheet, Smartsheet client, ToStringOptions... options)
             throws SmartsheetException {
         StringBuilder buf = new StringBuilder();
-        buf.append(String.format("{{id:%d%s name:'%s'%s rowCount:%d%s version:%d%s owner:%s(%d)%s source:%s%s accessLevel:%s%s " +
-                        "readOnly:%s%s link:%s%s ganttEnabled:%s%s dependEnabled:%s%s resMgmntEnabled:%s%s favorite:%s%s}%n",
-                sheet.getId(), LINE_DELIMITER, sheet.getName(), LINE_DELIMITER, sheet.getTotalRowCount(), LINE_DELIMITER,
-                sheet.getVersion(), LINE_DELIMITER, sheet.getOwner(), sheet.getOwnerId(), LINE_DELIMITER,
-                sheet.getSource(), LINE_DELIMITER, sheet.getAccessLevel(), LINE_DELIMITER, sheet.getReadOnly(),
-                LINE_DELIMITER, sheet.getPermalink(), LINE_DELIMITER, sheet.getGanttEnabled(), LINE_DELIMITER,
-                sheet.getDependenciesEnabled(), LINE_DELIMITER, sheet.getResourceManagementEnabled(), LINE_DELIMITER,
-                sheet.isFavorite(), LINE_DELIMITER));
+        try {
+            toString(buf, sheet, client, DebugRenderer.unlimited(), options);
+        } catch (IOException e) {
+            throw new IllegalStateException("should be impossible", e);
+        }
+        return buf;
+    }
+
+    /**
+     * write the sheet (and optionally its columns and rows) directly to out
+     *
+     * @param client   - only used by WITH_COLUMNS if the sheet's columns aren't loaded (may be null)
+     * @param renderer - controls truncation of rows & cells
+     */
+    public static void toString(@NonNull Appendable out, @NonNull Sheet sheet, Smartsheet client,
+                                @NonNull DebugRenderer renderer, ToStringOptions... options)
+            throws SmartsheetException, IOException {
+        renderer.appendSheet(out, sheet);
         if (options != null && options.length > 0) {
             for (ToStringOptions option : options) {
                 if (option != null) {
-                    option.appendData(buf, sheet, client);
+                    option.appendData(out, sheet, client, renderer);
                 }
             }
         }
-
-        buf.append("}");
-        return buf;
+        out.append("}");
     }
 
     public static Row addRow(@NonNull Smartsheet client, long sheetId, @NonNull Supplier<Row> rowProvider) throws SmartsheetException {
@@ -69,21 +87,45 @@ public class Sheets {
         return rows.isEmpty() ? null : rows.get(0);
     }
 
+    /**
+     * add rows to a sheet in chunks (see {@link BatchRunner#defaults()}); results are in the same order as rowData
+     *
+     * @param cb - optional callback given the new rows of each chunk as it completes
+     * @throws BatchRunner.BatchException if any chunk failed (the other chunks are still added)
+     */
     @NonNull
     public static List<Row> addRows(@NonNull Smartsheet client, long sheetId, @NonNull List<Row> rowData,
                                     Consumer<List<Row>> cb) throws SmartsheetException {
-        List<Row> newRows = client.sheetResources().rowResources().addRows(sheetId, rowData);
-        Preconditions.checkState(rowData.size() == newRows.size(), "%s rows sent, only %s returned", rowData.size(),
-                newRows.size());
-        if (cb != null) {
-            cb.accept(newRows);
-        }
-        return newRows;
+        return addRows(client, sheetId, rowData, cb, BatchRunner.defaults());
     }
 
+    @NonNull
+    public static List<Row> addRows(@NonNull Smartsheet client, long sheetId, @NonNull List<Row> rowData,
+                                    Consumer<List<Row>> cb, @NonNull BatchRunner batcher) throws SmartsheetException {
+        return batcher.run(rowData, (chunk) -> Metrics.timed("Sheets.addRows", () -> {
+            List<Row> newRows = client.sheetResources().rowResources().addRows(sheetId, chunk);
+            Preconditions.checkState(chunk.size() == newRows.size(), "%s rows sent, only %s returned", chunk.size(),
+                    newRows.size());
+            Metrics.rowsTransferred("Sheets.addRows", chunk);
+            return newRows;
+        }), cb);
+    }
+
+    /**
+     * update rows of a sheet in chunks (see {@link BatchRunner#defaults()}); results are in the same order as rowData
+     *
+     * @param cb - optional callback given the updated rows of each chunk as it completes
+     * @throws BatchRunner.BatchException if any chunk failed (the other chunks are still updated)
+     */
     @NonNull
     public static List<Row> updateRows(@NonNull Smartsheet client, long sheetId, @NonNull List<Row> rowData,
                                        Consumer<List<Row>> cb) throws SmartsheetException {
+        return updateRows(client, sheetId, rowData, cb, BatchRunner.defaults());
+    }
+
+    @NonNull
+    public static List<Row> updateRows(@NonNull Smartsheet client, long sheetId, @NonNull List<Row> rowData,
+                                       Consumer<List<Row>> cb, @NonNull BatchRunner batcher) throws SmartsheetException {
         // be sure all forbidden fields are cleared
         // InvalidRequestException: The attribute(s) row.rowNumber, row.createdAt, row.modifiedAt, row.sheetId are not allowed for this operation.
         rowData.forEach((row) -> {
@@ -92,13 +134,73 @@ public class Sheets {
             row.setModifiedAt(null);
             row.setSheetId(null);
         });
-        List<Row> newRows = client.sheetResources().rowResources().updateRows(sheetId, rowData);
-        Preconditions.checkState(rowData.size() == newRows.size(), "%s rows sent, only %s returned", rowData.size(),
-                newRows.size());
-        if (cb != null) {
-            cb.accept(newRows);
+        return batcher.run(rowData, (chunk) -> Metrics.timed("Sheets.updateRows", () -> {
+            List<Row> newRows = client.sheetResources().rowResources().updateRows(sheetId, chunk);
+            Preconditions.checkState(chunk.size() == newRows.size(), "%s rows sent, only %s returned", chunk.size(),
+                    newRows.size());
+            Metrics.rowsTransferred("Sheets.updateRows", chunk);
+            return newRows;
+        }), cb);
+    }
+
+    /**
+     * update only the cells & attributes of rowData that differ from the original rows (matched by id); rows without
+     * changes aren't sent at all
+     *
+     * @param originals - the rows as they are in the sheet (e.g. from {@link #getWholeSheet})
+     * @param diff      - does the comparison and counts the skipped cells & rows
+     * @return the updated rows (only those that changed)
+     */
+    @NonNull
+    public static List<Row> updateChangedRows(@NonNull Smartsheet client, long sheetId, @NonNull List<Row> originals,
+                                              @NonNull List<Row> rowData, Consumer<List<Row>> cb,
+                                              @NonNull RowDiff diff) throws SmartsheetException {
+        return updateChangedRows(client, sheetId, originals, rowData, cb, diff, BatchRunner.defaults());
+    }
+
+    @NonNull
+    public static List<Row> updateChangedRows(@NonNull Smartsheet client, long sheetId, @NonNull List<Row> originals,
+                                              @NonNull List<Row> rowData, Consumer<List<Row>> cb,
+                                              @NonNull RowDiff diff, @NonNull BatchRunner batcher)
+            throws SmartsheetException {
+        List<Row> changes = diff.diffAll(originals, rowData);
+        if (changes.isEmpty()) {
+            return Collections.emptyList();
         }
-        return newRows;
+        return updateRows(client, sheetId, changes, cb, batcher);
+    }
+
+    /**
+     * insert or update records by the value of a key column (see {@link RowUpsert}); fetches the whole sheet to index
+     * the existing rows
+     *
+     * @param keyColumnTitle - title of the column whose value identifies a record
+     * @param records        - rows (with cells) as they should be
+     */
+    @NonNull
+    public static RowUpsert.Result upsertRows(@NonNull Smartsheet client, long sheetId, @NonNull String keyColumnTitle,
+                                              @NonNull List<Row> records, @NonNull RowUpsert.Options options)
+            throws SmartsheetException {
+        Sheet sheet = getWholeSheet(client, sheetId);
+        return RowUpsert.upsert(client, sheet, Columns.getColumnId(sheet, keyColumnTitle), records, options);
+    }
+
+    @NonNull
+    public static RowUpsert.Result upsertRows(@NonNull Smartsheet client, long sheetId, long keyColumnId,
+                                              @NonNull List<Row> records, @NonNull RowUpsert.Options options)
+            throws SmartsheetException {
+        return RowUpsert.upsert(client, getWholeSheet(client, sheetId), keyColumnId, records, options);
+    }
+
+    /**
+     * like {@link #upsertRows(Smartsheet, long, long, List, RowUpsert.Options)} but using an already loaded sheet
+     * (which must have all its rows)
+     */
+    @NonNull
+    public static RowUpsert.Result upsertRows(@NonNull Smartsheet client, @NonNull Sheet sheet, long keyColumnId,
+                                              @NonNull List<Row> records, @NonNull RowUpsert.Options options)
+            throws SmartsheetException {
+        return RowUpsert.upsert(client, sheet, keyColumnId, records, options);
     }
 
     @NonNull
@@ -117,37 +219,190 @@ public class Sheets {
     }
 
     public static Sheet getWholeSheet(@NonNull Smartsheet client, long sheetId) throws SmartsheetException {
-        return client.sheetResources().getSheet(sheetId, Constants.ALL_SHEET_INCLUSIONS, Constants.NO_OBJECT_EXCLUSIONS,
-                Constants.ALL_ROW_IDS, Constants.ALL_ROW_NUMBERS, Constants.ALL_COLUMN_IDS, Constants.NO_PAGE_SIZE_LIMIT,
-                Constants.ALL_PAGE_NUMBERS);
+        Sheet sheet = Metrics.timed("Sheets.getWholeSheet", () -> client.sheetResources().getSheet(sheetId,
+                Constants.ALL_SHEET_INCLUSIONS, Constants.NO_OBJECT_EXCLUSIONS, Constants.ALL_ROW_IDS,
+                Constants.ALL_ROW_NUMBERS, Constants.ALL_COLUMN_IDS, Constants.NO_PAGE_SIZE_LIMIT,
+                Constants.ALL_PAGE_NUMBERS));
+        if (sheet != null) {
+            Metrics.rowsTransferred("Sheets.getWholeSheet", sheet.getRows());
+        }
+        return sheet;
     }
 
     public static Sheet getSheetNoRows(@NonNull Smartsheet client, long sheetId) throws SmartsheetException {
-        return client.sheetResources().getSheet(sheetId, Constants.NORMAL_SHEET_INCLUSIONS, Constants.ALL_OBJECT_EXCLUSIONS,
-                Collections.emptySet(), Collections.emptySet(), Constants.ALL_COLUMN_IDS, Constants.NO_PAGE_SIZE_LIMIT,
-                Constants.ALL_PAGE_NUMBERS);
+        return Metrics.timed("Sheets.getSheetNoRows", () -> client.sheetResources().getSheet(sheetId,
+                Constants.NORMAL_SHEET_INCLUSIONS, Constants.ALL_OBJECT_EXCLUSIONS, Collections.emptySet(),
+                Collections.emptySet(), Constants.ALL_COLUMN_IDS, Constants.NO_PAGE_SIZE_LIMIT,
+                Constants.ALL_PAGE_NUMBERS));
+    }
+
+    /**
+     * stream the rows of a sheet one page at a time (rather than loading them all like {@link #getWholeSheet})
+     *
+     * @param pageSize - number of rows fetched per API call
+     * @return a lazy Stream of rows; close it to stop fetching pages
+     * @throws SmartsheetException if the sheet can't be fetched (failures fetching later pages are IllegalStateException)
+     */
+    @NonNull
+    public static Stream<Row> streamRows(@NonNull Smartsheet client, long sheetId, int pageSize) throws SmartsheetException {
+        return streamRows(client, sheetId, pageSize, false);
+    }
+
+    /**
+     * @param prefetch - if true the next page is fetched in the background while the current one is consumed
+     */
+    @NonNull
+    public static Stream<Row> streamRows(@NonNull Smartsheet client, long sheetId, int pageSize, boolean prefetch)
+            throws SmartsheetException {
+        return rowPager(client, sheetId, pageSize, prefetch).stream();
+    }
+
+    /**
+     * like {@link #streamRows} but as an Iterator that also exposes the sheet's columns (fetched once for all pages)
+     */
+    @NonNull
+    public static RowPager rowPager(@NonNull Smartsheet client, long sheetId, int pageSize, boolean prefetch)
+            throws SmartsheetException {
+        return new RowPager(client, sheetId, pageSize, prefetch ? BatchRunner.sharedExecutor() : null);
     }
 
     @NonNull
     public static List<Sheet> findByName(@NonNull Smartsheet client, @NonNull String sheetName) throws SmartsheetException {
         List<Sheet> results = new ArrayList<>();
-        client.sheetResources().listSheets(Constants.ALL_SOURCES, Constants.NO_PAGINATION, null).getData()
+        Metrics.timed("Sheets.findByName",
+                () -> client.sheetResources().listSheets(Constants.ALL_SOURCES, Constants.NO_PAGINATION, null))
+                .getData()
                 .forEach((sheet) -> {
                     if (sheet.getName().equals(sheetName)) results.add(sheet);
                 });
         return results;
     }
 
+    /**
+     * @param catalog - if non-null the name is looked up in the catalog rather than by listing all sheets
+     */
+    @NonNull
+    public static List<Sheet> findByName(@NonNull Smartsheet client, @NonNull String sheetName, Catalog catalog)
+            throws SmartsheetException {
+        return catalog != null ? catalog.findSheets(sheetName) : findByName(client, sheetName);
+    }
+
     /**
      * remove all the rows from the specified sheet
      */
     public static void clearRows(@NonNull Smartsheet client, @NonNull Sheet sheet) throws SmartsheetException {
         // check if sheet already has no rows;
         // otherwise this call fails with "InvalidRequestException: A required parameter is missing from your request: ids."
-        Set<Long> rowIds = sheet.getRows().stream().map(Row::getId).collect(Collectors.toSet());
+        List<Long> rowIds = sheet.getRows().stream().map(Row::getId).collect(Collectors.toList());
         if (!rowIds.isEmpty()) {
-            client.sheetResources().rowResources().deleteRows(sheet.getId(), rowIds, true);
+            deleteRows(client, sheet.getId(), rowIds);
+        }
+    }
+
+    /**
+     * remove all the rows from the specified sheet without loading it; only the row ids are fetched. the deletes are
+     * sent one chunk at a time (see {@link BatchRunner#defaults()}).
+     *
+     * @return the ids of the deleted rows
+     */
+    @NonNull
+    public static List<Long> clearRows(@NonNull Smartsheet client, long sheetId) throws SmartsheetException {
+        return clearRows(client, sheetId, BatchRunner.defaults());
+    }
+
+    /**
+     * @param batcher - concurrency of the deletes (chunks are capped at {@link #MAX_DELETE_CHUNK_SIZE}); concurrent
+     *                deletes from one sheet may be rejected with error 4004
+     */
+    @NonNull
+    public static List<Long> clearRows(@NonNull Smartsheet client, long sheetId, @NonNull BatchRunner batcher)
+            throws SmartsheetException {
+        return deleteRows(client, sheetId, getRowIds(client, sheetId), batcher);
+    }
+
+    /**
+     * delete the rows whose cell in the column matches the condition (one chunk at a time); only that column is fetched
+     *
+     * @param condition - given the row's cell in the column (an empty cell if the row has none)
+     * @return the ids of the deleted rows
+     */
+    @NonNull
+    public static List<Long> deleteRowsWhere(@NonNull Smartsheet client, long sheetId, long columnId,
+                                             @NonNull Predicate<Cell> condition) throws SmartsheetException {
+        return deleteRowsWhere(client, sheetId, columnId, condition, BatchRunner.defaults());
+    }
+
+    @NonNull
+    public static List<Long> deleteRowsWhere(@NonNull Smartsheet client, long sheetId, long columnId,
+                                             @NonNull Predicate<Cell> condition, @NonNull BatchRunner batcher)
+            throws SmartsheetException {
+        List<Long> rowIds = new ArrayList<>();
+        for (Row row : fetchRowSkeleton(client, sheetId, columnId, "Sheets.deleteRowsWhere")) {
+            Cell cell = row.getCells() != null && !row.getCells().isEmpty() ? row.getCells().get(0) : new Cell(columnId);
+            if (condition.test(cell)) {
+                rowIds.add(row.getId());
+            }
+        }
+        return deleteRows(client, sheetId, rowIds, batcher);
+    }
+
+    /**
+     * @return the ids of all the rows in the sheet (in order); no cell data is fetched
+     */
+    @NonNull
+    public static List<Long> getRowIds(@NonNull Smartsheet client, long sheetId) throws SmartsheetException {
+        Sheet sheet = getSheetNoRows(client, sheetId);
+        List<Column> columns = sheet.getColumns();
+        if (columns == null || columns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long primaryColumnId = columns.stream().filter(c -> Boolean.TRUE.equals(c.getPrimary()))
+                .map(Column::getId).findFirst().orElse(columns.get(0).getId());
+        return fetchRowSkeleton(client, sheetId, primaryColumnId, "Sheets.getRowIds").stream()
+                .map(Row::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * delete rows in chunks small enough for the url (the ids are a query parameter), one chunk at a time; rows that
+     * are already gone are ignored. retries are left to the client (as for {@link #addRows} & {@link #updateRows}).
+     *
+     * @return the ids of the deleted rows
+     * @throws BatchRunner.BatchException if any chunk failed; it carries the ids that were deleted
+     */
+    @NonNull
+    public static List<Long> deleteRows(@NonNull Smartsheet client, long sheetId, @NonNull Collection<Long> rowIds)
+            throws SmartsheetException {
+        return deleteRows(client, sheetId, rowIds, BatchRunner.defaults());
+    }
+
+    /**
+     * @param batcher - concurrency of the deletes (chunks are capped at {@link #MAX_DELETE_CHUNK_SIZE}); concurrent
+     *                deletes from one sheet may be rejected with error 4004
+     */
+    @NonNull
+    public static List<Long> deleteRows(@NonNull Smartsheet client, long sheetId, @NonNull Collection<Long> rowIds,
+                                        @NonNull BatchRunner batcher) throws SmartsheetException {
+        if (rowIds.isEmpty()) {
+            return Collections.emptyList();  // the API rejects a delete without ids
         }
+        return batcher.withMaxChunkSize(MAX_DELETE_CHUNK_SIZE).run(new ArrayList<>(rowIds), (chunk) -> {
+            List<Long> deleted = Metrics.timed("Sheets.deleteRows",
+                    () -> client.sheetResources().rowResources().deleteRows(sheetId, new HashSet<>(chunk), true));
+            Metrics.transferred("Sheets.deleteRows", ApiMetrics.Unit.ROWS, deleted.size());
+            return deleted;
+        }, null);
+    }
+
+    /**
+     * @return the rows of the sheet with at most the one column's cell each (empty cells are excluded)
+     */
+    static List<Row> fetchRowSkeleton(Smartsheet client, long sheetId, long columnId, String operation)
+            throws SmartsheetException {
+        Sheet skeleton = Metrics.timed(operation, () -> client.sheetResources().getSheet(sheetId,
+                Constants.NO_SHEET_INCLUSIONS, EnumSet.of(ObjectExclusion.NONEXISTENT_CELLS), Constants.ALL_ROW_IDS,
+                Constants.ALL_ROW_NUMBERS, Collections.singleton(columnId), Constants.NO_PAGE_SIZE_LIMIT,
+                Constants.ALL_PAGE_NUMBERS));
+        return skeleton != null && skeleton.getRows() != null ? skeleton.getRows() : Collections.emptyList();
     }
 
     @NonNull
@@ -159,7 +414,8 @@ public class Sheets {
             destination.setDestinationType(folder instanceof Workspace ? DestinationType.WORKSPACE : DestinationType.FOLDER);
         }
         destination.setNewName(newSheetName);
-        Sheet newSheet = client.sheetResources().copySheet(original.getId(), destination, Constants.ALL_SHEET_COPY_INCLUSIONS);
+        Sheet newSheet = Metrics.timed("Sheets.copyAndRefresh", () -> client.sheetResources()
+                .copySheet(original.getId(), destination, Constants.ALL_SHEET_COPY_INCLUSIONS));
         long newSheetId = newSheet.getId();
         return Objects.requireNonNull(Sheets.getSheetNoRows(client, newSheetId), "failed to find cloned sheet id:" + newSheetId);
     }
@@ -172,37 +428,34 @@ public class Sheets {
     public enum ToStringOptions {
         WITH_COLUMNS {
             @Override
-            void appendData(@NonNull StringBuilder buf, @NonNull Sheet sheet, @NonNull Smartsheet client) throws SmartsheetException {
-                PagedResult<Column> columnPage = client.sheetResources().columnResources().listColumns(sheet.getId(), null, Constants.ALL_PAGES);
-                List<Column> columns = columnPage.getData();
-                buf.append(String.format("%ncolumns:{num:%d data:{%n", columns.size()));
-                for (Column col : columns) {
-                    buf.append(col.getId()).append(":'").append(col.getTitle()).append("',").append(LINE_DELIMITER);
+            void appendData(@NonNull Appendable out, @NonNull Sheet sheet, Smartsheet client,
+                            @NonNull DebugRenderer renderer) throws SmartsheetException, IOException {
+                // only ask the API if the sheet was fetched without its columns
+                List<Column> columns = sheet.getColumns();
+                if (columns == null && client != null) {
+                    columns = Metrics.timed("Sheets.toString", () -> client.sheetResources().columnResources()
+                            .listColumns(sheet.getId(), null, Constants.ALL_PAGES)).getData();
                 }
-                buf.append("}}");
+                renderer.appendColumns(out, columns != null ? columns : Collections.emptyList());
             }
         },
         WITH_ROW_CONTENT {
             @Override
-            void appendData(@NonNull StringBuilder buf, @NonNull Sheet sheet, @NonNull Smartsheet client) throws SmartsheetException {
-                buf.append("{rows:{");
-                for (Row row : sheet.getRows()) {
-                    buf.append(row.getId()).append(":[");
-                    for (Cell cell : row.getCells()) {
-                        buf.append(cell.getValue()).append(',').append(LINE_DELIMITER);
-                    }
-                    buf.append("],\n");
-                }
-                buf.append("}}\n");
+            void appendData(@NonNull Appendable out, @NonNull Sheet sheet, Smartsheet client,
+                            @NonNull DebugRenderer renderer) throws IOException {
+                List<Row> rows = sheet.getRows() != null ? sheet.getRows() : Collections.emptyList();
+                renderer.appendRowContent(out, rows.iterator(), rows.size());
             }
         }, ALL {
             @Override
-            void appendData(@NonNull StringBuilder buf, @NonNull Sheet sheet, @NonNull Smartsheet client) throws SmartsheetException {
-                WITH_COLUMNS.appendData(buf, sheet, client);
-                WITH_ROW_CONTENT.appendData(buf, sheet, client);
+            void appendData(@NonNull Appendable out, @NonNull Sheet sheet, Smartsheet client,
+                            @NonNull DebugRenderer renderer) throws SmartsheetException, IOException {
+                WITH_COLUMNS.appendData(out, sheet, client, renderer);
+                WITH_ROW_CONTENT.appendData(out, sheet, client, renderer);
             }
         };
 
-        abstract void appendData(@NonNull StringBuilder buf, @NonNull Sheet sheet, @NonNull Smartsheet client) throws SmartsheetException;
+        abstract void appendData(@NonNull Appendable out, @NonNull Sheet sheet, Smartsheet client,
+                                 @NonNull DebugRenderer renderer) throws SmartsheetException, IOException;
     }
 }
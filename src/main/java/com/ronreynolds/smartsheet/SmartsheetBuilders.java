@@ -5,10 +5,17 @@ import com.smartsheet.api.SmartsheetBuilder;
 import com.smartsheet.api.Trace;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  *
  */
 public class SmartsheetBuilders {
+    private static final Map<String, RateScheduler> SHARED_SCHEDULERS = new ConcurrentHashMap<>();
+
     public static Smartsheet getDefaultClient() {
         return getClientWithAuthAndUri(null, null);
     }
@@ -30,6 +37,32 @@ public class SmartsheetBuilders {
         return builder;
     }
 
+    /**
+     * @return a client whose requests are all paced by the specified (shared) scheduler
+     */
+    public static Smartsheet getClientWithAuth(String authToken, @Nonnull RateScheduler scheduler) {
+        return getClientWithAuthAndUri(authToken, null, scheduler);
+    }
+
+    public static Smartsheet getClientWithAuthAndUri(String authToken, String baseUri, @Nonnull RateScheduler scheduler) {
+        return getBuilderWithAuthAndUri(authToken, baseUri).setHttpClient(new ThrottledHttpClient(scheduler)).build();
+    }
+
+    /**
+     * @return the scheduler shared by every throttled client of the specified token (the default token if blank)
+     */
+    public static RateScheduler getSharedScheduler(String authToken) {
+        String token = StringUtils.isNotBlank(authToken) ? authToken : Objects.toString(Constants.DEFAULT_AUTH, "");
+        return SHARED_SCHEDULERS.computeIfAbsent(token, (t) -> new RateScheduler());
+    }
+
+    /**
+     * @return a client paced by the scheduler shared by all throttled clients of the same token
+     */
+    public static Smartsheet getThrottledClientWithAuth(String authToken) {
+        return getClientWithAuth(authToken, getSharedScheduler(authToken));
+    }
+
     public static void enableDebug(Smartsheet api, boolean prettyOutput) {
         api.setTraces(Trace.Request, Trace.RequestBody, Trace.Response, Trace.ResponseBody);
         api.setTracePrettyPrint(prettyOutput);
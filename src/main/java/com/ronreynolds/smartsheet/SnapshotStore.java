@@ -0,0 +1,354 @@
+package com.ronreynolds.smartsheet;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.base.Preconditions;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.internal.json.ObjectValueDeserializer;
+import com.smartsheet.api.models.ObjectValue;
+import com.smartsheet.api.models.PrimitiveObjectValue;
+import com.smartsheet.api.models.Sheet;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * whole sheets saved on local disk (one Smile-encoded file per sheet, named for its id and version) so a restarted
+ * process needn't download them again; {@link #getSheet} checks the sheet's version with the server (a cheap call)
+ * and only fetches the sheet if the snapshot is missing or stale.
+ * <p>
+ * files are read through a memory-mapped buffer. writes go to a temp file that's fsync'd then renamed over the old
+ * snapshot so a crash leaves either the old or the new one (leftover temp files are removed on open). once the
+ * snapshots exceed maxBytes the least-recently-used are deleted.
+ * <p>
+ * objectValues are written as the API sends them (primitives as plain values, the rest tagged by objectType) and read
+ * back with the SDK's own deserializer so a snapshot reads back the same as a fetch.
+ */
+@Slf4j
+public class SnapshotStore {
+    static final String SUFFIX = ".smile";
+    static final String TMP_SUFFIX = ".tmp";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper(new SmileFactory())
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .registerModule(new SimpleModule("ObjectValue")
+                    .addSerializer(PrimitiveObjectValue.class, new PrimitiveObjectValueSerializer())
+                    .addDeserializer(ObjectValue.class, new ObjectValueDeserializer()));
+    private static final ObjectReader READER = MAPPER.readerFor(Sheet.class);
+    private static final ObjectWriter WRITER = MAPPER.writerFor(Sheet.class);
+
+    /**
+     * writes a primitive objectValue as its plain value (as the API does) rather than as a bean
+     */
+    private static class PrimitiveObjectValueSerializer extends StdSerializer<ObjectValue> {
+        PrimitiveObjectValueSerializer() {
+            super(ObjectValue.class);
+        }
+
+        @Override
+        public void serialize(ObjectValue value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeObject(((PrimitiveObjectValue<?>) value).getValue());
+        }
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param dir      - where the snapshots are kept (created if need be)
+     * @param maxBytes - max total size of the snapshots
+     */
+    public SnapshotStore(@Nonnull Path dir, long maxBytes) throws IOException {
+        Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive: %s", maxBytes);
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        scan();
+    }
+
+    /**
+     * @return the current version of the sheet; from its snapshot if that's current otherwise fetched (and saved)
+     * @throws SmartsheetException if anything goes wrong talking to the API
+     */
+    @Nonnull
+    public Sheet getSheet(@Nonnull Smartsheet client, long sheetId) throws SmartsheetException {
+        Snapshot snapshot = snapshots.get(sheetId);
+        if (snapshot == null) {
+            misses.increment();
+        } else {
+            Integer version = Metrics.timed("SnapshotStore.getSheetVersion",
+                    () -> client.sheetResources().getSheetVersion(sheetId));
+            Sheet sheet = version != null && version == snapshot.version ? read(snapshot) : null;
+            if (sheet != null) {
+                hits.increment();
+                return sheet;
+            }
+            stale.increment();
+        }
+        Sheet sheet = Sheets.getWholeSheet(client, sheetId);
+        saveQuietly(sheet);
+        return sheet;
+    }
+
+    /**
+     * @return the saved snapshot of the sheet (whatever its version) or null if there's none
+     */
+    @Nullable
+    public Sheet load(long sheetId) {
+        Snapshot snapshot = snapshots.get(sheetId);
+        return snapshot != null ? read(snapshot) : null;
+    }
+
+    /**
+     * @return the version of the saved snapshot of the sheet or null if there's none
+     */
+    @Nullable
+    public Integer getVersion(long sheetId) {
+        Snapshot snapshot = snapshots.get(sheetId);
+        return snapshot != null ? snapshot.version : null;
+    }
+
+    /**
+     * save (or replace) the snapshot of a sheet; the sheet must have its id, version and rows
+     */
+    public void save(@Nonnull Sheet sheet) throws IOException {
+        Preconditions.checkArgument(sheet.getId() != null && sheet.getVersion() != null,
+                "sheet must have an id and version");
+        long sheetId = sheet.getId();
+        Path file = dir.resolve(sheetId + "-" + sheet.getVersion() + SUFFIX);
+        Path tmp = Files.createTempFile(dir, sheetId + "-", TMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                WRITER.writeValue(out, sheet);
+                channel.force(true);
+            }
+            synchronized (this) {
+                Snapshot current = snapshots.get(sheetId);
+                if (current != null && current.version > sheet.getVersion()) {
+                    return;     // a concurrent save of a newer version won
+                }
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                syncDir();
+                long size = Files.size(file);
+                Snapshot previous = snapshots.put(sheetId, new Snapshot(sheetId, sheet.getVersion(), file, size,
+                        System.currentTimeMillis()));
+                if (previous != null) {
+                    totalBytes.addAndGet(-previous.size);
+                    if (!previous.file.equals(file)) {
+                        Files.deleteIfExists(previous.file);
+                    }
+                }
+                totalBytes.addAndGet(size);
+                writes.increment();
+                evict(sheetId);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public synchronized void delete(long sheetId) throws IOException {
+        Snapshot snapshot = snapshots.remove(sheetId);
+        if (snapshot != null) {
+            totalBytes.addAndGet(-snapshot.size);
+            Files.deleteIfExists(snapshot.file);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return sheets fetched because they had no snapshot
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return sheets fetched because their snapshot was out of date (or unreadable)
+     */
+    public long getStale() {
+        return stale.sum();
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public int getSnapshotCount() {
+        return snapshots.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("{dir:%s, snapshots:%d, bytes:%d, hits:%d, misses:%d, stale:%d, writes:%d, evictions:%d}",
+                dir, getSnapshotCount(), getTotalBytes(), getHits(), getMisses(), getStale(), getWrites(),
+                getEvictions());
+    }
+
+    void saveQuietly(Sheet sheet) {
+        try {
+            save(sheet);
+        } catch (IOException | RuntimeException e) {
+            log.warn("failed to save snapshot of sheet {} - {}", sheet.getId(), e.toString());
+        }
+    }
+
+    private Sheet read(Snapshot snapshot) {
+        try (FileChannel channel = FileChannel.open(snapshot.file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Sheet sheet = READER.readValue(new ByteBufferBackedInputStream(buffer));
+            snapshot.lastUsed = System.currentTimeMillis();
+            Files.setLastModifiedTime(snapshot.file, FileTime.fromMillis(snapshot.lastUsed));
+            return sheet;
+        } catch (NoSuchFileException e) {
+            return null;    // replaced or evicted since it was looked up
+        } catch (IOException e) {
+            log.warn("dropping unreadable snapshot {} - {}", snapshot.file, e.toString());
+            try {
+                synchronized (this) {
+                    if (snapshots.remove(snapshot.sheetId, snapshot)) {
+                        totalBytes.addAndGet(-snapshot.size);
+                        Files.deleteIfExists(snapshot.file);
+                    }
+                }
+            } catch (IOException deleteFailure) {
+                log.warn("failed to delete {} - {}", snapshot.file, deleteFailure.toString());
+            }
+            return null;
+        }
+    }
+
+    // delete least-recently-used snapshots (but never the one just written) until under maxBytes
+    private void evict(long keepSheetId) throws IOException {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        List<Snapshot> byAge = new ArrayList<>(snapshots.values());
+        byAge.sort(Comparator.comparingLong((Snapshot s) -> s.lastUsed));
+        for (Snapshot snapshot : byAge) {
+            if (totalBytes.get() <= maxBytes) {
+                break;
+            }
+            if (snapshot.sheetId != keepSheetId && snapshots.remove(snapshot.sheetId, snapshot)) {
+                totalBytes.addAndGet(-snapshot.size);
+                Files.deleteIfExists(snapshot.file);
+                evictions.increment();
+                log.debug("evicted snapshot of sheet {} ({} bytes)", snapshot.sheetId, snapshot.size);
+            }
+        }
+    }
+
+    // index the existing snapshots; removes temp files left by a crash and all but the latest version of each sheet
+    private synchronized void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                int dash = name.indexOf('-');
+                if (!name.endsWith(SUFFIX) || dash < 0) {
+                    continue;
+                }
+                long sheetId;
+                int version;
+                try {
+                    sheetId = Long.parseLong(name.substring(0, dash));
+                    version = Integer.parseInt(name.substring(dash + 1, name.length() - SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Snapshot snapshot = new Snapshot(sheetId, version, file, Files.size(file),
+                        Files.getLastModifiedTime(file).toMillis());
+                Snapshot other = snapshots.get(sheetId);
+                if (other != null && other.version >= version) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                if (other != null) {
+                    totalBytes.addAndGet(-other.size);
+                    Files.deleteIfExists(other.file);
+                }
+                snapshots.put(sheetId, snapshot);
+                totalBytes.addAndGet(snapshot.size);
+            }
+        }
+        evict(Long.MIN_VALUE);
+    }
+
+    // make the rename durable; not possible on every platform (e.g. windows) in which case it's skipped
+    private void syncDir() {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.trace("can't fsync {} - {}", dir, e.toString());
+        }
+    }
+
+    private static class Snapshot {
+        private final long sheetId;
+        private final int version;
+        private final Path file;
+        private final long size;
+        private volatile long lastUsed;
+
+        Snapshot(long sheetId, int version, Path file, long size, long lastUsed) {
+            this.sheetId = sheetId;
+            this.version = version;
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
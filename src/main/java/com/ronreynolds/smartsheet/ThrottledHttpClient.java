@@ -0,0 +1,116 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.internal.http.DefaultHttpClient;
+import com.smartsheet.api.internal.http.HttpClientException;
+import com.smartsheet.api.internal.http.HttpMethod;
+import com.smartsheet.api.internal.http.HttpRequest;
+import com.smartsheet.api.internal.http.HttpResponse;
+import com.smartsheet.api.models.Error;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the SDK's http-client with every request (and retry) gated by a {@link RateScheduler}; GETs are scheduled as
+ * interactive and everything else as bulk. 429s adapt the scheduler's rate rather than relying on the SDK's fixed
+ * exponential backoff.
+ */
+public class ThrottledHttpClient extends DefaultHttpClient {
+    private static final int TOO_MANY_REQUESTS = 429;
+    static final int RATE_LIMIT_EXCEEDED_ERROR = 4003;
+
+    private final RateScheduler scheduler;
+    private final ThreadLocal<RateScheduler.Priority> currentPriority = new ThreadLocal<>();
+
+    public ThrottledHttpClient(@Nonnull RateScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Nonnull
+    public RateScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public HttpResponse request(HttpRequest request) throws HttpClientException {
+        RateScheduler.Priority priority = request.getMethod() == HttpMethod.GET
+                ? RateScheduler.Priority.INTERACTIVE : RateScheduler.Priority.BULK;
+        acquire(priority);
+        currentPriority.set(priority);
+        try {
+            HttpResponse response = super.request(request);
+            if (response != null && response.getStatusCode() < 400) {
+                scheduler.onSuccess();
+            }
+            return response;
+        } finally {
+            currentPriority.remove();
+        }
+    }
+
+    @Override
+    public boolean shouldRetry(int previousAttempts, long totalElapsedTimeMillis, HttpResponse response) {
+        if (response.getStatusCode() == TOO_MANY_REQUESTS) {
+            scheduler.onThrottled(retryAfterMillis(response.getHeaders()));
+        }
+        boolean retry = super.shouldRetry(previousAttempts, totalElapsedTimeMillis, response);
+        if (retry) {
+            Metrics.retried();
+            try {
+                RateScheduler.Priority priority = currentPriority.get();
+                scheduler.acquire(priority != null ? priority : RateScheduler.Priority.BULK);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return retry;
+    }
+
+    @Override
+    public long calcBackoff(int previousAttempts, long totalElapsedTimeMillis, Error error) {
+        long backoff = super.calcBackoff(previousAttempts, totalElapsedTimeMillis, error);
+        // for rate-limit errors the scheduler has already paused (and slowed) every caller; no need to sleep as well
+        if (backoff >= 0 && error != null && error.getErrorCode() != null
+                && error.getErrorCode() == RATE_LIMIT_EXCEEDED_ERROR) {
+            return 0;
+        }
+        return backoff;
+    }
+
+    private void acquire(RateScheduler.Priority priority) throws HttpClientException {
+        try {
+            scheduler.acquire(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpClientException("interrupted waiting for rate-limit", e);
+        }
+    }
+
+    private static long retryAfterMillis(Map<String, String> headers) {
+        if (headers == null) {
+            return 0;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey())) {
+                return parseRetryAfter(header.getValue());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return a Retry-After header's delay in millis or 0 if it's missing or an http-date (so the default pause is used)
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -10,11 +10,19 @@ import java.util.Optional;
 public class Workspaces {
     public static Optional<Workspace> findWorkspaceByName(@NonNull Smartsheet api, @NonNull String name)
             throws SmartsheetException {
-        return api.workspaceResources()
-                .listWorkspaces(Constants.ALL_PAGES)
+        return Metrics.timed("Workspaces.findWorkspaceByName", () -> api.workspaceResources()
+                        .listWorkspaces(Constants.ALL_PAGES))
                 .getData()
                 .stream()
                 .filter(ws -> name.equals(ws.getName()))
                 .findFirst();
     }
+
+    /**
+     * @param catalog - if non-null the name is looked up in the catalog rather than by listing all workspaces
+     */
+    public static Optional<Workspace> findWorkspaceByName(@NonNull Smartsheet api, @NonNull String name, Catalog catalog)
+            throws SmartsheetException {
+        return catalog != null ? catalog.findFirstWorkspace(name) : findWorkspaceByName(api, name);
+    }
 }
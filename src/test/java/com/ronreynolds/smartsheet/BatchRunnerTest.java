@@ -0,0 +1,152 @@
+package com.ronreynolds.smartsheet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+    private static final List<Integer> ITEMS = IntStream.range(0, 1050).boxed().collect(Collectors.toList());
+
+    @Test
+    void defaultsRunOneChunkAtATimeOnTheCallingThread() {
+        BatchRunner batcher = BatchRunner.defaults();
+        assertEquals(1, batcher.getParallelism());
+        Thread caller = Thread.currentThread();
+        List<Integer> results = batcher.runAll(ITEMS, (chunk) -> {
+            assertSame(caller, Thread.currentThread());
+            return chunk;
+        }, null).getResults();
+        assertEquals(ITEMS, results);
+    }
+
+    @Test
+    void concurrentChunksAreReturnedInInputOrder() throws Exception {
+        // chunks finish out of order (random sleeps) but results and callbacks must come back in order
+        BatchRunner batcher = BatchRunner.of(100, 4);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Integer> firstOfEachChunk = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> results = batcher.run(ITEMS, (chunk) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(ThreadLocalRandom.current().nextInt(20));
+            inFlight.decrementAndGet();
+            return chunk.stream().map((i) -> i * 2).collect(Collectors.toList());
+        }, (chunkResults) -> firstOfEachChunk.add(chunkResults.get(0) / 2));
+
+        assertEquals(ITEMS.stream().map((i) -> i * 2).collect(Collectors.toList()), results);
+        assertEquals(List.of(0, 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000), firstOfEachChunk);
+        assertTrue(maxInFlight.get() <= 4, "at most 4 chunks in flight: " + maxInFlight.get());
+    }
+
+    @Test
+    void failedChunkIsReportedAndTheOthersStillRun() {
+        for (int parallelism : new int[]{1, 3}) {
+            BatchRunner batcher = BatchRunner.of(10, parallelism);
+            List<Integer> items = ITEMS.subList(0, 50);
+            BatchRunner.Result<Integer> result = batcher.runAll(items, (chunk) -> {
+                if (chunk.contains(25)) {
+                    throw new IllegalStateException("boom");
+                }
+                return chunk;
+            }, null);
+
+            assertFalse(result.isSuccess());
+            assertEquals(5, result.getChunkCount());
+            List<Integer> expected = new ArrayList<>(items.subList(0, 20));
+            expected.addAll(items.subList(30, 50));
+            assertEquals(expected, result.getResults(), "parallelism " + parallelism);
+            assertEquals(1, result.getFailures().size());
+            BatchRunner.ChunkFailure failure = result.getFailures().get(0);
+            assertEquals(2, failure.getIndex());
+            assertEquals(20, failure.getOffset());
+            assertEquals(items.subList(20, 30), failure.getItems());
+            assertTrue(failure.getCause() instanceof IllegalStateException, "cause: " + failure.getCause());
+            assertEquals("boom", failure.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void runThrowsWithThePartialResults() {
+        BatchRunner batcher = BatchRunner.of(10, 2);
+        BatchRunner.BatchException e = assertThrows(BatchRunner.BatchException.class,
+                () -> batcher.run(ITEMS.subList(0, 30), (chunk) -> {
+                    if (chunk.get(0) == 0) {
+                        throw new IllegalArgumentException("first chunk");
+                    }
+                    return chunk;
+                }, null));
+        assertEquals(ITEMS.subList(10, 30), e.getResult().getResults());
+        assertEquals(0, e.getResult().getFailures().get(0).getIndex());
+    }
+
+    @Test
+    void interruptKeepsTheChunksThatFinished() throws Exception {
+        // chunk 0 blocks until cancelled, chunk 1 finishes; interrupting the caller must still report chunk 1
+        CountDownLatch chunkFinished = new CountDownLatch(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            protected void afterExecute(Runnable task, Throwable error) {
+                chunkFinished.countDown();  // the task's future is done by now
+            }
+        };
+        Thread caller = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                chunkFinished.await();
+                caller.interrupt();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        interrupter.start();
+
+        BatchRunner.Result<Integer> result;
+        try {
+            CountDownLatch never = new CountDownLatch(1);
+            result = new BatchRunner(10, 2, executor).runAll(ITEMS.subList(0, 20), (chunk) -> {
+                if (chunk.get(0) == 0) {
+                    try {
+                        never.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return chunk;
+            }, null);
+        } finally {
+            executor.shutdownNow();
+        }
+        boolean interrupted = Thread.interrupted();    // clears it
+        interrupter.join();
+
+        assertTrue(interrupted, "runAll keeps the interrupt status");
+        assertEquals(ITEMS.subList(10, 20), result.getResults());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(0, result.getFailures().get(0).getIndex());
+        assertTrue(result.getFailures().get(0).getCause() instanceof InterruptedException);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ronreynolds.smartsheet;
+
+import com.ronreynolds.smartsheet.InMemoryApiMetrics.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+    @Test
+    void emptyHistogramIsAllZeros() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 100; i >= 1; --i) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean());
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(1, histogram.getValueAtPercentile(1));
+        assertEquals(50, histogram.getValueAtPercentile(50));
+        assertEquals(90, histogram.getValueAtPercentile(90));
+        assertEquals(99, histogram.getValueAtPercentile(99));
+        assertEquals(100, histogram.getValueAtPercentile(99.5));
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void largeValuesAreWithinPrecision() {
+        // 64 buckets per power of 2 so a percentile is at most 1/64 above the exact value (and never below it)
+        Histogram histogram = new Histogram();
+        int n = 100_000;
+        for (int i = 1; i <= n; ++i) {
+            histogram.record(i);
+        }
+        for (double percentile : new double[]{10, 25, 50, 75, 90, 99, 99.9}) {
+            long exact = (long) Math.ceil(percentile / 100 * n);
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value >= exact && value <= exact + exact / 64,
+                    "p" + percentile + " = " + value + " (exact " + exact + ")");
+        }
+        assertEquals(n, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void bucketsRoundUpToTheirHighestValue() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; ++i) {
+            long value = random.nextLong() & Histogram.MAX_VALUE;
+            if (i % 2 == 0) {
+                value >>>= random.nextInt(45);   // cover every magnitude
+            }
+            int bucket = Histogram.bucketIndex(value);
+            long highest = Histogram.highestEquivalentValue(bucket);
+            assertTrue(highest >= value && highest - value <= value / 64, value + " -> " + highest);
+            assertEquals(bucket, Histogram.bucketIndex(highest), "bucket of " + value);
+            if (bucket > 0) {
+                assertTrue(Histogram.highestEquivalentValue(bucket - 1) < value, "previous bucket of " + value);
+            }
+        }
+        assertEquals(Histogram.MAX_VALUE, Histogram.highestEquivalentValue(Histogram.bucketIndex(Histogram.MAX_VALUE)));
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getMin());
+        assertEquals(Histogram.MAX_VALUE, histogram.getMax());
+        assertEquals(Histogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void percentileMustBeZeroToHundred() {
+        Histogram histogram = new Histogram();
+        histogram.record(1);
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(100.1));
+    }
+}
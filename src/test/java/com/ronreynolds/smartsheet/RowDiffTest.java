@@ -0,0 +1,112 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Hyperlink;
+import com.smartsheet.api.models.Row;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowDiffTest {
+    private static final long COLUMN_A = 1L;
+    private static final long COLUMN_B = 2L;
+
+    @Test
+    void valuesEqual() {
+        assertTrue(RowDiff.valuesEqual(5, 5.0));
+        assertTrue(RowDiff.valuesEqual(5L, 5));
+        assertTrue(RowDiff.valuesEqual("a", "a"));
+        assertTrue(RowDiff.valuesEqual(null, null));
+        assertTrue(RowDiff.valuesEqual(null, ""));
+        assertTrue(RowDiff.valuesEqual("", null));
+        assertTrue(RowDiff.valuesEqual(true, true));
+
+        assertFalse(RowDiff.valuesEqual("a", "b"));
+        assertFalse(RowDiff.valuesEqual(5, 5.5));
+        assertFalse(RowDiff.valuesEqual(1, "1"));
+        assertFalse(RowDiff.valuesEqual(null, 0));
+        assertFalse(RowDiff.valuesEqual("", "a"));
+        assertFalse(RowDiff.valuesEqual(true, false));
+    }
+
+    @Test
+    void cellChangedByValue() {
+        assertFalse(RowDiff.cellChanged(cell(COLUMN_A, 5), cell(COLUMN_A, 5.0)));
+        assertFalse(RowDiff.cellChanged(cell(COLUMN_A, "x"), cell(COLUMN_A, "x")));
+        assertFalse(RowDiff.cellChanged(null, cell(COLUMN_A, "")), "clearing a missing cell is no change");
+        assertFalse(RowDiff.cellChanged(cell(COLUMN_A, null), cell(COLUMN_A, null)));
+
+        assertTrue(RowDiff.cellChanged(cell(COLUMN_A, "x"), cell(COLUMN_A, "y")));
+        assertTrue(RowDiff.cellChanged(cell(COLUMN_A, "x"), cell(COLUMN_A, null)), "clearing a cell is a change");
+        assertTrue(RowDiff.cellChanged(null, cell(COLUMN_A, "x")));
+    }
+
+    @Test
+    void cellChangedByFormula() {
+        Cell formula = cell(COLUMN_A, 10).setFormula("=SUM([B]1:[B]2)");
+        assertFalse(RowDiff.cellChanged(formula, new Cell(COLUMN_A).setFormula("=SUM([B]1:[B]2)")));
+        assertTrue(RowDiff.cellChanged(formula, new Cell(COLUMN_A).setFormula("=SUM([B]1:[B]3)")));
+        assertTrue(RowDiff.cellChanged(formula, cell(COLUMN_A, 10)), "a value replacing a formula is a change");
+        assertTrue(RowDiff.cellChanged(cell(COLUMN_A, 10), new Cell(COLUMN_A).setFormula("=10")));
+    }
+
+    @Test
+    void cellChangedByFormatAndHyperlink() {
+        Cell formatted = cell(COLUMN_A, "x").setFormat(",,1,,,,,,,,,,,,,,");
+        assertFalse(RowDiff.cellChanged(formatted, cell(COLUMN_A, "x")), "no desired format means keep it");
+        assertFalse(RowDiff.cellChanged(formatted, cell(COLUMN_A, "x").setFormat(",,1,,,,,,,,,,,,,,")));
+        assertTrue(RowDiff.cellChanged(formatted, cell(COLUMN_A, "x").setFormat(",,,1,,,,,,,,,,,,,")));
+
+        assertFalse(RowDiff.cellChanged(cell(COLUMN_A, "x"), cell(COLUMN_A, "x").setHyperlink(new Hyperlink())),
+                "removing a link that isn't there is no change");
+        Hyperlink link = new Hyperlink();
+        link.setUrl("https://example.com");
+        Hyperlink sameLink = new Hyperlink();
+        sameLink.setUrl("https://example.com");
+        assertFalse(RowDiff.cellChanged(cell(COLUMN_A, "x").setHyperlink(link),
+                cell(COLUMN_A, "x").setHyperlink(sameLink)));
+        assertTrue(RowDiff.cellChanged(cell(COLUMN_A, "x"), cell(COLUMN_A, "x").setHyperlink(sameLink)));
+        assertTrue(RowDiff.cellChanged(cell(COLUMN_A, "x").setHyperlink(link),
+                cell(COLUMN_A, "x").setHyperlink(new Hyperlink())));
+    }
+
+    @Test
+    void diffSendsOnlyChangedCells() {
+        RowDiff diff = new RowDiff();
+        Row original = row(10L, cell(COLUMN_A, "same"), cell(COLUMN_B, 1));
+        Row changes = diff.diff(original, row(10L, cell(COLUMN_A, "same"), cell(COLUMN_B, 2)));
+        assertEquals(10L, (long) changes.getId());
+        assertEquals(1, changes.getCells().size());
+        assertEquals(COLUMN_B, (long) changes.getCells().get(0).getColumnId());
+
+        assertNull(diff.diff(original, row(10L, cell(COLUMN_A, "same"), cell(COLUMN_B, 1.0))));
+        assertEquals(2, diff.getRowsCompared());
+        assertEquals(1, diff.getRowsSkipped());
+        assertEquals(1, diff.getCellsSent());
+    }
+
+    @Test
+    void diffAllDropsUnchangedRows() {
+        RowDiff diff = new RowDiff();
+        List<Row> originals = List.of(row(1L, cell(COLUMN_A, "a")), row(2L, cell(COLUMN_A, "b")));
+        List<Row> changes = diff.diffAll(originals,
+                List.of(row(1L, cell(COLUMN_A, "a")), row(2L, cell(COLUMN_A, "c"))));
+        assertEquals(1, changes.size());
+        assertEquals(2L, (long) changes.get(0).getId());
+    }
+
+    private static Cell cell(long columnId, Object value) {
+        return new Cell(columnId).setValue(value);
+    }
+
+    private static Row row(long id, Cell... cells) {
+        Row row = new Row(id);
+        row.setCells(List.of(cells));
+        return row;
+    }
+}
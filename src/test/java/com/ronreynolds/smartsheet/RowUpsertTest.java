@@ -0,0 +1,132 @@
+package com.ronreynolds.smartsheet;
+
+import com.ronreynolds.smartsheet.fake.FakeSmartsheetServer;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowUpsertTest {
+    private FakeSmartsheetServer server;
+    private Smartsheet client;
+    private long sheetId;
+    private long keyColumnId;
+    private long valueColumnId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeSmartsheetServer().start();
+        client = SmartsheetBuilders.getClientWithAuthAndUri("test", server.getBaseUri());
+        sheetId = server.addSheet(null, "upsert", "Key", "Value");
+        Sheet sheet = Sheets.getWholeSheet(client, sheetId);
+        keyColumnId = Columns.getColumnId(sheet, "Key");
+        valueColumnId = Columns.getColumnId(sheet, "Value");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void recordsArePartitionedIntoUpdatesInsertsAndDeletes() throws Exception {
+        List<Row> existing = Sheets.addRows(client, sheetId, List.of(row("A", 1), row("B", 2), row("C", 3),
+                row("D", 4), row("B", 9), row(null, 99)), null);
+        long rowA = existing.get(0).getId();
+        long rowB = existing.get(1).getId();
+
+        Row duplicate = row("E", 7);
+        Row withoutKey = row("", 0);
+        List<Row> records = List.of(row("A", 1.0), row("B", 20), row("E", 5), row("F", 6), duplicate, withoutKey);
+        RowUpsert.Result result = Sheets.upsertRows(client, sheetId, "Key", records,
+                RowUpsert.Options.defaults().setDeleteMissing(true));
+
+        assertTrue(result.isSuccess());
+        // A is unchanged so it isn't sent
+        assertEquals(1, result.getDiff().getRowsSkipped());
+        assertEquals(List.of(rowB), ids(result.getUpdated()));
+        assertEquals(2, result.getInserted().size());
+        // C, D and the second B in sheet order; the row without a key is left alone
+        assertEquals(List.of(existing.get(2).getId(), existing.get(3).getId(), existing.get(4).getId()),
+                result.getDeletedRowIds());
+        assertEquals(1, result.getDuplicates().size());
+        assertSame(duplicate, result.getDuplicates().get(0));
+        assertEquals(1, result.getWithoutKey().size());
+        assertSame(withoutKey, result.getWithoutKey().get(0));
+
+        // new rows are added at the bottom in record order
+        Sheet sheet = Sheets.getWholeSheet(client, sheetId);
+        assertEquals(Arrays.asList("A", "B", null, "E", "F"), values(sheet, keyColumnId));
+        assertEquals(List.of(1.0, 20.0, 99.0, 5.0, 6.0), numbers(values(sheet, valueColumnId)));
+        assertEquals(rowA, (long) sheet.getRows().get(0).getId());
+        assertEquals(rowB, (long) sheet.getRows().get(1).getId());
+        assertEquals(ids(result.getInserted()), ids(sheet.getRows().subList(3, 5)));
+    }
+
+    @Test
+    void lastWinsUsesTheLastRecordWithAKey() throws Exception {
+        Row first = row("E", 5);
+        RowUpsert.Result result = Sheets.upsertRows(client, sheetId, "Key", List.of(first, row("E", 7)),
+                RowUpsert.Options.defaults().setDuplicatePolicy(RowUpsert.DuplicatePolicy.LAST_WINS));
+
+        assertEquals(List.of(first), result.getDuplicates());
+        assertEquals(List.of(7.0), numbers(values(Sheets.getWholeSheet(client, sheetId), valueColumnId)));
+    }
+
+    @Test
+    void numericKeysMatchRegardlessOfType() throws Exception {
+        Sheets.addRows(client, sheetId, List.of(row(5, 1)), null);
+        RowUpsert.Result result = Sheets.upsertRows(client, sheetId, "Key", List.of(row(5.0, 2)),
+                RowUpsert.Options.defaults());
+
+        assertEquals(1, result.getUpdated().size());
+        assertEquals(0, result.getInserted().size());
+        assertEquals(List.of(2.0), numbers(values(Sheets.getWholeSheet(client, sheetId), valueColumnId)));
+    }
+
+    @Test
+    void failOnDuplicatesChangesNothing() throws Exception {
+        Sheets.addRows(client, sheetId, List.of(row("A", 1)), null);
+        RowUpsert.Options options = RowUpsert.Options.defaults().setDeleteMissing(true)
+                .setDuplicatePolicy(RowUpsert.DuplicatePolicy.FAIL);
+        assertThrows(IllegalArgumentException.class, () -> Sheets.upsertRows(client, sheetId, "Key",
+                List.of(row("B", 1), row("B", 2)), options));
+        assertEquals(1, server.getRowCount(sheetId));
+    }
+
+    private Row row(Object key, Object value) {
+        Row row = new Row();
+        row.setCells(List.of(new Cell(keyColumnId).setValue(key), new Cell(valueColumnId).setValue(value)));
+        return row;
+    }
+
+    private static List<Long> ids(List<Row> rows) {
+        return rows.stream().map(Row::getId).collect(Collectors.toList());
+    }
+
+    private static List<Object> values(Sheet sheet, long columnId) {
+        List<Object> values = new ArrayList<>();
+        for (Row row : sheet.getRows()) {
+            values.add(row.getCells().stream().filter((c) -> c.getColumnId() == columnId).findFirst()
+                    .map(Cell::getValue).orElse(null));
+        }
+        return values;
+    }
+
+    private static List<Double> numbers(List<Object> values) {
+        return values.stream().map((v) -> ((Number) v).doubleValue()).collect(Collectors.toList());
+    }
+}
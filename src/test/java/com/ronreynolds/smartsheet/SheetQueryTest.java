@@ -0,0 +1,153 @@
+package com.ronreynolds.smartsheet;
+
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Column;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.ronreynolds.smartsheet.SheetQuery.and;
+import static com.ronreynolds.smartsheet.SheetQuery.between;
+import static com.ronreynolds.smartsheet.SheetQuery.eq;
+import static com.ronreynolds.smartsheet.SheetQuery.ge;
+import static com.ronreynolds.smartsheet.SheetQuery.gt;
+import static com.ronreynolds.smartsheet.SheetQuery.in;
+import static com.ronreynolds.smartsheet.SheetQuery.isNull;
+import static com.ronreynolds.smartsheet.SheetQuery.le;
+import static com.ronreynolds.smartsheet.SheetQuery.lt;
+import static com.ronreynolds.smartsheet.SheetQuery.ne;
+import static com.ronreynolds.smartsheet.SheetQuery.not;
+import static com.ronreynolds.smartsheet.SheetQuery.notNull;
+import static com.ronreynolds.smartsheet.SheetQuery.or;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SheetQueryTest {
+    private static final String[] STATUSES = {"Open", "In Progress", "Blocked", "Done"};
+    private static final Sheet SHEET = sheet(2_000, new Random(7));
+
+    // every kind of condition over columns of numbers, text, booleans and a mix of them (with empty cells)
+    private static final List<SheetQuery.Condition> CONDITIONS = List.of(
+            eq("Number", 5), eq("Number", 5.0), ne("Number", 5), lt("Number", 10), le("Number", 10),
+            gt("Number", 90), ge("Number", 90), between("Number", 20, 30.5), in("Number", 1, 2.0, 3, "3"),
+            isNull("Number"), notNull("Number"),
+            eq("Status", "Done"), ne("Status", "Done"), lt("Status", "Done"), ge("Status", "In"),
+            between("Status", "B", "Do"), in("Status", "Open", "Blocked"), isNull("Status"),
+            eq("Flag", true), ne("Flag", false), isNull("Flag"),
+            eq("Mixed", 7), eq("Mixed", "7"), lt("Mixed", 50), gt("Mixed", "m"), ne("Mixed", "x"), notNull("Mixed"),
+            and(eq("Status", "Open"), gt("Number", 50)),
+            or(eq("Status", "Blocked"), le("Number", 3), isNull("Flag")),
+            not(or(eq("Status", "Done"), between("Mixed", 10, 20))),
+            and(not(eq("Flag", true)), or(lt("Mixed", "n"), ge("Number", 95))));
+
+    @Test
+    void indexedQueriesMatchScans() {
+        SheetQuery scan = new SheetQuery(SHEET, Integer.MAX_VALUE);
+        SheetQuery indexed = new SheetQuery(SHEET, 1);
+        // twice so the second round is answered from the indexes built by the first
+        for (int round = 0; round < 2; ++round) {
+            for (SheetQuery.Condition condition : CONDITIONS) {
+                BitSet expected = scan.match(condition);
+                assertEquals(expected, indexed.match(condition), condition.toString());
+                assertEquals(ids(scan.find(condition)), ids(indexed.find(condition)), condition.toString());
+                assertEquals(expected.cardinality(), indexed.count(condition), condition.toString());
+            }
+        }
+        assertEquals(0, scan.getIndexLookups());
+        assertEquals(0, scan.getIndexBuilds());
+        assertTrue(indexed.getIndexLookups() > 0, "indexed: " + indexed);
+        assertTrue(indexed.getIndexBuilds() > 0, "indexed: " + indexed);
+    }
+
+    @Test
+    void scansMatchTheValues() {
+        SheetQuery query = new SheetQuery(SHEET, 1);
+        long columnId = columnId("Number");
+        List<Long> expected = SHEET.getRows().stream()
+                .filter((row) -> value(row, columnId) instanceof Number
+                        && ((Number) value(row, columnId)).doubleValue() > 50)
+                .map(Row::getId).collect(Collectors.toList());
+        assertEquals(expected, ids(query.find(gt("Number", 50))));
+        assertEquals(expected, ids(query.find(gt("Number", 50))));
+        assertEquals(expected.subList(0, 5), ids(query.find(gt("Number", 50), 5)));
+
+        long nulls = SHEET.getRows().stream().filter((row) -> value(row, columnId) == null).count();
+        assertEquals(nulls, query.count(isNull("Number")));
+        assertEquals(SHEET.getRows().size() - nulls, query.count(notNull("Number")));
+    }
+
+    @Test
+    void unknownColumnIsAnError() {
+        SheetQuery query = SheetQuery.of(SHEET);
+        assertThrows(IllegalArgumentException.class, () -> query.count(eq("Nope", 1)));
+    }
+
+    private static List<Long> ids(List<Row> rows) {
+        return rows.stream().map(Row::getId).collect(Collectors.toList());
+    }
+
+    private static long columnId(String title) {
+        return SHEET.getColumns().stream().filter((c) -> title.equals(c.getTitle())).findFirst().orElseThrow().getId();
+    }
+
+    private static Object value(Row row, long columnId) {
+        return row.getCells().stream().filter((c) -> c.getColumnId() == columnId).findFirst()
+                .map(Cell::getValue).orElse(null);
+    }
+
+    private static Sheet sheet(int numRows, Random random) {
+        String[] titles = {"Number", "Status", "Flag", "Mixed"};
+        List<Column> columns = new ArrayList<>();
+        for (int c = 0; c < titles.length; ++c) {
+            Column column = new Column();
+            column.setId(100L + c);
+            column.setTitle(titles[c]);
+            column.setIndex(c);
+            columns.add(column);
+        }
+        List<Row> rows = new ArrayList<>(numRows);
+        for (int r = 0; r < numRows; ++r) {
+            List<Cell> cells = new ArrayList<>();
+            cells.add(new Cell(100L).setValue(random.nextInt(10) == 0 ? null
+                    : random.nextBoolean() ? (Object) random.nextInt(100) : (Object) (random.nextInt(200) / 2.0)));
+            // leave some cells out entirely (as the API does for empty cells)
+            if (random.nextInt(10) != 0) {
+                cells.add(new Cell(101L).setValue(STATUSES[random.nextInt(STATUSES.length)]));
+            }
+            cells.add(new Cell(102L).setValue(random.nextInt(5) == 0 ? null : (Object) random.nextBoolean()));
+            cells.add(new Cell(103L).setValue(mixed(random)));
+            Row row = new Row(10_000L + r);
+            row.setRowNumber(r + 1);
+            row.setCells(cells);
+            rows.add(row);
+        }
+        Sheet sheet = new Sheet();
+        sheet.setId(1L);
+        sheet.setVersion(1);
+        sheet.setColumns(columns);
+        sheet.setRows(rows);
+        return sheet;
+    }
+
+    private static Object mixed(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return null;
+            case 1:
+                return random.nextInt(100);
+            case 2:
+                return random.nextInt(100) + 0.5;
+            case 3:
+                return String.valueOf(random.nextInt(100));
+            default:
+                return Character.toString((char) ('a' + random.nextInt(26)));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.ronreynolds.smartsheet;
+
+import com.ronreynolds.smartsheet.fake.FakeSmartsheetServer;
+import com.smartsheet.api.Smartsheet;
+import com.smartsheet.api.SmartsheetException;
+import com.smartsheet.api.models.Cell;
+import com.smartsheet.api.models.Row;
+import com.smartsheet.api.models.Sheet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * bulk row operations against the fake API
+ */
+class SheetsTest {
+    private FakeSmartsheetServer server;
+    private Smartsheet client;
+    private long sheetId;
+    private long keyColumnId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeSmartsheetServer().start();
+        client = SmartsheetBuilders.getClientWithAuthAndUri("test", server.getBaseUri());
+        sheetId = server.addSheet(null, "rows", "Key");
+        keyColumnId = Columns.getColumnId(Sheets.getWholeSheet(client, sheetId), "Key");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void addRowsKeepsInputOrderAcrossChunks() throws Exception {
+        server.setLatency(1, 5);
+        List<Row> rows = rows(1_234);
+        List<Long> chunkSizes = new ArrayList<>();
+        List<Row> added = Sheets.addRows(client, sheetId, rows, (chunk) -> chunkSizes.add((long) chunk.size()));
+
+        assertEquals(List.of(500L, 500L, 234L), chunkSizes);
+        assertEquals(IntStream.range(0, 1_234).boxed().collect(Collectors.toList()), keys(added));
+        Sheet sheet = Sheets.getWholeSheet(client, sheetId);
+        assertEquals(keys(added), keys(sheet.getRows()));
+        assertEquals(0, server.getConflictCount(), "the default runner sends one chunk at a time");
+    }
+
+    @Test
+    void deleteRowsByDefaultDoesNotConflict() throws Exception {
+        server.setLatency(1, 5);
+        List<Row> added = Sheets.addRows(client, sheetId, rows(1_100), null);
+        List<Long> ids = added.stream().filter((row) -> key(row) % 2 == 0).map(Row::getId)
+                .collect(Collectors.toList());
+        Sheets.deleteRows(client, sheetId, ids);
+
+        assertEquals(550, server.getRowCount(sheetId));
+        assertEquals(0, server.getConflictCount());
+    }
+
+    @Test
+    void concurrentWritesToOneSheetAreRejected() {
+        // two chunks in flight at once on the same sheet; like the real API the fake rejects one with 4004
+        server.setLatency(200, 200);
+        try {
+            Sheets.addRows(client, sheetId, rows(10), null, BatchRunner.of(5, 2));
+        } catch (SmartsheetException e) {
+            // the client may give up retrying; only the rejection matters here
+        }
+        assertTrue(server.getConflictCount() > 0, "conflicts: " + server.getConflictCount());
+    }
+
+    private List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            Row row = new Row();
+            row.setToBottom(true);
+            row.setCells(List.of(new Cell(keyColumnId).setValue(i)));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private List<Integer> keys(List<Row> rows) {
+        return rows.stream().map(this::key).collect(Collectors.toList());
+    }
+
+    private int key(Row row) {
+        return row.getCells().stream().filter((c) -> c.getColumnId() == keyColumnId).findFirst()
+                .map((c) -> ((Number) c.getValue()).intValue()).orElseThrow();
+    }
+}
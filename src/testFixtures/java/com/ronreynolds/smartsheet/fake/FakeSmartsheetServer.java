@@ -0,0 +1,578 @@
+package com.ronreynolds.smartsheet.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.ronreynolds.jackson.ObjectMappers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * an in-process stand-in for the Smartsheet API (the sheet, row, column, attachment, folder, workspace and home
+ * endpoints the helpers use) so they can be exercised and load-tested without the real, rate-limited, service.
+ * <pre>
+ * try (FakeSmartsheetServer server = new FakeSmartsheetServer().start()) {
+ *     long sheetId = server.addSheet(null, "test", "Name", "Status");
+ *     Smartsheet client = SmartsheetBuilders.getClientWithAuthAndUri("token", server.getBaseUri());
+ *     ...
+ * }
+ * </pre>
+ * latency, 429 (rate-limit) injection and page sizes are configurable and can be changed while it's running. like the
+ * real API a row write (add, update or delete) to a sheet that another row write is still in progress on is rejected
+ * with error 4004 (unless {@link #setRejectConcurrentWrites} turns that off).
+ * attachment downloads are served from {@link #getFileBaseUri()} and support resuming via Range requests.
+ */
+@Slf4j
+public class FakeSmartsheetServer implements Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGE_SIZE = 10_000;
+    private static final String API_PREFIX = "/2.0/";
+    private static final String FILE_PREFIX = "/files/";
+    private static final int RATE_LIMIT_EXCEEDED_ERROR = 4003;
+    private static final int SHEET_BUSY_ERROR = 4004;
+
+    private final FakeStore store = new FakeStore();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile long minLatencyMillis;
+    private volatile long maxLatencyMillis;
+    private volatile double throttleProbability;
+    private final AtomicInteger throttleNext = new AtomicInteger();
+    private volatile int retryAfterSeconds = 1;
+    private volatile int defaultPageSize = DEFAULT_PAGE_SIZE;
+    private volatile int maxPageSize = DEFAULT_MAX_PAGE_SIZE;
+    private volatile boolean rejectConcurrentWrites = true;
+    private final Map<Long, AtomicInteger> writesInFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+
+    /**
+     * a server on an ephemeral port of the loopback interface
+     */
+    public FakeSmartsheetServer() throws IOException {
+        this(0);
+    }
+
+    public FakeSmartsheetServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // requests sleep (simulated latency) so use a thread per concurrent request rather than a fixed pool
+        this.executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("fake-smartsheet-%d").setDaemon(true).build());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    @Nonnull
+    public FakeSmartsheetServer start() {
+        server.start();
+        log.info("fake smartsheet api listening at {}", getBaseUri());
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the base URI to give {@code SmartsheetBuilders.getClientWithAuthAndUri}
+     */
+    @Nonnull
+    public String getBaseUri() {
+        return "http://" + getHostAndPort() + API_PREFIX;
+    }
+
+    /**
+     * @return the prefix of the download urls of attachments
+     */
+    @Nonnull
+    public String getFileBaseUri() {
+        return "http://" + getHostAndPort() + FILE_PREFIX;
+    }
+
+    private String getHostAndPort() {
+        InetSocketAddress address = server.getAddress();
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    // ---------------- configuration ----------------
+
+    /**
+     * every request (API and file) is delayed by a uniformly random time in [minMillis, maxMillis]
+     */
+    public FakeSmartsheetServer setLatency(long minMillis, long maxMillis) {
+        Preconditions.checkArgument(minMillis >= 0 && maxMillis >= minMillis, "invalid latency range [%s, %s]",
+                minMillis, maxMillis);
+        this.minLatencyMillis = minMillis;
+        this.maxLatencyMillis = maxMillis;
+        return this;
+    }
+
+    /**
+     * @param probability - chance (0-1) each API request is rejected with a 429 (error 4003) like the rate-limiter's
+     */
+    public FakeSmartsheetServer setThrottleProbability(double probability) {
+        Preconditions.checkArgument(probability >= 0 && probability <= 1, "probability must be 0-1: %s", probability);
+        this.throttleProbability = probability;
+        return this;
+    }
+
+    /**
+     * reject the next count API requests with a 429 (in addition to any random throttling)
+     */
+    public FakeSmartsheetServer throttleNext(int count) {
+        throttleNext.addAndGet(count);
+        return this;
+    }
+
+    /**
+     * @param seconds - the Retry-After of 429 responses
+     */
+    public FakeSmartsheetServer setRetryAfterSeconds(int seconds) {
+        this.retryAfterSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * @param defaultPageSize - page size of list requests that don't specify one (or includeAll)
+     * @param maxPageSize     - limit on the page size of any request (including sheet rows)
+     */
+    public FakeSmartsheetServer setPageSizes(int defaultPageSize, int maxPageSize) {
+        Preconditions.checkArgument(defaultPageSize > 0 && maxPageSize >= defaultPageSize,
+                "invalid page sizes default:%s max:%s", defaultPageSize, maxPageSize);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        return this;
+    }
+
+    /**
+     * @param reject - if true (the default) a row write to a sheet with another row write in progress fails with
+     *               error 4004
+     */
+    public FakeSmartsheetServer setRejectConcurrentWrites(boolean reject) {
+        this.rejectConcurrentWrites = reject;
+        return this;
+    }
+
+    // ---------------- stats ----------------
+
+    /**
+     * @return number of requests received (API and file, including throttled ones)
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    /**
+     * @return number of row writes rejected (error 4004) because another was in progress on the same sheet
+     */
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    /**
+     * @return number of attachment bytes downloaded
+     */
+    public long getBytesServed() {
+        return bytesServed.sum();
+    }
+
+    // ---------------- seeding ----------------
+
+    /**
+     * @return id of the new workspace
+     */
+    public long addWorkspace(@Nonnull String name) {
+        return store.addContainer(null, name, FakeStore.ContainerKind.WORKSPACE);
+    }
+
+    /**
+     * @param parentId - folder or workspace to put the folder in; null for the home folder
+     * @return id of the new folder
+     */
+    public long addFolder(Long parentId, @Nonnull String name) {
+        return store.addContainer(parentId, name, FakeStore.ContainerKind.FOLDER);
+    }
+
+    /**
+     * @param containerId  - folder or workspace to put the sheet in; null for the home folder
+     * @param columnTitles - the first column is the primary column
+     * @return id of the new sheet
+     */
+    public long addSheet(Long containerId, @Nonnull String name, @Nonnull String... columnTitles) {
+        Preconditions.checkArgument(columnTitles.length > 0, "a sheet needs at least one column");
+        return store.addSheet(containerId, name, Arrays.asList(columnTitles));
+    }
+
+    /**
+     * @param rowId - row to attach to; null to attach to the sheet
+     * @return id of the new attachment
+     */
+    public long addAttachment(long sheetId, Long rowId, @Nonnull String name, @Nonnull byte[] content) {
+        return store.addAttachment(sheetId, rowId, name, "application/octet-stream", content);
+    }
+
+    public int getRowCount(long sheetId) {
+        return store.rowCount(sheetId);
+    }
+
+    // ---------------- http ----------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        Long writing = null;    // the sheet this request holds the write "lock" of
+        try {
+            Long sheetId = rejectConcurrentWrites ? rowWriteSheetId(exchange) : null;
+            if (sheetId != null) {
+                if (writesInFlight.computeIfAbsent(sheetId, (id) -> new AtomicInteger()).incrementAndGet() > 1) {
+                    writesInFlight.get(sheetId).decrementAndGet();
+                    conflicts.increment();
+                    throw new FakeStore.ApiError(409, SHEET_BUSY_ERROR, "Request failed because sheetId " + sheetId
+                            + " is currently being updated by another request that uses the same access token.");
+                }
+                writing = sheetId;
+            }
+            sleep();
+            String path = exchange.getRequestURI().getRawPath();
+            if (path.startsWith(FILE_PREFIX)) {
+                serveFile(exchange, Long.parseLong(path.substring(FILE_PREFIX.length())));
+            } else if (path.startsWith(API_PREFIX)) {
+                if (shouldThrottle()) {
+                    throttled.increment();
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                    sendError(exchange, new FakeStore.ApiError(429, RATE_LIMIT_EXCEEDED_ERROR,
+                            "Rate limit exceeded."));
+                } else {
+                    send(exchange, 200, route(exchange, path.substring(API_PREFIX.length())));
+                }
+            } else {
+                sendError(exchange, new FakeStore.ApiError(404, 1006, "Not Found"));
+            }
+        } catch (FakeStore.ApiError e) {
+            sendError(exchange, e);
+        } catch (NumberFormatException e) {
+            sendError(exchange, FakeStore.ApiError.badRequest("invalid id or number: " + e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("fake api failed handling {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            sendError(exchange, new FakeStore.ApiError(500, 4000, "An unexpected error has occurred: " + e));
+        } finally {
+            if (writing != null) {
+                writesInFlight.get(writing).decrementAndGet();
+            }
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the sheet id if the request adds, updates or deletes rows; null otherwise
+     */
+    private static Long rowWriteSheetId(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getRawPath();
+        if ("GET".equals(exchange.getRequestMethod()) || !path.startsWith(API_PREFIX)) {
+            return null;
+        }
+        String[] parts = path.substring(API_PREFIX.length()).split("/");
+        return parts.length == 3 && "sheets".equals(parts[0]) && "rows".equals(parts[2])
+                ? Long.parseLong(parts[1]) : null;
+    }
+
+    private JsonNode route(HttpExchange exchange, String path) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] parts = path.split("/");
+        Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+        String resource = parts[0];
+        if ("sheets".equals(resource)) {
+            if (parts.length == 1) {
+                return page(store.listSheets(), params);
+            }
+            long sheetId = Long.parseLong(parts[1]);
+            if (parts.length == 2 && "GET".equals(method)) {
+                return store.getSheet(sheetId, sheetQuery(params));
+            }
+            String sub = parts.length > 2 ? parts[2] : "";
+            if ("version".equals(sub)) {
+                return store.getSheetVersion(sheetId);
+            }
+            if ("columns".equals(sub)) {
+                return page(store.listColumns(sheetId), params);
+            }
+            if ("copy".equals(sub) && "POST".equals(method)) {
+                JsonNode destination = readJson(exchange);
+                return result(store.copySheet(sheetId, destination.path("destinationType").asText(null),
+                        destination.hasNonNull("destinationId") ? destination.get("destinationId").asLong() : null,
+                        destination.path("newName").asText(null)));
+            }
+            if ("rows".equals(sub) && parts.length == 3) {
+                switch (method) {
+                    case "POST":
+                        return result(store.addRows(sheetId, readJson(exchange)));
+                    case "PUT":
+                        return result(store.updateRows(sheetId, readJson(exchange)));
+                    case "DELETE":
+                        return result(store.deleteRows(sheetId, longs(params.get("ids")),
+                                Boolean.parseBoolean(params.get("ignoreRowsNotFound"))));
+                    default:
+                        break;
+                }
+            }
+            if ("rows".equals(sub) && parts.length == 5 && "attachments".equals(parts[4]) && "POST".equals(method)) {
+                return result(upload(exchange, sheetId, Long.parseLong(parts[3])));
+            }
+            if ("attachments".equals(sub)) {
+                if (parts.length == 3) {
+                    return "POST".equals(method) ? result(upload(exchange, sheetId, null))
+                            : page(store.listAttachments(sheetId), params);
+                }
+                return store.getAttachment(sheetId, Long.parseLong(parts[3]), getFileBaseUri());
+            }
+        } else if ("home".equals(resource)) {
+            return parts.length == 1 ? store.getHome() : page(store.listHomeFolders(), params);
+        } else if ("folders".equals(resource) && parts.length == 2) {
+            return store.getContainer(Long.parseLong(parts[1]), FakeStore.ContainerKind.FOLDER);
+        } else if ("workspaces".equals(resource)) {
+            return parts.length == 1 ? page(store.listWorkspaces(), params)
+                    : store.getContainer(Long.parseLong(parts[1]), FakeStore.ContainerKind.WORKSPACE);
+        }
+        throw new FakeStore.ApiError(404, 1006, "Not Found: " + method + " " + path);
+    }
+
+    private FakeStore.SheetQuery sheetQuery(Map<String, String> params) {
+        FakeStore.SheetQuery query = new FakeStore.SheetQuery();
+        query.rowIds = params.containsKey("rowIds") ? longs(params.get("rowIds")) : null;
+        query.rowNumbers = params.containsKey("rowNumbers") ? ints(params.get("rowNumbers")) : null;
+        query.columnIds = params.containsKey("columnIds") ? longs(params.get("columnIds")) : null;
+        if (params.containsKey("pageSize")) {
+            query.pageSize = Math.min(Integer.parseInt(params.get("pageSize")), maxPageSize);
+            query.page = params.containsKey("page") ? Integer.parseInt(params.get("page")) : 1;
+        }
+        query.rowsModifiedSince = params.containsKey("rowsModifiedSince")
+                ? parseDate(params.get("rowsModifiedSince")) : null;
+        query.excludeNonexistentCells = csv(params.get("exclude")).contains("nonexistentCells");
+        query.includeAttachments = csv(params.get("include")).contains("attachments");
+        return query;
+    }
+
+    /**
+     * @return the items as a PagedResult; all of them if includeAll=true otherwise the requested (or default) page
+     */
+    private JsonNode page(List<JsonNode> items, Map<String, String> params) {
+        int pageSize;
+        int page;
+        if (Boolean.parseBoolean(params.get("includeAll"))) {
+            pageSize = Math.max(items.size(), 1);
+            page = 1;
+        } else {
+            pageSize = params.containsKey("pageSize")
+                    ? Math.min(Integer.parseInt(params.get("pageSize")), maxPageSize) : defaultPageSize;
+            page = params.containsKey("page") ? Math.max(Integer.parseInt(params.get("page")), 1) : 1;
+        }
+        int totalPages = (items.size() + pageSize - 1) / pageSize;
+        int from = (int) Math.min((long) (page - 1) * pageSize, items.size());
+        ObjectNode json = ObjectMappers.defaultMapper().createObjectNode()
+                .put("pageNumber", page).put("pageSize", pageSize).put("totalPages", totalPages)
+                .put("totalCount", items.size());
+        json.putArray("data").addAll(items.subList(from, Math.min(from + pageSize, items.size())));
+        return json;
+    }
+
+    private static JsonNode result(JsonNode result) {
+        ObjectNode json = ObjectMappers.defaultMapper().createObjectNode().put("message", "SUCCESS").put("resultCode", 0);
+        json.set("result", result);
+        return json;
+    }
+
+    private JsonNode upload(HttpExchange exchange, long sheetId, Long rowId) throws IOException {
+        String disposition = exchange.getRequestHeaders().getFirst("Content-Disposition");
+        String name = "attachment";
+        if (disposition != null && disposition.contains("filename=")) {
+            name = disposition.substring(disposition.indexOf("filename=") + "filename=".length()).replace("\"", "").trim();
+            name = URLDecoder.decode(name, StandardCharsets.UTF_8);
+        }
+        String mimeType = exchange.getRequestHeaders().getFirst("Content-Type");
+        byte[] content;
+        try (InputStream is = exchange.getRequestBody()) {
+            content = is.readAllBytes();
+        }
+        long id = store.addAttachment(sheetId, rowId, name, mimeType != null ? mimeType : "application/octet-stream",
+                content);
+        return store.getAttachment(sheetId, id, null);
+    }
+
+    /**
+     * an attachment's content; "Range: bytes=N-" is honored (206) so interrupted downloads can resume
+     */
+    private void serveFile(HttpExchange exchange, long attachmentId) throws IOException {
+        FakeStore.AttachmentData attachment = store.attachment(attachmentId);
+        byte[] content = attachment.content;
+        int offset = 0;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=") && range.endsWith("-")) {
+            offset = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1).trim());
+            if (offset >= content.length) {
+                exchange.getResponseHeaders().set("Content-Range", "bytes */" + content.length);
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+        }
+        exchange.getResponseHeaders().set("Content-Type", attachment.mimeType);
+        int length = content.length - offset;
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(content, offset, length);
+            }
+            bytesServed.add(length);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, JsonNode json) throws IOException {
+        byte[] body = ObjectMappers.defaultMapper().writeValueAsBytes(json);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, FakeStore.ApiError error) {
+        ObjectNode json = ObjectMappers.defaultMapper().createObjectNode().put("errorCode", error.errorCode)
+                .put("message", error.getMessage()).put("refId", Long.toHexString(System.nanoTime()));
+        try {
+            send(exchange, error.status, json);
+        } catch (IOException e) {
+            log.debug("failed to send error response - {}", e.toString());
+        }
+    }
+
+    private boolean shouldThrottle() {
+        if (throttleNext.get() > 0 && throttleNext.getAndDecrement() > 0) {
+            return true;
+        }
+        double probability = throttleProbability;
+        return probability > 0 && ThreadLocalRandom.current().nextDouble() < probability;
+    }
+
+    private void sleep() throws InterruptedException {
+        long min = minLatencyMillis;
+        long max = maxLatencyMillis;
+        if (max > 0) {
+            TimeUnit.MILLISECONDS.sleep(min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1));
+        }
+    }
+
+    private static JsonNode readJson(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return ObjectMappers.defaultMapper().readTree(is);
+        }
+    }
+
+    private static Map<String, String> queryParams(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery != null) {
+            for (String param : rawQuery.split("&")) {
+                int eq = param.indexOf('=');
+                String key = URLDecoder.decode(eq < 0 ? param : param.substring(0, eq), StandardCharsets.UTF_8);
+                String value = eq < 0 ? "" : URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8);
+                params.put(key, value);
+            }
+        }
+        return params;
+    }
+
+    private static List<String> csv(String value) {
+        List<String> values = new ArrayList<>();
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (!item.trim().isEmpty()) {
+                    values.add(item.trim());
+                }
+            }
+        }
+        return values;
+    }
+
+    private static Set<Long> longs(String value) {
+        return parsed(value, Long::parseLong);
+    }
+
+    private static Set<Integer> ints(String value) {
+        return parsed(value, Integer::parseInt);
+    }
+
+    private static <T> Set<T> parsed(String value, Function<String, T> parser) {
+        Set<T> values = new LinkedHashSet<>();
+        for (String item : csv(value)) {
+            values.add(parser.apply(item));
+        }
+        return values;
+    }
+
+    /**
+     * accepts ISO-8601, epoch millis or Date.toString(); an unparseable date is ignored (all rows returned) which
+     * is always safe for callers merging deltas
+     */
+    private static Instant parseDate(String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            // try the other formats
+        }
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            // try the other formats
+        }
+        try {
+            return DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(value, Instant::from);
+        } catch (DateTimeParseException e) {
+            log.debug("ignoring unparseable date '{}'", value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package com.ronreynolds.smartsheet.fake;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.ronreynolds.jackson.ObjectMappers;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * the sheets, rows, folders, workspaces and attachments behind {@link FakeSmartsheetServer}; every method returns the
+ * JSON the real API would (or throws {@link ApiError}). sheets are locked individually so writes to different sheets
+ * don't contend.
+ */
+class FakeStore {
+    private final AtomicLong nextId = new AtomicLong(1_000_000_000L);
+    private final Map<Long, SheetData> sheets = new ConcurrentHashMap<>();
+    private final Map<Long, ContainerData> containers = new ConcurrentHashMap<>();
+    private final Map<Long, AttachmentData> attachments = new ConcurrentHashMap<>();
+    private final ContainerData home = new ContainerData(0, "Home", ContainerKind.HOME);
+
+    /**
+     * a request the API would reject; rendered as {"errorCode":..., "message":...} with the http status
+     */
+    static class ApiError extends RuntimeException {
+        final int status;
+        final int errorCode;
+
+        ApiError(int status, int errorCode, String message) {
+            super(message);
+            this.status = status;
+            this.errorCode = errorCode;
+        }
+
+        static ApiError notFound(String what, long id) {
+            return new ApiError(404, 1006, "Not Found: " + what + " " + id);
+        }
+
+        static ApiError badRequest(String message) {
+            return new ApiError(400, 1008, message);
+        }
+    }
+
+    /**
+     * the query parameters of a get-sheet request the store understands
+     */
+    static class SheetQuery {
+        Set<Long> rowIds;
+        Set<Integer> rowNumbers;
+        Set<Long> columnIds;
+        Integer pageSize;
+        Integer page;
+        Instant rowsModifiedSince;
+        boolean excludeNonexistentCells;
+        boolean includeAttachments;
+    }
+
+    // ---------------- seeding ----------------
+
+    long addContainer(Long parentId, String name, ContainerKind kind) {
+        ContainerData parent = parentId == null ? home : container(parentId);
+        if (kind == ContainerKind.WORKSPACE && parent != home) {
+            throw ApiError.badRequest("workspaces can only be created at the top level");
+        }
+        ContainerData container = new ContainerData(nextId.getAndIncrement(), name, kind);
+        containers.put(container.id, container);
+        (kind == ContainerKind.WORKSPACE ? parent.workspaceIds : parent.folderIds).add(container.id);
+        return container.id;
+    }
+
+    long addSheet(Long containerId, String name, List<String> columnTitles) {
+        ContainerData container = containerId == null ? home : container(containerId);
+        SheetData sheet = new SheetData(nextId.getAndIncrement(), name);
+        for (String title : columnTitles) {
+            sheet.addColumn(nextId.getAndIncrement(), title);
+        }
+        sheets.put(sheet.id, sheet);
+        container.sheetIds.add(sheet.id);
+        return sheet.id;
+    }
+
+    long addAttachment(long sheetId, Long rowId, String name, String mimeType, byte[] content) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            if (rowId != null && !sheet.rowsById.containsKey(rowId)) {
+                throw ApiError.notFound("row", rowId);
+            }
+            AttachmentData attachment = new AttachmentData(nextId.getAndIncrement(), sheetId, rowId, name, mimeType,
+                    content);
+            attachments.put(attachment.id, attachment);
+            sheet.attachmentIds.add(attachment.id);
+            sheet.touch();
+            return attachment.id;
+        }
+    }
+
+    int rowCount(long sheetId) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            return sheet.rows.size();
+        }
+    }
+
+    // ---------------- sheets ----------------
+
+    ObjectNode getSheet(long sheetId, SheetQuery query) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            ObjectNode json = sheet.summary();
+            json.put("totalRowCount", sheet.rows.size());
+            json.put("accessLevel", "OWNER");
+            json.set("columns", sheet.columnsJson(query.columnIds));
+
+            List<Integer> matches = new ArrayList<>();   // indexes of the matching rows
+            for (int i = 0; i < sheet.rows.size(); ++i) {
+                RowData row = sheet.rows.get(i);
+                if ((query.rowIds == null || query.rowIds.contains(row.id))
+                        && (query.rowNumbers == null || query.rowNumbers.contains(i + 1))
+                        && (query.rowsModifiedSince == null || !row.modifiedAt.isBefore(query.rowsModifiedSince))) {
+                    matches.add(i);
+                }
+            }
+            int from = 0;
+            int to = matches.size();
+            if (query.pageSize != null) {
+                int page = query.page != null ? Math.max(query.page, 1) : 1;
+                from = (int) Math.min((long) (page - 1) * query.pageSize, matches.size());
+                to = Math.min(from + query.pageSize, matches.size());
+            }
+            ArrayNode rowsJson = json.putArray("rows");
+            for (int index : matches.subList(from, to)) {
+                rowsJson.add(sheet.rowJson(sheet.rows.get(index), index + 1, query.columnIds,
+                        query.excludeNonexistentCells));
+            }
+            if (query.includeAttachments) {
+                ArrayNode attachmentsJson = json.putArray("attachments");
+                for (long attachmentId : sheet.attachmentIds) {
+                    attachmentsJson.add(attachments.get(attachmentId).json(null));
+                }
+            }
+            return json;
+        }
+    }
+
+    ObjectNode getSheetVersion(long sheetId) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            return mapper().createObjectNode().put("version", sheet.version);
+        }
+    }
+
+    List<JsonNode> listSheets() {
+        List<JsonNode> list = new ArrayList<>();
+        for (SheetData sheet : sheets.values()) {
+            synchronized (sheet) {
+                list.add(sheet.summary());
+            }
+        }
+        list.sort((a, b) -> a.get("name").asText().compareTo(b.get("name").asText()));
+        return list;
+    }
+
+    List<JsonNode> listColumns(long sheetId) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            List<JsonNode> list = new ArrayList<>();
+            sheet.columnsJson(null).forEach(list::add);
+            return list;
+        }
+    }
+
+    ObjectNode copySheet(long sheetId, String destinationType, Long destinationId, String newName) {
+        SheetData source = sheet(sheetId);
+        ContainerData destination = destinationId == null || "home".equalsIgnoreCase(destinationType)
+                ? home : container(destinationId);
+        SheetData copy;
+        synchronized (source) {
+            copy = new SheetData(nextId.getAndIncrement(), newName != null ? newName : source.name);
+            Map<Long, Long> columnIdMap = new HashMap<>();
+            for (ObjectNode column : source.columns) {
+                long id = nextId.getAndIncrement();
+                columnIdMap.put(column.get("id").asLong(), id);
+                copy.columns.add(column.deepCopy().put("id", id));
+                copy.columnIds.add(id);
+            }
+            for (RowData row : source.rows) {
+                RowData rowCopy = new RowData(nextId.getAndIncrement());
+                row.values.forEach((columnId, value) -> rowCopy.values.put(columnIdMap.get(columnId), value));
+                copy.rows.add(rowCopy);
+                copy.rowsById.put(rowCopy.id, rowCopy);
+            }
+        }
+        sheets.put(copy.id, copy);
+        destination.sheetIds.add(copy.id);
+        return copy.summary();
+    }
+
+    // ---------------- rows ----------------
+
+    ArrayNode addRows(long sheetId, JsonNode rowsJson) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            List<RowData> added = new ArrayList<>();
+            int topIndex = 0;   // rows added toTop keep their order within the request
+            for (JsonNode rowJson : array(rowsJson)) {
+                RowData row = new RowData(nextId.getAndIncrement());
+                sheet.setCells(row, rowJson.get("cells"));
+                int index = sheet.insertIndex(rowJson, topIndex);
+                if (rowJson.path("toTop").asBoolean(false)) {
+                    ++topIndex;
+                }
+                sheet.rows.add(index, row);
+                sheet.rowsById.put(row.id, row);
+                added.add(row);
+            }
+            sheet.touch();
+            return sheet.rowsJson(added);
+        }
+    }
+
+    ArrayNode updateRows(long sheetId, JsonNode rowsJson) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            List<RowData> updated = new ArrayList<>();
+            for (JsonNode rowJson : array(rowsJson)) {
+                long rowId = rowJson.path("id").asLong();
+                RowData row = sheet.rowsById.get(rowId);
+                if (row == null) {
+                    throw ApiError.notFound("row", rowId);
+                }
+                sheet.setCells(row, rowJson.get("cells"));
+                row.modifiedAt = now();
+                if (rowJson.has("toTop") || rowJson.has("toBottom") || rowJson.has("siblingId")) {
+                    sheet.rows.remove(row);
+                    sheet.rows.add(sheet.insertIndex(rowJson, 0), row);
+                }
+                updated.add(row);
+            }
+            sheet.touch();
+            return sheet.rowsJson(updated);
+        }
+    }
+
+    ArrayNode deleteRows(long sheetId, Collection<Long> rowIds, boolean ignoreRowsNotFound) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            if (!ignoreRowsNotFound) {
+                for (long rowId : rowIds) {
+                    if (!sheet.rowsById.containsKey(rowId)) {
+                        throw ApiError.notFound("row", rowId);
+                    }
+                }
+            }
+            ArrayNode result = mapper().createArrayNode();
+            for (long rowId : rowIds) {
+                if (sheet.rowsById.remove(rowId) != null) {
+                    result.add(rowId);
+                }
+            }
+            if (result.size() > 0) {
+                sheet.rows.removeIf(row -> !sheet.rowsById.containsKey(row.id));
+                sheet.touch();
+            }
+            return result;
+        }
+    }
+
+    // ---------------- attachments ----------------
+
+    List<JsonNode> listAttachments(long sheetId) {
+        SheetData sheet = sheet(sheetId);
+        synchronized (sheet) {
+            List<JsonNode> list = new ArrayList<>();
+            for (long attachmentId : sheet.attachmentIds) {
+                list.add(attachments.get(attachmentId).json(null));
+            }
+            return list;
+        }
+    }
+
+    ObjectNode getAttachment(long sheetId, long attachmentId, String fileBaseUri) {
+        AttachmentData attachment = attachments.get(attachmentId);
+        if (attachment == null || attachment.sheetId != sheetId) {
+            throw ApiError.notFound("attachment", attachmentId);
+        }
+        return attachment.json(fileBaseUri);
+    }
+
+    AttachmentData attachment(long attachmentId) {
+        AttachmentData attachment = attachments.get(attachmentId);
+        if (attachment == null) {
+            throw ApiError.notFound("attachment", attachmentId);
+        }
+        return attachment;
+    }
+
+    // ---------------- folders, workspaces & home ----------------
+
+    List<JsonNode> listHomeFolders() {
+        return summaries(home.folderIds);
+    }
+
+    List<JsonNode> listWorkspaces() {
+        return summaries(home.workspaceIds);
+    }
+
+    ObjectNode getContainer(long id, ContainerKind kind) {
+        ContainerData container = container(id);
+        if (container.kind != kind) {
+            throw ApiError.notFound(kind.name().toLowerCase(), id);
+        }
+        return contents(container, container.summary());
+    }
+
+    ObjectNode getHome() {
+        ObjectNode json = contents(home, mapper().createObjectNode());
+        json.set("workspaces", mapper().valueToTree(summaries(home.workspaceIds)));
+        return json;
+    }
+
+    // ---------------- internals ----------------
+
+    private ObjectNode contents(ContainerData container, ObjectNode json) {
+        ArrayNode sheetsJson = json.putArray("sheets");
+        for (long sheetId : container.sheetIds) {
+            SheetData sheet = sheets.get(sheetId);
+            synchronized (sheet) {
+                sheetsJson.add(sheet.summary());
+            }
+        }
+        json.set("folders", mapper().valueToTree(summaries(container.folderIds)));
+        json.putArray("reports");
+        json.putArray("sights");
+        json.putArray("templates");
+        return json;
+    }
+
+    private List<JsonNode> summaries(List<Long> containerIds) {
+        List<JsonNode> list = new ArrayList<>(containerIds.size());
+        for (long id : containerIds) {
+            list.add(containers.get(id).summary());
+        }
+        return list;
+    }
+
+    private SheetData sheet(long sheetId) {
+        SheetData sheet = sheets.get(sheetId);
+        if (sheet == null) {
+            throw ApiError.notFound("sheet", sheetId);
+        }
+        return sheet;
+    }
+
+    private ContainerData container(long id) {
+        ContainerData container = containers.get(id);
+        if (container == null) {
+            throw ApiError.notFound("folder", id);
+        }
+        return container;
+    }
+
+    private static Iterable<JsonNode> array(JsonNode json) {
+        if (json == null || !json.isArray()) {
+            throw ApiError.badRequest("expected a JSON array");
+        }
+        return json;
+    }
+
+    static Instant now() {
+        return Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static com.fasterxml.jackson.databind.ObjectMapper mapper() {
+        return ObjectMappers.defaultMapper();
+    }
+
+    enum ContainerKind {
+        HOME, FOLDER, WORKSPACE
+    }
+
+    private static class ContainerData {
+        final long id;
+        final String name;
+        final ContainerKind kind;
+        final List<Long> sheetIds = new CopyOnWriteArrayList<>();
+        final List<Long> folderIds = new CopyOnWriteArrayList<>();
+        final List<Long> workspaceIds = new CopyOnWriteArrayList<>();
+
+        ContainerData(long id, String name, ContainerKind kind) {
+            this.id = id;
+            this.name = name;
+            this.kind = kind;
+        }
+
+        ObjectNode summary() {
+            ObjectNode json = mapper().createObjectNode().put("id", id).put("name", name)
+                    .put("permalink", "https://fake.smartsheet/" + kind.name().toLowerCase() + "s/" + id);
+            if (kind == ContainerKind.WORKSPACE) {
+                json.put("accessLevel", "OWNER");
+            }
+            return json;
+        }
+    }
+
+    private static class SheetData {
+        final long id;
+        final String name;
+        final Instant createdAt = now();
+        Instant modifiedAt = createdAt;
+        int version = 1;
+        final List<ObjectNode> columns = new ArrayList<>();
+        final Set<Long> columnIds = new HashSet<>();
+        final List<RowData> rows = new ArrayList<>();
+        final Map<Long, RowData> rowsById = new HashMap<>();
+        final List<Long> attachmentIds = new ArrayList<>();
+
+        SheetData(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        void addColumn(long columnId, String title) {
+            columnIds.add(columnId);
+            columns.add(mapper().createObjectNode().put("id", columnId).put("index", columns.size())
+                    .put("title", title).put("type", "TEXT_NUMBER").put("primary", columns.isEmpty())
+                    .put("validation", false).put("width", 150));
+        }
+
+        void touch() {
+            ++version;
+            modifiedAt = now();
+        }
+
+        ObjectNode summary() {
+            return mapper().createObjectNode().put("id", id).put("name", name).put("version", version)
+                    .put("permalink", "https://fake.smartsheet/sheets/" + id)
+                    .put("createdAt", createdAt.toString()).put("modifiedAt", modifiedAt.toString());
+        }
+
+        ArrayNode columnsJson(Set<Long> selected) {
+            ArrayNode json = mapper().createArrayNode();
+            for (ObjectNode column : columns) {
+                if (selected == null || selected.contains(column.get("id").asLong())) {
+                    json.add(column);
+                }
+            }
+            return json;
+        }
+
+        /**
+         * @return the rows (in the order given) as the API returns them from an add or update
+         */
+        ArrayNode rowsJson(List<RowData> changed) {
+            Map<Long, Integer> rowNumbers = new HashMap<>();
+            Set<Long> changedIds = new HashSet<>();
+            changed.forEach(row -> changedIds.add(row.id));
+            for (int i = 0; i < rows.size() && rowNumbers.size() < changedIds.size(); ++i) {
+                if (changedIds.contains(rows.get(i).id)) {
+                    rowNumbers.put(rows.get(i).id, i + 1);
+                }
+            }
+            ArrayNode json = mapper().createArrayNode();
+            for (RowData row : changed) {
+                json.add(rowJson(row, rowNumbers.get(row.id), null, true));
+            }
+            return json;
+        }
+
+        ObjectNode rowJson(RowData row, int rowNumber, Set<Long> selected, boolean excludeNonexistentCells) {
+            ObjectNode json = mapper().createObjectNode().put("id", row.id).put("sheetId", id)
+                    .put("rowNumber", rowNumber).put("expanded", true).put("version", version)
+                    .put("createdAt", row.createdAt.toString()).put("modifiedAt", row.modifiedAt.toString());
+            ArrayNode cells = json.putArray("cells");
+            for (ObjectNode column : columns) {
+                long columnId = column.get("id").asLong();
+                if (selected != null && !selected.contains(columnId)) {
+                    continue;
+                }
+                JsonNode value = row.values.get(columnId);
+                if (value == null && excludeNonexistentCells) {
+                    continue;
+                }
+                ObjectNode cell = cells.addObject().put("columnId", columnId);
+                if (value != null) {
+                    cell.set("value", value);
+                    cell.put("displayValue", value.asText());
+                }
+            }
+            return json;
+        }
+
+        void setCells(RowData row, JsonNode cells) {
+            if (cells == null || cells.isNull()) {
+                return;
+            }
+            for (JsonNode cell : array(cells)) {
+                long columnId = cell.path("columnId").asLong();
+                if (!columnIds.contains(columnId)) {
+                    throw new ApiError(400, 1036, "The columnId " + columnId + " is invalid.");
+                }
+                JsonNode value = cell.has("objectValue") ? cell.get("objectValue") : cell.get("value");
+                if (value == null || value.isNull() || (value.isTextual() && value.asText().isEmpty())) {
+                    row.values.remove(columnId);
+                } else {
+                    row.values.put(columnId, value);
+                }
+            }
+        }
+
+        int insertIndex(JsonNode rowJson, int topIndex) {
+            if (rowJson.path("toTop").asBoolean(false)) {
+                return topIndex;
+            }
+            if (rowJson.hasNonNull("siblingId")) {
+                long siblingId = rowJson.get("siblingId").asLong();
+                RowData sibling = rowsById.get(siblingId);
+                if (sibling == null) {
+                    throw ApiError.notFound("row", siblingId);
+                }
+                int index = rows.indexOf(sibling);
+                return rowJson.path("above").asBoolean(false) ? index : index + 1;
+            }
+            return rows.size();
+        }
+    }
+
+    private static class RowData {
+        final long id;
+        final Instant createdAt = now();
+        Instant modifiedAt = createdAt;
+        final Map<Long, JsonNode> values = new LinkedHashMap<>();
+
+        RowData(long id) {
+            this.id = id;
+        }
+    }
+
+    static class AttachmentData {
+        final long id;
+        final long sheetId;
+        final Long rowId;
+        final String name;
+        final String mimeType;
+        final byte[] content;
+        final Instant createdAt = now();
+
+        AttachmentData(long id, long sheetId, Long rowId, String name, String mimeType, byte[] content) {
+            this.id = id;
+            this.sheetId = sheetId;
+            this.rowId = rowId;
+            this.name = name;
+            this.mimeType = mimeType;
+            this.content = content;
+        }
+
+        /**
+         * @param fileBaseUri - if non-null a download url is included (like the API's get-attachment)
+         */
+        ObjectNode json(String fileBaseUri) {
+            ObjectNode json = mapper().createObjectNode().put("id", id).put("name", name)
+                    .put("attachmentType", "FILE").put("mimeType", mimeType)
+                    .put("sizeInKb", (content.length + 1023) / 1024)
+                    .put("parentType", rowId != null ? "ROW" : "SHEET").put("parentId", rowId != null ? rowId : sheetId)
+                    .put("createdAt", createdAt.toString());
+            if (fileBaseUri != null) {
+                json.put("url", fileBaseUri + id).put("urlExpiresInMillis", 120_000);
+            }
+            return json;
+        }
+    }
+}